@@ -0,0 +1,31 @@
+-- Load test schema for H2, a sakila-style subset
+-- The restSQL database restsql_load maps to an H2 schema
+CREATE SCHEMA IF NOT EXISTS restsql_load;
+SET SCHEMA restsql_load;
+
+DROP TABLE IF EXISTS load_film;
+DROP TABLE IF EXISTS load_language;
+
+CREATE TABLE load_language (
+	language_id SMALLINT NOT NULL,
+	name VARCHAR(20) NOT NULL,
+	last_update TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	PRIMARY KEY (language_id)
+);
+
+CREATE TABLE load_film (
+	film_id INTEGER NOT NULL,
+	title VARCHAR(255) NOT NULL,
+	description VARCHAR(1000),
+	release_year INTEGER,
+	language_id SMALLINT NOT NULL REFERENCES load_language (language_id),
+	rental_duration SMALLINT NOT NULL DEFAULT 3,
+	rental_rate DECIMAL(4,2) NOT NULL DEFAULT 4.99,
+	length SMALLINT,
+	rating VARCHAR(5) DEFAULT 'G',
+	last_update TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	PRIMARY KEY (film_id)
+);
+
+CREATE INDEX idx_load_film_title ON load_film (title);
+CREATE INDEX idx_load_film_language_id ON load_film (language_id);
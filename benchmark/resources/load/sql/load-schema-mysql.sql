@@ -0,0 +1,30 @@
+-- Load test schema for MySQL, a sakila-style subset
+CREATE DATABASE IF NOT EXISTS restsql_load;
+USE restsql_load;
+
+DROP TABLE IF EXISTS load_film;
+DROP TABLE IF EXISTS load_language;
+
+CREATE TABLE load_language (
+	language_id SMALLINT UNSIGNED NOT NULL,
+	name VARCHAR(20) NOT NULL,
+	last_update TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	PRIMARY KEY (language_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE TABLE load_film (
+	film_id INT UNSIGNED NOT NULL,
+	title VARCHAR(255) NOT NULL,
+	description TEXT,
+	release_year YEAR,
+	language_id SMALLINT UNSIGNED NOT NULL,
+	rental_duration TINYINT UNSIGNED NOT NULL DEFAULT 3,
+	rental_rate DECIMAL(4,2) NOT NULL DEFAULT 4.99,
+	length SMALLINT UNSIGNED,
+	rating ENUM('G','PG','PG-13','R','NC-17') DEFAULT 'G',
+	last_update TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+	PRIMARY KEY (film_id),
+	KEY idx_title (title),
+	KEY idx_fk_language_id (language_id),
+	CONSTRAINT fk_load_film_language FOREIGN KEY (language_id) REFERENCES load_language (language_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
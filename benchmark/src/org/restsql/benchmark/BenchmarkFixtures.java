@@ -0,0 +1,275 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Request;
+import org.restsql.core.SqlBuilder;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceMetaData;
+import org.restsql.core.TableMetaData;
+import org.restsql.core.TableMetaData.TableRole;
+import org.restsql.core.WriteResponse;
+import org.restsql.core.impl.ColumnMetaDataImpl;
+import org.restsql.core.impl.TableMetaDataImpl;
+import org.restsql.core.sqlresource.SqlResourceDefinition;
+
+/**
+ * Builds in-memory fixtures for the benchmarks: a flat film resource's metadata, a SQL Resource that accepts writes
+ * without a database, a synthetic result set and request bodies. Nothing requires a database connection.
+ *
+ * @author Mark Sawers
+ */
+public class BenchmarkFixtures {
+	/** Forked benchmark JVMs use the benchmark properties, which keep logging quiet. */
+	public static final String JVM_ARG_PROPERTIES = "-Dorg.restsql.properties=/resources/properties/benchmark-restsql.properties";
+
+	public static final String RESOURCE_NAME = "BenchmarkFilm";
+	public static final String SELECT_SQL = "SELECT film_id, title, release_year, rating FROM sakila.film";
+
+	private static final String[] RATINGS = { "G", "PG", "PG-13", "R", "NC-17" };
+
+	/** Returns JSON insert body with the number of film rows. */
+	public static String newJsonRequestBody(final int rows) {
+		final StringBuilder body = new StringBuilder(rows * 80 + 20);
+		body.append("{ \"films\": [");
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				body.append(',');
+			}
+			body.append("\n\t{ \"film_id\": \"");
+			body.append(i);
+			body.append("\", \"title\": \"BENCHMARK FILM ");
+			body.append(i);
+			body.append("\", \"release_year\": \"2011\", \"rating\": \"");
+			body.append(RATINGS[i % RATINGS.length]);
+			body.append("\" }");
+		}
+		body.append("\n] }");
+		return body.toString();
+	}
+
+	/** Returns XML insert body with the number of film rows. */
+	public static String newXmlRequestBody(final int rows) {
+		final StringBuilder body = new StringBuilder(rows * 80 + 20);
+		body.append("<request>");
+		for (int i = 0; i < rows; i++) {
+			body.append("\n\t<film film_id=\"");
+			body.append(i);
+			body.append("\" title=\"BENCHMARK FILM ");
+			body.append(i);
+			body.append("\" release_year=\"2011\" rating=\"");
+			body.append(RATINGS[i % RATINGS.length]);
+			body.append("\" />");
+		}
+		body.append("\n</request>");
+		return body.toString();
+	}
+
+	/** Returns metadata for a flat resource on sakila.film with columns film_id (pk), title, release_year, rating. */
+	public static SqlResourceMetaData newFilmMetaData() {
+		final TableMetaDataImpl table = new TableMetaDataImpl();
+		table.setAttributes("film", "sakila.film", "sakila", TableRole.Parent);
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>(4);
+		columns.add(newColumn(table, 1, "film_id", "INT", Types.INTEGER, true));
+		columns.add(newColumn(table, 2, "title", "VARCHAR", Types.VARCHAR, false));
+		columns.add(newColumn(table, 3, "release_year", "INT", Types.INTEGER, false));
+		columns.add(newColumn(table, 4, "rating", "VARCHAR", Types.VARCHAR, false));
+		return new FilmMetaData(table, columns);
+	}
+
+	/**
+	 * Returns a forward-only result set with the number of film rows, matching the columns of
+	 * {@link #newFilmMetaData()}.
+	 */
+	public static ResultSet newResultSet(final int rows) {
+		return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+				new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+					private int row = -1;
+
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						final String name = method.getName();
+						if (name.equals("next")) {
+							return Boolean.valueOf(++row < rows);
+						} else if (name.equals("getObject") && args[0] instanceof Integer) {
+							switch (((Integer) args[0]).intValue()) {
+								case 1:
+									return Integer.valueOf(row);
+								case 2:
+									return "BENCHMARK FILM " + row;
+								case 3:
+									return Integer.valueOf(2011);
+								default:
+									return RATINGS[row % RATINGS.length];
+							}
+						} else if (name.equals("wasNull")) {
+							return Boolean.FALSE;
+						} else if (name.equals("close")) {
+							return null;
+						}
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+
+	/** Returns a SQL Resource with the metadata that counts writes instead of executing them. */
+	public static SqlResource newSqlResource(final SqlResourceMetaData metaData) {
+		return (SqlResource) Proxy.newProxyInstance(SqlResource.class.getClassLoader(),
+				new Class<?>[] { SqlResource.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						final String name = method.getName();
+						if (name.equals("getMetaData")) {
+							return metaData;
+						} else if (name.equals("getName")) {
+							return RESOURCE_NAME;
+						} else if (name.equals("getTriggers")) {
+							return Collections.emptyList();
+						} else if (name.equals("write")) {
+							final WriteResponse response = new WriteResponse();
+							response.addRowsAffected(args[0] instanceof List ? ((List<?>) args[0]).size() : 1);
+							return response;
+						}
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+
+	// Private utils
+
+	private static ColumnMetaData newColumn(final TableMetaDataImpl table, final int number, final String name,
+			final String typeName, final int type, final boolean primaryKey) {
+		final ColumnMetaDataImpl column = new ColumnMetaDataImpl();
+		column.setAttributes(number, "sakila", "sakila.film", "film", name, "film." + name, name, name, typeName,
+				type, false);
+		column.setTableRole(TableRole.Parent);
+		column.setPrimaryKey(primaryKey);
+		table.addColumn(column);
+		if (primaryKey) {
+			table.addPrimaryKey(column);
+		}
+		return column;
+	}
+
+	/** Flat film resource metadata, with a single table. */
+	private static class FilmMetaData implements SqlResourceMetaData {
+		private final List<ColumnMetaData> columns;
+		private final TableMetaData table;
+		private final Map<String, TableMetaData> tableMap;
+		private final List<TableMetaData> tables;
+
+		FilmMetaData(final TableMetaData table, final List<ColumnMetaData> columns) {
+			this.table = table;
+			this.columns = columns;
+			tables = Collections.singletonList(table);
+			tableMap = new HashMap<String, TableMetaData>(1);
+			tableMap.put(table.getQualifiedTableName(), table);
+		}
+
+		@Override
+		public List<ColumnMetaData> getAllReadColumns() {
+			return columns;
+		}
+
+		@Override
+		public TableMetaData getChild() {
+			return null;
+		}
+
+		@Override
+		public List<TableMetaData> getChildPlusExtTables() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public List<ColumnMetaData> getChildReadColumns() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public TableMetaData getJoin() {
+			return null;
+		}
+
+		@Override
+		public List<TableMetaData> getJoinList() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public int getNumberTables() {
+			return 1;
+		}
+
+		@Override
+		public TableMetaData getParent() {
+			return table;
+		}
+
+		@Override
+		public List<TableMetaData> getParentPlusExtTables() {
+			return tables;
+		}
+
+		@Override
+		public List<ColumnMetaData> getParentReadColumns() {
+			return columns;
+		}
+
+		@Override
+		public Map<String, TableMetaData> getTableMap() {
+			return tableMap;
+		}
+
+		@Override
+		public List<TableMetaData> getTables() {
+			return tables;
+		}
+
+		@Override
+		public List<TableMetaData> getWriteTables(final Request.Type requestType, final boolean doParent) {
+			return tables;
+		}
+
+		@Override
+		public boolean hasJoinTable() {
+			return false;
+		}
+
+		@Override
+		public boolean hasMultipleDatabases() {
+			return false;
+		}
+
+		@Override
+		public boolean isHierarchical() {
+			return false;
+		}
+
+		@Override
+		public void init(final String sqlResourceName, final SqlResourceDefinition definition,
+				final SqlBuilder sqlBuilder) {
+		}
+
+		@Override
+		public String toHtml() {
+			return "";
+		}
+
+		@Override
+		public String toXml() {
+			return "";
+		}
+	}
+}
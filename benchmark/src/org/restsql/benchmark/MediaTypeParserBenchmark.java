@@ -0,0 +1,49 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.RequestUtil;
+import org.restsql.core.impl.MediaTypeParser;
+
+/**
+ * Measures Accept header negotiation, uncached with the parser and cached through {@link RequestUtil}.
+ *
+ * @author Mark Sawers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.JVM_ARG_PROPERTIES)
+public class MediaTypeParserBenchmark {
+	private static final List<String> SUPPORTED = Arrays.asList("application/json",
+			"application/x-www-form-urlencoded", "application/xml");
+
+	@Param({ "application/json", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8" })
+	private String accept;
+
+	@Benchmark
+	public String bestMatch() {
+		return MediaTypeParser.bestMatch(SUPPORTED, accept);
+	}
+
+	@Benchmark
+	public String getResponseMediaType() throws InvalidRequestException {
+		return RequestUtil.getResponseMediaType(null, null, accept);
+	}
+}
@@ -0,0 +1,71 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restsql.core.Factory;
+import org.restsql.core.HttpRequestAttributes;
+import org.restsql.core.Request;
+import org.restsql.core.RequestDeserializer;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.WriteResponse;
+import org.restsql.core.impl.serial.JsonRequestDeserializer;
+import org.restsql.core.impl.serial.XmlRequestDeserializer;
+
+/**
+ * Measures JSON and XML insert body parsing into requests. The SQL Resource does not execute the writes.
+ *
+ * @author Mark Sawers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.JVM_ARG_PROPERTIES)
+public class RequestDeserializerBenchmark {
+	private HttpRequestAttributes jsonAttributes;
+	private String jsonBody;
+	private final RequestDeserializer jsonDeserializer = new JsonRequestDeserializer();
+
+	@Param({ "1", "100", "1000" })
+	private int rows;
+
+	private SqlResource sqlResource;
+	private HttpRequestAttributes xmlAttributes;
+	private String xmlBody;
+	private final RequestDeserializer xmlDeserializer = new XmlRequestDeserializer();
+
+	@Setup
+	public void setUp() {
+		sqlResource = BenchmarkFixtures.newSqlResource(BenchmarkFixtures.newFilmMetaData());
+		jsonBody = BenchmarkFixtures.newJsonRequestBody(rows);
+		jsonAttributes = Factory.getHttpRequestAttributes("localhost", "POST", "res/"
+				+ BenchmarkFixtures.RESOURCE_NAME, jsonBody, "application/json", "application/json");
+		xmlBody = BenchmarkFixtures.newXmlRequestBody(rows);
+		xmlAttributes = Factory.getHttpRequestAttributes("localhost", "POST", "res/"
+				+ BenchmarkFixtures.RESOURCE_NAME, xmlBody, "application/xml", "application/xml");
+	}
+
+	@Benchmark
+	public WriteResponse parseJson() throws SqlResourceException {
+		return jsonDeserializer.execWrite(jsonAttributes, Request.Type.INSERT, null, sqlResource, jsonBody, null);
+	}
+
+	@Benchmark
+	public WriteResponse parseXml() throws SqlResourceException {
+		return xmlDeserializer.execWrite(xmlAttributes, Request.Type.INSERT, null, sqlResource, xmlBody, null);
+	}
+}
@@ -0,0 +1,47 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restsql.core.RequestValue;
+
+/**
+ * Measures parsing of operators and in-lists from request parameter values.
+ *
+ * @author Mark Sawers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.JVM_ARG_PROPERTIES)
+public class RequestValueBenchmark {
+	private String equalsValue = "ACADEMY DINOSAUR";
+	private String inValue = "(1,2,3,4,5,6,7,8,9,10)";
+	private String rangeValue = ">=2005";
+
+	@Benchmark
+	public RequestValue parseEquals() {
+		return new RequestValue("title", equalsValue);
+	}
+
+	@Benchmark
+	public RequestValue parseIn() {
+		return new RequestValue("film_id", inValue);
+	}
+
+	@Benchmark
+	public RequestValue parseRange() {
+		return new RequestValue("release_year", rangeValue);
+	}
+}
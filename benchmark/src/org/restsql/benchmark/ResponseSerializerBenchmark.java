@@ -0,0 +1,57 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restsql.core.ResponseSerializer;
+import org.restsql.core.SqlResource;
+import org.restsql.core.impl.serial.JsonResponseSerializer;
+import org.restsql.core.impl.serial.XmlResponseSerializer;
+
+/**
+ * Measures flat read serialization to JSON and XML over a synthetic result set.
+ *
+ * @author Mark Sawers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.JVM_ARG_PROPERTIES)
+public class ResponseSerializerBenchmark {
+	private final ResponseSerializer jsonSerializer = new JsonResponseSerializer();
+
+	@Param({ "1", "100", "10000" })
+	private int rows;
+
+	private SqlResource sqlResource;
+	private final ResponseSerializer xmlSerializer = new XmlResponseSerializer();
+
+	@Setup
+	public void setUp() {
+		sqlResource = BenchmarkFixtures.newSqlResource(BenchmarkFixtures.newFilmMetaData());
+	}
+
+	@Benchmark
+	public String serializeReadFlatJson() throws SQLException {
+		return jsonSerializer.serializeReadFlat(sqlResource, BenchmarkFixtures.newResultSet(rows), null);
+	}
+
+	@Benchmark
+	public String serializeReadFlatXml() throws SQLException {
+		return xmlSerializer.serializeReadFlat(sqlResource, BenchmarkFixtures.newResultSet(rows), null);
+	}
+}
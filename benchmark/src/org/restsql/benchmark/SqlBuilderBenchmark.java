@@ -0,0 +1,83 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restsql.core.Factory;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.Request;
+import org.restsql.core.RequestValue;
+import org.restsql.core.SqlBuilder;
+import org.restsql.core.SqlBuilder.SqlStruct;
+import org.restsql.core.SqlResourceMetaData;
+import org.restsql.core.impl.mysql.MySqlSqlBuilder;
+import org.restsql.core.impl.postgresql.PostgreSqlSqlBuilder;
+
+/**
+ * Measures select and write SQL generation by the MySQL and PostgreSQL builders.
+ *
+ * @author Mark Sawers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.JVM_ARG_PROPERTIES)
+public class SqlBuilderBenchmark {
+	private SqlResourceMetaData metaData;
+	private final SqlBuilder mySqlBuilder = new MySqlSqlBuilder();
+	private final SqlBuilder postgreSqlBuilder = new PostgreSqlSqlBuilder();
+	private Request selectRequest;
+	private Request updateRequest;
+
+	@Setup
+	public void setUp() throws InvalidRequestException {
+		metaData = BenchmarkFixtures.newFilmMetaData();
+
+		final List<RequestValue> selectParams = new ArrayList<RequestValue>(4);
+		selectParams.add(new RequestValue("title", "ACADEMY%"));
+		selectParams.add(new RequestValue("release_year", ">=2005"));
+		selectParams.add(new RequestValue("_limit", "10"));
+		selectParams.add(new RequestValue("_offset", "0"));
+		selectRequest = Factory.getRequest(Request.Type.SELECT, BenchmarkFixtures.RESOURCE_NAME, null,
+				selectParams, null, null);
+		selectRequest.extractParameters();
+
+		final List<RequestValue> resIds = new ArrayList<RequestValue>(1);
+		resIds.add(new RequestValue("film_id", "1"));
+		final List<RequestValue> updateParams = new ArrayList<RequestValue>(2);
+		updateParams.add(new RequestValue("title", "ACADEMY DINOSAUR"));
+		updateParams.add(new RequestValue("rating", "PG"));
+		updateRequest = Factory.getRequest(Request.Type.UPDATE, BenchmarkFixtures.RESOURCE_NAME, resIds,
+				updateParams, null, null);
+	}
+
+	@Benchmark
+	public SqlStruct buildSelectSqlMySql() throws InvalidRequestException {
+		return mySqlBuilder.buildSelectSql(metaData, BenchmarkFixtures.SELECT_SQL, selectRequest);
+	}
+
+	@Benchmark
+	public SqlStruct buildSelectSqlPostgreSql() throws InvalidRequestException {
+		return postgreSqlBuilder.buildSelectSql(metaData, BenchmarkFixtures.SELECT_SQL, selectRequest);
+	}
+
+	@Benchmark
+	public Map<String, SqlStruct> buildUpdateSqlMySql() throws InvalidRequestException {
+		return mySqlBuilder.buildWriteSql(metaData, updateRequest, true);
+	}
+}
@@ -0,0 +1,158 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.restsql.core.Config;
+import org.restsql.core.Factory;
+
+/**
+ * Creates the load test schema in the configured database and fills it with generated data. The schema is a
+ * sakila-style language and film pair of tables, used by the load test SQL Resources. Usage:
+ * 
+ * <pre>
+ * DataGenerator [films [languages]]
+ * </pre>
+ * 
+ * Existing load test tables are dropped first. The schema script is chosen from the configured JDBC driver. For
+ * PostgreSQL, the database named by {@link #DATABASE} must already exist and be the one in the database url. For H2,
+ * it is created as a schema.
+ * 
+ * @author Mark Sawers
+ */
+public class DataGenerator {
+	public static final String DATABASE = "restsql_load";
+	public static final int DEFAULT_FILMS = 100000;
+	public static final int DEFAULT_LANGUAGES = 20;
+
+	private static final int BATCH_SIZE = 1000;
+	private static final String[] RATINGS = { "G", "PG", "PG-13", "R", "NC-17" };
+	private static final String SQL_INSERT_FILM = "INSERT INTO load_film (film_id, title, description, release_year, language_id, rental_duration, rental_rate, length, rating) VALUES (?,?,?,?,?,?,?,?,?)";
+	private static final String SQL_INSERT_LANGUAGE = "INSERT INTO load_language (language_id, name) VALUES (?,?)";
+
+	public static void main(final String[] args) throws Exception {
+		final int films = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILMS;
+		final int languages = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LANGUAGES;
+
+		final Connection connection = Factory.getConnection(null);
+		try {
+			executeScript(connection, getSchemaScript());
+			connection.setCatalog(DATABASE);
+			connection.setAutoCommit(false);
+			final long start = System.currentTimeMillis();
+			insertLanguages(connection, languages);
+			insertFilms(connection, films, languages);
+			System.out.println("Generated " + languages + " languages and " + films + " films in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		} finally {
+			connection.close();
+		}
+	}
+
+	// Private utils
+
+	private static void executeScript(final Connection connection, final String scriptName) throws IOException,
+			SQLException {
+		final InputStream inputStream = DataGenerator.class.getResourceAsStream(scriptName);
+		if (inputStream == null) {
+			throw new IOException("Schema script " + scriptName + " not found");
+		}
+		final List<String> sqls = new ArrayList<String>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+		try {
+			final StringBuilder sql = new StringBuilder(200);
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("--")) {
+					continue;
+				}
+				sql.append(line);
+				if (line.endsWith(";")) {
+					sql.setLength(sql.length() - 1);
+					sqls.add(sql.toString());
+					sql.setLength(0);
+				} else {
+					sql.append(' ');
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		final Statement statement = connection.createStatement();
+		try {
+			for (final String sql : sqls) {
+				statement.execute(sql);
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	private static String getSchemaScript() {
+		final String driverClassName = Config.properties.getProperty(Config.KEY_DATABASE_DRIVER_CLASSNAME,
+				Config.DEFAULT_DATABASE_DRIVER_CLASSNAME);
+		final String dialect;
+		if (driverClassName.contains("postgresql")) {
+			dialect = "postgresql";
+		} else if (driverClassName.contains("h2")) {
+			dialect = "h2";
+		} else {
+			dialect = "mysql";
+		}
+		return "/resources/load/sql/load-schema-" + dialect + ".sql";
+	}
+
+	private static void insertFilms(final Connection connection, final int films, final int languages)
+			throws SQLException {
+		final Random random = new Random(films);
+		final PreparedStatement statement = connection.prepareStatement(SQL_INSERT_FILM);
+		try {
+			for (int filmId = 1; filmId <= films; filmId++) {
+				statement.setInt(1, filmId);
+				statement.setString(2, "LOAD FILM " + filmId);
+				statement.setString(3, "Generated film " + filmId + " for load testing");
+				statement.setInt(4, 1980 + random.nextInt(40));
+				statement.setInt(5, 1 + random.nextInt(languages));
+				statement.setInt(6, 3 + random.nextInt(5));
+				statement.setBigDecimal(7, new BigDecimal(random.nextInt(500)).movePointLeft(2));
+				statement.setInt(8, 45 + random.nextInt(140));
+				statement.setString(9, RATINGS[random.nextInt(RATINGS.length)]);
+				statement.addBatch();
+				if (filmId % BATCH_SIZE == 0 || filmId == films) {
+					statement.executeBatch();
+					connection.commit();
+				}
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	private static void insertLanguages(final Connection connection, final int languages) throws SQLException {
+		final PreparedStatement statement = connection.prepareStatement(SQL_INSERT_LANGUAGE);
+		try {
+			for (int languageId = 1; languageId <= languages; languageId++) {
+				statement.setInt(1, languageId);
+				statement.setString(2, "Language " + languageId);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+			connection.commit();
+		} finally {
+			statement.close();
+		}
+	}
+}
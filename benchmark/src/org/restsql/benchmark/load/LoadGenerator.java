@@ -0,0 +1,444 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark.load;
+
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a mixed read/write HTTP workload against a restSQL service and reports throughput and latency percentiles per
+ * operation and per resource. Usage:
+ *
+ * <pre>
+ * LoadGenerator workloadFile [resultsFile]
+ * </pre>
+ *
+ * The workload properties file defines the service url, the load model and weighted operations:
+ * <ul>
+ * <li>baseUrl - service url, e.g. http://localhost:8080/restsql</li>
+ * <li>mode - closed for a fixed number of threads sending back-to-back, open for a fixed arrival rate</li>
+ * <li>threads - number of threads; in open mode, enough are needed to absorb the service's latency</li>
+ * <li>rate - open mode only, total requests per second</li>
+ * <li>thinkTime - closed mode only, milliseconds each thread waits between requests</li>
+ * <li>warmup - seconds of load not reported</li>
+ * <li>duration - seconds of load reported</li>
+ * <li>films, languages - generated data volumes, used for the placeholders</li>
+ * <li>operation.{name} - <code>weight method uri [contentType body]</code></li>
+ * </ul>
+ * The operation uri and body may contain placeholders: <code>{film}</code> is a random existing film id,
+ * <code>{language}</code> a random language id and <code>{seq}</code> a unique number greater than the films. In open
+ * mode, latency is measured from the request's scheduled time rather than its actual send time, so a slow service is
+ * not hidden by the generator falling behind. If a results file is given, the report is also written to it as JSON.
+ *
+ * @author Mark Sawers
+ */
+public class LoadGenerator {
+	private static final String MODE_OPEN = "open";
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final String baseUrl;
+	private final long durationNanos;
+	private final int films;
+	private final int languages;
+	private final boolean openLoop;
+	private final Operation[] operations;
+	private final double rate;
+	private final AtomicLong sequence;
+	private final long thinkTimeMillis;
+	private final int threads;
+	private final int totalWeight;
+	private final long warmupNanos;
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: LoadGenerator workloadFile [resultsFile]");
+			System.exit(1);
+		}
+		final Properties workload = new Properties();
+		final InputStream inputStream = new FileInputStream(args[0]);
+		try {
+			workload.load(inputStream);
+		} finally {
+			inputStream.close();
+		}
+
+		final LoadGenerator generator = new LoadGenerator(workload);
+		final List<Result> results = generator.run();
+		final List<Result> resourceResults = generator.getResourceResults(results);
+		System.out.println(generator.toText(results, resourceResults));
+		if (args.length > 1) {
+			final Writer writer = new FileWriter(args[1]);
+			try {
+				writer.write(generator.toJson(results, resourceResults));
+			} finally {
+				writer.close();
+			}
+			System.out.println("Results written to " + args[1]);
+		}
+	}
+
+	LoadGenerator(final Properties workload) {
+		baseUrl = workload.getProperty("baseUrl", "http://localhost:8080/restsql").replaceAll("/$", "");
+		openLoop = MODE_OPEN.equals(workload.getProperty("mode", "closed"));
+		threads = Integer.parseInt(workload.getProperty("threads", "16"));
+		rate = Double.parseDouble(workload.getProperty("rate", "100"));
+		thinkTimeMillis = Long.parseLong(workload.getProperty("thinkTime", "0"));
+		warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(workload.getProperty("warmup", "10")));
+		durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(workload.getProperty("duration", "60")));
+		films = Integer.parseInt(workload.getProperty("films", String.valueOf(DataGenerator.DEFAULT_FILMS)));
+		languages = Integer.parseInt(workload.getProperty("languages",
+				String.valueOf(DataGenerator.DEFAULT_LANGUAGES)));
+		sequence = new AtomicLong(Math.max(films, 1000000));
+
+		final List<Operation> operationList = new ArrayList<Operation>();
+		int weight = 0;
+		for (final String name : new TreeSet<String>(workload.stringPropertyNames())) {
+			if (name.startsWith("operation.")) {
+				final Operation operation = new Operation(name.substring(10), workload.getProperty(name));
+				weight += operation.weight;
+				operationList.add(operation);
+			}
+		}
+		if (operationList.isEmpty()) {
+			throw new IllegalArgumentException("Workload has no operations");
+		}
+		operations = operationList.toArray(new Operation[operationList.size()]);
+		totalWeight = weight;
+	}
+
+	/** Runs the workload and returns a result per operation. */
+	List<Result> run() throws InterruptedException {
+		System.out.println((openLoop ? "Open loop at " + rate + " requests/s" : "Closed loop") + " with " + threads
+				+ " threads, " + TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + "s warmup and "
+				+ TimeUnit.NANOSECONDS.toSeconds(durationNanos) + "s measurement against " + baseUrl);
+
+		final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+		final Worker[] workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(i, start);
+			workers[i].start();
+		}
+		for (final Worker worker : workers) {
+			worker.join();
+		}
+
+		final List<Result> results = new ArrayList<Result>(operations.length);
+		for (int i = 0; i < operations.length; i++) {
+			final Result result = new Result(operations[i].name, operations[i].method, operations[i].resource);
+			for (final Worker worker : workers) {
+				result.add(worker.recorders[i]);
+			}
+			result.complete(durationNanos);
+			results.add(result);
+		}
+		return results;
+	}
+
+	// Private utils
+
+	private List<Result> getResourceResults(final List<Result> results) {
+		final Map<String, Result> resourceResults = new LinkedHashMap<String, Result>();
+		for (final Result result : results) {
+			final String key = result.resource + " " + result.method;
+			Result resourceResult = resourceResults.get(key);
+			if (resourceResult == null) {
+				resourceResult = new Result(key, result.method, result.resource);
+				resourceResults.put(key, resourceResult);
+			}
+			resourceResult.add(result.recorder);
+		}
+		for (final Result resourceResult : resourceResults.values()) {
+			resourceResult.complete(durationNanos);
+		}
+		return new ArrayList<Result>(resourceResults.values());
+	}
+
+	private static double toMillis(final long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	/** Returns index of a randomly chosen operation, in proportion to the weights. */
+	private int chooseOperation(final Random random) {
+		int choice = random.nextInt(totalWeight);
+		for (int i = 0; i < operations.length; i++) {
+			choice -= operations[i].weight;
+			if (choice < 0) {
+				return i;
+			}
+		}
+		return operations.length - 1;
+	}
+
+	private String toJson(final List<Result> results, final List<Result> resourceResults) {
+		final StringBuilder json = new StringBuilder(2000);
+		json.append("{\n\t\"mode\": \"").append(openLoop ? MODE_OPEN : "closed");
+		json.append("\",\n\t\"threads\": ").append(threads);
+		if (openLoop) {
+			json.append(",\n\t\"rate\": ").append(rate);
+		}
+		json.append(",\n\t\"durationSeconds\": ").append(TimeUnit.NANOSECONDS.toSeconds(durationNanos));
+		json.append(",\n\t\"operations\": [");
+		appendJson(json, results);
+		json.append("\n\t],\n\t\"resources\": [");
+		appendJson(json, resourceResults);
+		json.append("\n\t]\n}\n");
+		return json.toString();
+	}
+
+	private void appendJson(final StringBuilder json, final List<Result> results) {
+		for (int i = 0; i < results.size(); i++) {
+			final Result result = results.get(i);
+			json.append(i > 0 ? ",\n\t\t{ " : "\n\t\t{ ");
+			json.append("\"name\": \"").append(result.name);
+			json.append("\", \"resource\": \"").append(result.resource);
+			json.append("\", \"method\": \"").append(result.method);
+			json.append("\", \"requests\": ").append(result.requests);
+			json.append(", \"errors\": ").append(result.errors);
+			json.append(", \"throughput\": ").append(String.format("%.1f", result.throughput));
+			json.append(", \"meanMs\": ").append(String.format("%.3f", toMillis(result.mean)));
+			for (int p = 0; p < PERCENTILES.length; p++) {
+				json.append(", \"p").append(String.valueOf(PERCENTILES[p]).replace(".0", "").replace('.', '_'));
+				json.append("Ms\": ").append(String.format("%.3f", toMillis(result.percentiles[p])));
+			}
+			json.append(", \"maxMs\": ").append(String.format("%.3f", toMillis(result.max)));
+			json.append(" }");
+		}
+	}
+
+	private String toText(final List<Result> results, final List<Result> resourceResults) {
+		final StringBuilder text = new StringBuilder(2000);
+		text.append(String.format("\n%-30s %10s %8s %10s %10s %10s %10s %10s %10s %10s\n", "operation", "requests",
+				"errors", "req/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+		appendText(text, results);
+		text.append(String.format("\n%-30s\n", "resource"));
+		appendText(text, resourceResults);
+		return text.toString();
+	}
+
+	private void appendText(final StringBuilder text, final List<Result> results) {
+		for (final Result result : results) {
+			text.append(String.format("%-30s %10d %8d %10.1f %10.3f", result.name, result.requests, result.errors,
+					result.throughput, toMillis(result.mean)));
+			for (final long percentile : result.percentiles) {
+				text.append(String.format(" %10.3f", toMillis(percentile)));
+			}
+			text.append(String.format(" %10.3f\n", toMillis(result.max)));
+		}
+	}
+
+	/** Weighted request template. */
+	private static class Operation {
+		private final String body;
+		private final String contentType;
+		private final String method;
+		private final String name;
+		private final String resource;
+		private final String uri;
+		private final int weight;
+
+		Operation(final String name, final String definition) {
+			this.name = name;
+			final String[] tokens = definition.trim().split("\\s+", 5);
+			if (tokens.length < 3) {
+				throw new IllegalArgumentException("Operation " + name
+						+ " must be defined as weight method uri [contentType body]");
+			}
+			weight = Integer.parseInt(tokens[0]);
+			method = tokens[1].toUpperCase();
+			uri = tokens[2].replaceAll("^/", "");
+			contentType = tokens.length > 3 ? tokens[3] : null;
+			body = tokens.length > 4 ? tokens[4] : null;
+			final String[] path = uri.split("[/?]");
+			resource = path.length > 1 && path[0].equals("res") ? path[1] : path[0];
+		}
+	}
+
+	/** Growable array of latencies for one operation, owned by one worker. */
+	private static class Recorder {
+		private int errors;
+		private long[] latencies = new long[1024];
+		private int size;
+
+		void record(final long latency, final boolean error) {
+			if (size == latencies.length) {
+				latencies = Arrays.copyOf(latencies, size * 2);
+			}
+			latencies[size++] = latency;
+			if (error) {
+				errors++;
+			}
+		}
+	}
+
+	/** Merged latencies and statistics for an operation or resource. */
+	private static class Result {
+		private long errors;
+		private long max;
+		private long mean;
+		private final String method;
+		private final String name;
+		private final long[] percentiles = new long[PERCENTILES.length];
+		private final Recorder recorder = new Recorder();
+		private long requests;
+		private final String resource;
+		private double throughput;
+
+		Result(final String name, final String method, final String resource) {
+			this.name = name;
+			this.method = method;
+			this.resource = resource;
+		}
+
+		void add(final Recorder other) {
+			if (recorder.latencies.length < recorder.size + other.size) {
+				recorder.latencies = Arrays.copyOf(recorder.latencies, recorder.size + other.size);
+			}
+			System.arraycopy(other.latencies, 0, recorder.latencies, recorder.size, other.size);
+			recorder.size += other.size;
+			recorder.errors += other.errors;
+		}
+
+		void complete(final long durationNanos) {
+			requests = recorder.size;
+			errors = recorder.errors;
+			throughput = requests / (durationNanos / 1000000000.0);
+			if (requests > 0) {
+				final long[] sorted = Arrays.copyOf(recorder.latencies, recorder.size);
+				Arrays.sort(sorted);
+				long total = 0;
+				for (final long latency : sorted) {
+					total += latency;
+				}
+				mean = total / sorted.length;
+				max = sorted[sorted.length - 1];
+				for (int p = 0; p < PERCENTILES.length; p++) {
+					final int index = (int) Math.ceil(PERCENTILES[p] / 100.0 * sorted.length) - 1;
+					percentiles[p] = sorted[Math.max(index, 0)];
+				}
+			}
+		}
+	}
+
+	/** Sends requests until the measurement ends, recording those started after the warmup. */
+	private class Worker extends Thread {
+		private final int index;
+		private final Random random;
+		private final Recorder[] recorders = new Recorder[operations.length];
+		private final long start;
+
+		Worker(final int index, final long start) {
+			super("load-worker-" + index);
+			this.index = index;
+			this.start = start;
+			random = new Random(index);
+			for (int i = 0; i < recorders.length; i++) {
+				recorders[i] = new Recorder();
+			}
+		}
+
+		@Override
+		public void run() {
+			final long measureStart = start + warmupNanos;
+			final long end = measureStart + durationNanos;
+			final long intervalNanos = openLoop ? (long) (1000000000.0 / rate) : 0;
+			long slot = index;
+			while (true) {
+				final long scheduled;
+				if (openLoop) {
+					// Slots are interleaved across workers, so together they send at the configured rate
+					scheduled = start + slot * intervalNanos;
+					slot += threads;
+					if (scheduled >= end) {
+						break;
+					}
+					sleepUntil(scheduled);
+				} else {
+					scheduled = System.nanoTime();
+					if (scheduled >= end) {
+						break;
+					}
+				}
+
+				final int operationIndex = chooseOperation(random);
+				final boolean error = !send(operations[operationIndex]);
+				if (scheduled >= measureStart) {
+					recorders[operationIndex].record(System.nanoTime() - scheduled, error);
+				}
+
+				if (thinkTimeMillis > 0 && !openLoop) {
+					sleepUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(thinkTimeMillis));
+				}
+			}
+		}
+
+		private String expand(final String template) {
+			if (template == null || template.indexOf('{') < 0) {
+				return template;
+			}
+			return template.replace("{film}", String.valueOf(1 + random.nextInt(films)))
+					.replace("{language}", String.valueOf(1 + random.nextInt(languages)))
+					.replace("{seq}", String.valueOf(sequence.incrementAndGet()));
+		}
+
+		/** Sends the request and reads the full response, returning true if the status is successful. */
+		private boolean send(final Operation operation) {
+			HttpURLConnection connection = null;
+			try {
+				connection = (HttpURLConnection) new URL(baseUrl + "/" + expand(operation.uri)).openConnection();
+				connection.setRequestMethod(operation.method);
+				connection.setRequestProperty("Accept", "application/json");
+				if (operation.contentType != null) {
+					final byte[] body = expand(operation.body == null ? "" : operation.body).getBytes("UTF-8");
+					connection.setDoOutput(true);
+					connection.setRequestProperty("Content-Type", operation.contentType);
+					connection.setFixedLengthStreamingMode(body.length);
+					final OutputStream outputStream = connection.getOutputStream();
+					outputStream.write(body);
+					outputStream.close();
+				}
+				final int status = connection.getResponseCode();
+				final InputStream inputStream = status < 400 ? connection.getInputStream() : connection
+						.getErrorStream();
+				if (inputStream != null) {
+					final byte[] buffer = new byte[8192];
+					while (inputStream.read(buffer) >= 0) {
+					}
+					inputStream.close();
+				}
+				return status < 400;
+			} catch (final IOException exception) {
+				if (connection != null) {
+					connection.disconnect();
+				}
+				return false;
+			}
+		}
+
+		private void sleepUntil(final long nanoTime) {
+			long remaining;
+			while ((remaining = nanoTime - System.nanoTime()) > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(remaining);
+				} catch (final InterruptedException exception) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+}
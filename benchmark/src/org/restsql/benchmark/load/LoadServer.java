@@ -0,0 +1,44 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.benchmark.load;
+
+import java.io.File;
+
+import org.apache.catalina.startup.Tomcat;
+
+/**
+ * Runs the restSQL webapp in an embedded Tomcat for load testing. The exploded webapp built by the lib-war target is
+ * served at /restsql. Usage:
+ * 
+ * <pre>
+ * LoadServer [port [webappDir]]
+ * </pre>
+ * 
+ * The restSQL properties are specified as usual with the System property <code>org.restsql.properties</code>.
+ * 
+ * @author Mark Sawers
+ */
+public class LoadServer {
+	public static final String CONTEXT_PATH = "/restsql";
+	public static final int DEFAULT_PORT = 8080;
+	public static final String DEFAULT_WEBAPP_DIR = "obj/war";
+
+	public static void main(final String[] args) throws Exception {
+		final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		final File webappDir = new File(args.length > 1 ? args[1] : DEFAULT_WEBAPP_DIR);
+		if (!webappDir.isDirectory()) {
+			System.out.println("Webapp dir " + webappDir.getAbsolutePath() + " not found -- run the lib-war target");
+			System.exit(1);
+		}
+
+		final File baseDir = new File("obj/load/tomcat");
+		baseDir.mkdirs();
+		final Tomcat tomcat = new Tomcat();
+		tomcat.setBaseDir(baseDir.getAbsolutePath());
+		tomcat.setPort(port);
+		tomcat.getConnector();
+		tomcat.addWebapp(CONTEXT_PATH, webappDir.getAbsolutePath());
+		tomcat.start();
+		System.out.println("restSQL serving at http://localhost:" + port + CONTEXT_PATH);
+		tomcat.getServer().await();
+	}
+}
@@ -0,0 +1,94 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.security.impl;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.restsql.benchmark.BenchmarkFixtures;
+import org.restsql.core.Request;
+import org.restsql.security.SecurityContext;
+
+/**
+ * Measures authorization decisions for granted, wildcard-granted and denied requests. Lives in the implementation's
+ * package to load privileges from a temporary file.
+ *
+ * @author Mark Sawers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = BenchmarkFixtures.JVM_ARG_PROPERTIES)
+public class AuthorizerBenchmark {
+	private AuthorizerImpl authorizer;
+	private SecurityContext context;
+	private File privilegesFile;
+
+	@Setup
+	public void setUp() throws IOException {
+		privilegesFile = File.createTempFile("benchmark-privileges", ".properties");
+		final FileWriter writer = new FileWriter(privilegesFile);
+		try {
+			writer.write(BenchmarkFixtures.RESOURCE_NAME + ".select=reader\n");
+			writer.write(BenchmarkFixtures.RESOURCE_NAME + ".insert,update=writer\n");
+			writer.write("*.select=auditor\n");
+			writer.write("*.*=admin\n");
+		} finally {
+			writer.close();
+		}
+		authorizer = new AuthorizerImpl(privilegesFile.getAbsolutePath());
+		context = new SecurityContext() {
+			private final Principal principal = new Principal() {
+				@Override
+				public String getName() {
+					return "benchmark";
+				}
+			};
+
+			@Override
+			public Principal getUserPrincipal() {
+				return principal;
+			}
+
+			@Override
+			public boolean isUserInRole(final String roleName) {
+				return "reader".equals(roleName) || "auditor".equals(roleName);
+			}
+		};
+	}
+
+	@TearDown
+	public void tearDown() {
+		privilegesFile.delete();
+	}
+
+	@Benchmark
+	public boolean isAuthorizedDenied() {
+		return authorizer.isAuthorized(context, Request.Type.DELETE, BenchmarkFixtures.RESOURCE_NAME);
+	}
+
+	@Benchmark
+	public boolean isAuthorizedGranted() {
+		return authorizer.isAuthorized(context, Request.Type.SELECT, BenchmarkFixtures.RESOURCE_NAME);
+	}
+
+	@Benchmark
+	public boolean isAuthorizedWildcard() {
+		return authorizer.isAuthorized(context, Request.Type.SELECT, "OtherResource");
+	}
+}
@@ -0,0 +1,40 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.util.List;
+
+/**
+ * Optional extension of {@link SqlResource} for request bodies containing multiple rows. When a SQL Resource
+ * implements this interface, the request deserializers write all the rows of a batch with one call, and line-oriented
+ * bodies may be loaded with the database's native bulk path. Otherwise each row is written with
+ * {@link SqlResource#write(Request)}.
+ * 
+ * @author Mark Sawers
+ * @see SqlResource
+ */
+public interface BatchSqlResource extends SqlResource {
+
+	/**
+	 * Loads rows into the parent table of a flat resource with the database's native bulk path, see
+	 * {@link BulkLoader}. Triggers are not called.
+	 * 
+	 * @param columnLabels labels of the parent table columns of the rows' values, in order
+	 * @param rows row source
+	 * @param requestLogger request logger, may be null
+	 * @throws SqlResourceException if a label is not a writable parent table column or a database access error occurs
+	 * @return write response with the rows affected
+	 */
+	public WriteResponse load(final List<String> columnLabels, final BulkLoader.RowSource rows,
+			final RequestLogger requestLogger) throws SqlResourceException;
+
+	/**
+	 * Executes database writes for all rows of a request body in one transaction, so that either all are written or,
+	 * if any fails, none. Any {@link BatchTrigger} is called once with all the requests, other triggers once per
+	 * request.
+	 * 
+	 * @param requests Request objects of the same type, one per row or parent row
+	 * @throws SqlResourceException if the request is invalid or a database access error or trigger exception occurs
+	 * @return write response, combined for all requests
+	 */
+	public WriteResponse write(final List<Request> requests) throws SqlResourceException;
+}
@@ -0,0 +1,31 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.util.List;
+
+/**
+ * Optional extension of {@link Trigger} for request bodies containing multiple rows. When a SQL Resource has a batch
+ * trigger, the request deserializers collect the requests for every row of the body and the framework calls the
+ * <code>xxxBatch()</code> methods once with all of them, before and after the rows are written. Triggers that do not
+ * implement this interface are still called once per row within the same phases. Selects and requests without a body
+ * use the {@link Trigger} methods.
+ * <p>
+ * Throwing {@link InvalidRequestException} from a <code>beforeXxxBatch()</code> stops all rows from being written and
+ * returns HTTP 400 Bad Request to the client.
+ * 
+ * @author Mark Sawers
+ * @see Trigger
+ */
+public interface BatchTrigger extends Trigger {
+	public void beforeInsertBatch(List<Request> requests) throws InvalidRequestException, SqlResourceException;
+
+	public void beforeUpdateBatch(List<Request> requests) throws InvalidRequestException, SqlResourceException;
+
+	public void beforeDeleteBatch(List<Request> requests) throws InvalidRequestException, SqlResourceException;
+
+	public void afterInsertBatch(List<Request> requests) throws SqlResourceException;
+
+	public void afterUpdateBatch(List<Request> requests) throws SqlResourceException;
+
+	public void afterDeleteBatch(List<Request> requests) throws SqlResourceException;
+}
@@ -0,0 +1,37 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Loads rows into a table with the database's native bulk path, e.g. PostgreSQL's COPY or MySQL's LOAD DATA, which is
+ * much faster than inserts for large loads. Rows are pulled from the source as the database consumes them. The load is
+ * all or nothing.
+ *
+ * @author Mark Sawers
+ */
+public interface BulkLoader {
+
+	/**
+	 * Loads rows into the table.
+	 *
+	 * @param connection database connection
+	 * @param table table
+	 * @param columns columns of the rows' values, in order
+	 * @param rows row source
+	 * @return number of rows loaded
+	 * @throws SQLException if the load fails or the row source throws an IOException, in which case no rows are loaded
+	 */
+	public int load(final Connection connection, final TableMetaData table, final List<ColumnMetaData> columns,
+			final RowSource rows) throws SQLException;
+
+	/** Supplies the rows to load. */
+	public interface RowSource {
+
+		/** Returns the next row's values, in column order, or null after the last row. */
+		public Object[] next() throws IOException;
+	}
+}
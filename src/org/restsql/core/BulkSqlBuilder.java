@@ -0,0 +1,49 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional extension of {@link SqlBuilder} for writing many rows with few statements. When the configured SQL builder
+ * implements this interface, consecutive rows of a request body are combined into multi-row inserts and into deletes
+ * and updates with an IN predicate, and parameter-based deletes and updates are run in chunks if configured. Builders
+ * that do not implement it write each row with its own statements and never chunk.
+ * 
+ * @author Mark Sawers
+ * @see SqlBuilder
+ */
+public interface BulkSqlBuilder extends SqlBuilder {
+
+	/**
+	 * Creates SQL for flat writes that can be combined, one statement per table: a multi-row insert, or a delete or
+	 * update with the keys of all rows in an IN predicate. Use {@link #getBulkWriteRowCount(SqlResourceMetaData, List)}
+	 * to chunk the requests.
+	 */
+	public Map<String, SqlStruct> buildBulkWriteSql(final SqlResourceMetaData metaData,
+			final List<Request> requests) throws InvalidRequestException;
+
+	/**
+	 * Creates query for the primary key that ends the next chunk of a flat single table delete or update: the chunk
+	 * size'th key above the lower key, in key order. The query returns no row for the last chunk. Returns null if the
+	 * database or request does not support chunking.
+	 */
+	public SqlStruct buildChunkKeySql(final SqlResourceMetaData metaData, final Request request,
+			final Object lowerKey, final int chunkSize) throws InvalidRequestException;
+
+	/**
+	 * Creates SQL for a chunk of a flat single table delete or update, limited to the primary keys above the lower key,
+	 * up to and including the upper key. Either key may be null for a range open at that end. Returns null if the
+	 * database or request does not support chunking.
+	 */
+	public SqlStruct buildChunkedWriteSql(final SqlResourceMetaData metaData, final Request request,
+			final Object lowerKey, final Object upperKey) throws InvalidRequestException;
+
+	/**
+	 * Returns the number of leading requests that can be written with one statement per table within the database's
+	 * statement size and parameter limits, or 1 if the first must be written alone. Inserts with the same parameter
+	 * names combine into a multi-row insert. Deletes by the same parameter names, and updates by the same resource id
+	 * names setting the same values, combine into a statement with an IN predicate.
+	 */
+	public int getBulkWriteRowCount(final SqlResourceMetaData metaData, final List<Request> requests);
+}
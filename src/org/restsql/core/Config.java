@@ -20,55 +20,106 @@ import org.apache.commons.logging.LogFactory;
 public class Config {
 
 	public static final String DEFAULT_AUTHORIZER = "org.restsql.security.impl.AuthorizerImpl";
+	public static final String DEFAULT_BULK_LOADER = "org.restsql.core.impl.mysql.MySqlBulkLoader";
 	public static final String DEFAULT_COLUMN_METADATA = "org.restsql.core.impl.mysql.MySqlColumnMetaData";
 	public static final String DEFAULT_CONNECTION_FACTORY = "org.restsql.core.impl.ConnectionFactoryImpl";
+	public static final String DEFAULT_DATABASE_BULK_INSERT_MAX_ROWS = "1000";
+	public static final String DEFAULT_DATABASE_BULK_INSERT_MAX_STATEMENT_SIZE = "1048576";
+	public static final String DEFAULT_DATABASE_BULK_KEYS_MAX_ROWS = "1000";
+	public static final String DEFAULT_DATABASE_BULK_LOAD = "false";
+	public static final String DEFAULT_DATABASE_CHUNKED_WRITE_PAUSE = "0";
+	public static final String DEFAULT_DATABASE_CHUNKED_WRITE_SIZE = "0";
 	public static final String DEFAULT_DATABASE_DRIVER_CLASSNAME = "com.mysql.jdbc.Driver";
 	public static final String DEFAULT_DATABASE_PASSWORD = "root";
 	public static final String DEFAULT_DATABASE_URL = "jdbc:mysql://localhost:3306/";
 	public static final String DEFAULT_DATABASE_USER = "root";
 	public static final String DEFAULT_HTTP_CACHE_CONTROL = "no-cache, no-transform";
 	public static final String DEFAULT_HTTP_REQUEST_ATTRIBUTES = "org.restsql.core.impl.HttpRequestAttributesImpl";
+	public static final String DEFAULT_HTTP_SERVER_TIMING = "false";
 	public static final String DEFAULT_JAVA_LOGGING_CONFIG = "resources/properties/default-logging.properties";
 	public static final String DEFAULT_LOG4J_CONFIG = "resources/properties/default-log4j.properties";
 	public static final String DEFAULT_LOGGING_DIR = "/var/log/restsql";
+	public static final String DEFAULT_LOGGING_ASYNC = "true";
+	public static final String DEFAULT_LOGGING_ASYNC_BUFFER_SIZE = "8192";
+	public static final String DEFAULT_LOGGING_ASYNC_FULL_POLICY = "block";
 	public static final String DEFAULT_LOGGING_FACILITY = "log4j";
+	public static final String DEFAULT_LOGGING_SLOW_QUERY_BUFFER_SIZE = "100";
+	public static final String DEFAULT_LOGGING_SLOW_QUERY_EXPLAIN = "false";
+	public static final String DEFAULT_LOGGING_SLOW_QUERY_MAX_PER_MINUTE = "60";
+	public static final String DEFAULT_LOGGING_SLOW_QUERY_THRESHOLD = "1000";
+	public static final String DEFAULT_LOGGING_TRACE_MAX_BODY_LENGTH = "65536";
+	public static final String DEFAULT_LOGGING_TRACE_SAMPLE_RATE = "1";
+	public static final String DEFAULT_METADATA_SNAPSHOT_REVALIDATE = "true";
+	public static final String DEFAULT_METADATA_SNAPSHOT_REVALIDATE_INTERVAL = "86400";
 	public static final String DEFAULT_MONITORING_GANGLIA_PORT = "8649";
 	public static final String DEFAULT_MONITORING_GANGLIA_UDP_MODE = "unicast";
 	public static final String DEFAULT_MONITORING_GANGLIA_TTL = "1";
 	public static final String DEFAULT_MONITORING_GANGLIA_FREQUENCY = "1";
 	public static final String DEFAULT_MONITORING_GRAPHITE_FREQUNCY = "1";
 	public static final String DEFAULT_MONITORING_MANAGER = "org.restsql.service.monitoring.MonitoringManagerImpl";
+	public static final String DEFAULT_MONITORING_RESOURCES_MAX = "250";
+	public static final String DEFAULT_MONITORING_STATEMENTS = "true";
+	public static final String DEFAULT_MONITORING_STATEMENTS_MAX = "1000";
 	public static final String DEFAULT_REQUEST_FACTORY = "org.restsql.core.impl.RequestFactoryImpl";
 	public static final String DEFAULT_REQUEST_LOGGER = "org.restsql.core.impl.RequestLoggerImpl";
 	public static final String DEFAULT_REQUEST_DESERIALIZER_FACTORY = "org.restsql.core.impl.serial.RequestDeserializerFactoryImpl";
+	public static final String DEFAULT_REQUEST_STREAMING_BATCH_SIZE = "1000";
+	public static final String DEFAULT_REQUEST_STREAMING_THRESHOLD = "1048576";
 	public static final String DEFAULT_REQUEST_USE_XML_SCHEMA = "false";
 	public static final String DEFAULT_RESPONSE_SERIALIZER_FACTORY = "org.restsql.core.impl.serial.ResponseSerializerFactoryImpl";
 	public static final String DEFAULT_RESPONSE_USE_XML_DIRECTIVE = "false";
 	public static final String DEFAULT_RESPONSE_USE_XML_SCHEMA = "false";
 	public static final String DEFAULT_RESOURCE_DEFINITION_GENERATOR = "org.restsql.tools.impl.mysql.MySqlResourceDefinitionGenerator";
 	public static final String DEFAULT_RESTSQL_PROPERTIES = "/resources/properties/default-restsql.properties";
+	public static final String DEFAULT_SECURITY_PRIVILEGES_CACHE_TTL = "5";
+	public static final String DEFAULT_SECURITY_PRIVILEGES_RELOAD_INTERVAL = "10";
 	public static final String DEFAULT_SEQUENCE_MANAGER = "org.restsql.core.impl.mysql.MySqlSequenceManager";
 	public static final String DEFAULT_SQL_BUILDER = "org.restsql.core.impl.mysql.MySqlSqlBuilder";
 	public static final String DEFAULT_SQL_RESOURCE_FACTORY = "org.restsql.core.impl.SqlResourceFactoryImpl";
 	public static final String DEFAULT_SQL_RESOURCE_METADATA = "org.restsql.core.impl.mysql.MySqlSqlResourceMetaData";
 	public static final String DEFAULT_SQLRESOURCES_DIR = "/resources/xml/sqlresources";
+	public static final String DEFAULT_SQLRESOURCES_WATCH = "false";
+	public static final String DEFAULT_SQLRESOURCES_WATCH_DELAY = "500";
 	public static final String DEFAULT_TABLE_METADATA = "org.restsql.core.impl.TableMetaDataImpl";
+	public static final String DEFAULT_TRIGGERS_AFTER_ASYNC = "false";
+	public static final String DEFAULT_TRIGGERS_AFTER_ASYNC_QUEUE_SIZE = "1000";
+	public static final String DEFAULT_TRIGGERS_AFTER_ASYNC_THREADS = "2";
 	public static final String DEFAULT_WRITE_RESPONSE = "org.restsql.core.impl.WriteResponseImpl";
 
 	public static final String KEY_AUTHORIZER = "org.restsql.security.Authorizer";
+	public static final String KEY_BULK_LOADER = "org.restsql.core.BulkLoader";
 	public static final String KEY_COLUMN_METADATA = "org.restsql.core.ColumnMetaData";
 	public static final String KEY_CONNECTION_FACTORY = "org.restsql.core.Factory.Connection";
+	public static final String KEY_DATABASE_BULK_INSERT_MAX_ROWS = "database.bulkInsert.maxRows";
+	public static final String KEY_DATABASE_BULK_INSERT_MAX_STATEMENT_SIZE = "database.bulkInsert.maxStatementSize";
+	public static final String KEY_DATABASE_BULK_KEYS_MAX_ROWS = "database.bulkKeys.maxRows";
+	public static final String KEY_DATABASE_BULK_LOAD = "database.bulkLoad";
+	public static final String KEY_DATABASE_CHUNKED_WRITE_PAUSE = "database.chunkedWrite.pause";
+	public static final String KEY_DATABASE_CHUNKED_WRITE_SIZE = "database.chunkedWrite.size";
 	public static final String KEY_DATABASE_DRIVER_CLASSNAME = "database.driverClassName";
 	public static final String KEY_DATABASE_PASSWORD = "database.password";
 	public static final String KEY_DATABASE_URL = "database.url";
 	public static final String KEY_DATABASE_USER = "database.user";
 	public static final String KEY_HTTP_CACHE_CONTROL = "http.response.cacheControl";
 	public static final String KEY_HTTP_REQUEST_ATTRIBUTES = "org.restsql.core.HttpRequestAttributes";
+	public static final String KEY_HTTP_SERVER_TIMING = "http.response.serverTiming";
 	public static final String KEY_JAVA_LOGGING_CONFIG = "java.util.logging.config.file";
 	public static final String KEY_LOG4J_CONFIG = "log4j.configuration";
+	public static final String KEY_LOGGING_ASYNC = "logging.async";
+	public static final String KEY_LOGGING_ASYNC_BUFFER_SIZE = "logging.async.bufferSize";
+	public static final String KEY_LOGGING_ASYNC_FULL_POLICY = "logging.async.fullPolicy";
 	public static final String KEY_LOGGING_CONFIG = "logging.config";
 	public static final String KEY_LOGGING_DIR = "logging.dir";
 	public static final String KEY_LOGGING_FACILITY = "logging.facility";
+	public static final String KEY_LOGGING_SLOW_QUERY_BUFFER_SIZE = "logging.slowQuery.bufferSize";
+	public static final String KEY_LOGGING_SLOW_QUERY_EXPLAIN = "logging.slowQuery.explain";
+	public static final String KEY_LOGGING_SLOW_QUERY_MAX_PER_MINUTE = "logging.slowQuery.maxPerMinute";
+	public static final String KEY_LOGGING_SLOW_QUERY_THRESHOLD = "logging.slowQuery.threshold";
+	public static final String KEY_LOGGING_TRACE_MAX_BODY_LENGTH = "logging.trace.maxBodyLength";
+	public static final String KEY_LOGGING_TRACE_SAMPLE_RATE = "logging.trace.sampleRate";
+	public static final String KEY_METADATA_SNAPSHOT_DIR = "metadata.snapshot.dir";
+	public static final String KEY_METADATA_SNAPSHOT_REVALIDATE = "metadata.snapshot.revalidate";
+	public static final String KEY_METADATA_SNAPSHOT_REVALIDATE_INTERVAL = "metadata.snapshot.revalidate.interval";
 	public static final String KEY_MONITORING_GANGLIA_HOST = "monitoring.ganglia.host";
 	public static final String KEY_MONITORING_GANGLIA_PORT = "monitoring.ganglia.port";
 	public static final String KEY_MONITORING_GANGLIA_UDP_MODE = "monitoring.ganglia.udpMode";
@@ -79,9 +130,14 @@ public class Config {
 	public static final String KEY_MONITORING_GRAPHITE_PREFIX = "monitoring.graphite.prefix";
 	public static final String KEY_MONITORING_GRAPHITE_FREQUENCY = "monitoring.graphite.reportingRrequency";
 	public static final String KEY_MONITORING_MANAGER = "org.restsql.service.monitoring.MonitoringManager";
+	public static final String KEY_MONITORING_RESOURCES_MAX = "monitoring.resources.max";
+	public static final String KEY_MONITORING_STATEMENTS = "monitoring.statements";
+	public static final String KEY_MONITORING_STATEMENTS_MAX = "monitoring.statements.max";
 	public static final String KEY_REQUEST_FACTORY = "org.restsql.core.Factory.RequestFactory";
 	public static final String KEY_REQUEST_LOGGER = "org.restsql.core.RequestLogger";
 	public static final String KEY_REQUEST_DESERIALIZER_FACTORY = "org.restsql.core.Factory.RequestDeserializerFactory";
+	public static final String KEY_REQUEST_STREAMING_BATCH_SIZE = "request.streaming.batchSize";
+	public static final String KEY_REQUEST_STREAMING_THRESHOLD = "request.streaming.threshold";
 	public static final String KEY_REQUEST_USE_XML_SCHEMA = "request.useXmlDirective";
 	public static final String KEY_RESOURCE_DEFINTION_GENERATOR = "org.restsql.tools.ResourceDefinitionGenerator";
 	public static final String KEY_RESPONSE_SERIALIZER_FACTORY = "org.restsql.core.Factory.ResponseSerializerFactory";
@@ -90,12 +146,19 @@ public class Config {
 	public static final String KEY_RESTSQL_PROPERTIES = "org.restsql.properties";
 	public static final String KEY_SEQUENCE_MANAGER = "org.restsql.core.SequenceManager";
 	public static final String KEY_SECURITY_PRIVILEGES = "security.privileges";
+	public static final String KEY_SECURITY_PRIVILEGES_CACHE_TTL = "security.privileges.cacheTtl";
+	public static final String KEY_SECURITY_PRIVILEGES_RELOAD_INTERVAL = "security.privileges.reloadInterval";
 	public static final String KEY_SQL_BUILDER = "org.restsql.core.SqlBuilder";
 	public static final String KEY_SQL_RESOURCE_FACTORY = "org.restsql.core.Factory.SqlResourceFactory";
 	public static final String KEY_SQL_RESOURCE_METADATA = "org.restsql.core.SqlResourceMetaData";
 	public static final String KEY_SQLRESOURCES_DIR = "sqlresources.dir";
+	public static final String KEY_SQLRESOURCES_WATCH = "sqlresources.watch";
+	public static final String KEY_SQLRESOURCES_WATCH_DELAY = "sqlresources.watch.delay";
 	public static final String KEY_STARTUP_LOGGING_CONSOLE_ENABLED = "org.restsql.startupLogging.consoleEnabled";
 	public static final String KEY_TABLE_METADATA = "org.restsql.core.TableMetaData";
+	public static final String KEY_TRIGGERS_AFTER_ASYNC = "triggers.after.async";
+	public static final String KEY_TRIGGERS_AFTER_ASYNC_QUEUE_SIZE = "triggers.after.async.queueSize";
+	public static final String KEY_TRIGGERS_AFTER_ASYNC_THREADS = "triggers.after.async.threads";
 	public static final String KEY_TRIGGERS_CLASSPATH = "triggers.classpath";
 	public static final String KEY_TRIGGERS_DEFINITION = "triggers.definition";
 	public static final String KEY_WRITE_RESPONSE = "org.restsql.core.WriteResponse";
@@ -103,6 +166,7 @@ public class Config {
 	public static final String NAME_LOGGER_ACCESS = "org.restsql.access";
 	public static final String NAME_LOGGER_ERROR = "org.restsql.error";
 	public static final String NAME_LOGGER_INTERNAL = "org.restsql.internal";
+	public static final String NAME_LOGGER_SLOW_QUERY = "org.restsql.slowquery";
 	public static final String NAME_LOGGER_TRACE = "org.restsql.trace";
 
 	/** The internal logger, for software troubleshooting **/
@@ -0,0 +1,16 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+/**
+ * Optional extension of {@link SqlBuilder} for capturing execution plans. When the configured SQL builder implements
+ * this interface and slow query explain is enabled, the slow query log includes the plan of each slow statement.
+ * Builders that do not implement it log slow statements without a plan.
+ * 
+ * @author Mark Sawers
+ * @see SqlBuilder
+ */
+public interface ExplainSqlBuilder extends SqlBuilder {
+
+	/** Creates statement that returns the execution plan of a prepared statement, with the same parameters. */
+	public String buildExplainSql(final String preparedStatement);
+}
@@ -18,6 +18,11 @@ import org.restsql.core.sqlresource.SqlResourceDefinition;
  */
 public class Factory extends AbstractFactory {
 
+	/** Returns singleton BulkLoader. Configurable implementation class. */
+	public static BulkLoader getBulkLoader() {
+		return (BulkLoader) getInstance(Config.KEY_BULK_LOADER, Config.DEFAULT_BULK_LOADER);
+	}
+
 	/** Creates request for child row with blank params. Configurable implementation class. */
 	public static Request getChildRequest(final Request parentRequest) {
 		final RequestFactory requestFactory = (RequestFactory) getInstance(Config.KEY_REQUEST_FACTORY,
@@ -196,8 +201,8 @@ public class Factory extends AbstractFactory {
 	}
 
 	/**
-	 * Reloads definition from the source using configured SqlResourceFactory. This operation is not thread safe and
-	 * should be run in development mode only.
+	 * Reloads definition from the source using configured SqlResourceFactory. The default factory replaces the
+	 * resource atomically once the new one is built.
 	 * 
 	 * @param resName resource name
 	 * @throws SqlResourceFactoryException if the definition could not be marshalled
@@ -15,6 +15,7 @@ public class InvalidRequestException extends SqlResourceException {
 	public static final String MESSAGE_OFFSET_REQUIRED = Request.PARAM_NAME_OFFSET + " parameter required";
 	public static final String MESSAGE_READONLY_PARAM = "Column %s is read-only and may not be a query parameter or updated";
 	public static final String MESSAGE_CANNOT_BASE64DECODE = "Column %s is a binary type and string value cannot be base64 decoded";
+	public static final String MESSAGE_UPSERT_UNSUPPORTED = "Upsert is not supported for table %s";
 	
 	private static final long serialVersionUID = 1L;
 
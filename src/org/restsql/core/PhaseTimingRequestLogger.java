@@ -0,0 +1,66 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+/**
+ * Optional extension of {@link RequestLogger} that times request processing phases and counts rows. When the
+ * configured request logger implements this interface, the framework records the phase times and row counts for
+ * monitoring, the access log and the Server-Timing response header. Loggers that do not implement it only receive the
+ * {@link RequestLogger} calls, and requests are then monitored by latency, response size and errors alone.
+ * 
+ * @author Mark Sawers
+ * @see RequestLogger
+ */
+public interface PhaseTimingRequestLogger extends RequestLogger {
+	/**
+	 * Adds to the number of chunks that a chunked delete or update of the request executed. Used by the framework.
+	 */
+	public void addChunkCount(final int chunkCount);
+
+	/**
+	 * Adds elapsed time to a processing phase. Phases may be timed more than once per request, for example for each row
+	 * of a multi-row write, and the times accumulate. Used by the framework.
+	 * 
+	 * @param phase processing phase
+	 * @param nanos elapsed time in nanoseconds
+	 */
+	public void addPhaseTime(final Phase phase, final long nanos);
+
+	/**
+	 * Adds to the number of rows read or affected by the request. Used by the framework.
+	 */
+	public void addRowCount(final int rowCount);
+
+	/**
+	 * Returns number of chunks executed by chunked deletes and updates of the request, or 0 if none were chunked.
+	 */
+	public int getChunkCount();
+
+	/**
+	 * Returns accumulated time in nanoseconds for each processing phase, indexed by {@link Phase#ordinal()}.
+	 */
+	public long[] getPhaseTimes();
+
+	/**
+	 * Returns number of rows read or affected by the request. For hierarchical reads this is the number of parent rows.
+	 */
+	public int getRowCount();
+
+	/**
+	 * Request processing phases, timed for monitoring, the access log and the Server-Timing response header.
+	 */
+	public enum Phase {
+		AUTHORIZATION("auth"), CONNECTION("conn"), EXECUTION("db"), SERIALIZATION("ser"), SQL_BUILD("sql"), TRIGGERS(
+				"trig");
+
+		private final String metricName;
+
+		private Phase(final String metricName) {
+			this.metricName = metricName;
+		}
+
+		/** Returns short name used in metric names, log entries and the Server-Timing header. */
+		public String getMetricName() {
+			return metricName;
+		}
+	}
+}
@@ -78,7 +78,7 @@ public interface Request {
 	 * @author Mark Sawers
 	 */
 	public enum Type {
-		DELETE, INSERT, SELECT, UPDATE;
+		DELETE, INSERT, SELECT, UPDATE, UPSERT;
 
 		public static Type fromHttpMethod(final String method) {
 			Type type;
@@ -6,6 +6,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.restsql.core.RequestValue.Operator;
 import org.restsql.core.impl.MediaTypeParser;
@@ -16,16 +17,44 @@ import org.restsql.core.impl.MediaTypeParser;
  * @author Mark Sawers
  */
 public class RequestUtil {
+	/** Maximum number of distinct Content-Type/Accept header values kept in the negotiation cache. */
+	private static final int MEDIA_TYPE_CACHE_MAX_SIZE = 256;
+
+	/** Header values clients commonly send verbatim, negotiated once at class load. */
+	private static final String[] COMMON_MEDIA_TYPE_HEADERS = { "application/x-www-form-urlencoded",
+			"application/x-www-form-urlencoded; charset=UTF-8", "application/json",
+			"application/json; charset=UTF-8", "application/json;charset=UTF-8", "application/xml",
+			"application/xml; charset=UTF-8", "application/xml;charset=UTF-8", "text/xml", "*/*",
+			"application/json, text/plain, */*", "application/json, text/javascript, */*; q=0.01" };
+
 	private static Collection<String> supportedMediaTypes = new ArrayList<String>();
 
+	/** Immutable negotiation results for the common header values. Values are "" when nothing matched. */
+	private static final Map<String, String> commonMediaTypeMatches;
+
+	/** Bounded cache of negotiation results for all other header values. Values are "" when nothing matched. */
+	private static final Map<String, String> mediaTypeMatchCache = new ConcurrentHashMap<String, String>(
+			MEDIA_TYPE_CACHE_MAX_SIZE);
+
 	// Note that the default media type, application/xml, must be the **LAST** one added!
 	static {
 		supportedMediaTypes.add("application/x-www-form-urlencoded");
 		supportedMediaTypes.add("application/json");
+		supportedMediaTypes.add("application/x-ndjson");
+		supportedMediaTypes.add("text/csv");
 		supportedMediaTypes.add("application/xml");
+
+		final Map<String, String> matches = new HashMap<String, String>(COMMON_MEDIA_TYPE_HEADERS.length * 2);
+		for (final String header : COMMON_MEDIA_TYPE_HEADERS) {
+			matches.put(header, MediaTypeParser.bestMatch(supportedMediaTypes, header));
+		}
+		commonMediaTypeMatches = matches;
 	}
 
-	/** Converts short form of media type to the proper internet standard, e.g. json to application/json. */
+	/**
+	 * Converts short form of media type to the proper internet standard, e.g. json to application/json or csv to
+	 * text/csv. The compact JSON layouts are json-rows and json-columns.
+	 */
 	public static String convertToStandardInternetMediaType(final String mediaType) {
 		if (mediaType == null) {
 			return null;
@@ -33,6 +62,12 @@ public class RequestUtil {
 			return "application/xml";
 		} else if (mediaType.equalsIgnoreCase("json")) {
 			return "application/json";
+		} else if (mediaType.equalsIgnoreCase("csv")) {
+			return "text/csv";
+		} else if (mediaType.equalsIgnoreCase("json-rows")) {
+			return "application/json; layout=rows";
+		} else if (mediaType.equalsIgnoreCase("json-columns")) {
+			return "application/json; layout=columns";
 		} else {
 			return mediaType;
 		}
@@ -69,7 +104,7 @@ public class RequestUtil {
 		String requestMediaType = null;
 		if (contentMediaType != null && contentMediaType.length() > 0) {
 			try {
-				requestMediaType = MediaTypeParser.bestMatch(supportedMediaTypes, contentMediaType);
+				requestMediaType = getBestMatch(contentMediaType);
 				if (requestMediaType == null || requestMediaType.length() == 0) {
 					requestMediaType = contentMediaType;
 				}
@@ -85,8 +120,8 @@ public class RequestUtil {
 	 * the accept media type. The accept media type can be single mime-type or an Accept header string with multiple
 	 * mime-types, some possibly with quality factors. If the accept media type is not present, uses the request media
 	 * type, or if it is null or form url encoded, then returns the default media type,
-	 * {@link HttpRequestAttributes#DEFAULT_MEDIA_TYPE}. Note: The content parameter value overrides the accept media
-	 * type!
+	 * {@link HttpRequestAttributes#DEFAULT_MEDIA_TYPE}, or if it is newline-delimited JSON or CSV, then returns JSON.
+	 * Note: The content parameter value overrides the accept media type!
 	 */
 	public static String getResponseMediaType(final List<RequestValue> params, final String requestMediaType,
 			final String acceptMediaType) {
@@ -108,13 +143,15 @@ public class RequestUtil {
 		}
 		if (responseMediaType == null) {
 			if (acceptMediaType != null && acceptMediaType.length() > 0) {
-				responseMediaType = MediaTypeParser.bestMatch(supportedMediaTypes, acceptMediaType);
+				responseMediaType = getBestMatch(acceptMediaType);
 				if (responseMediaType == null || responseMediaType.length() == 0) {
 					responseMediaType = acceptMediaType;
 				}
 			} else if (requestMediaType == null
 					|| requestMediaType.equals("application/x-www-form-urlencoded")) {
 				responseMediaType = HttpRequestAttributes.DEFAULT_MEDIA_TYPE;
+			} else if (requestMediaType.equals("application/x-ndjson") || requestMediaType.equals("text/csv")) {
+				responseMediaType = "application/json";
 			} else {
 				responseMediaType = requestMediaType;
 			}
@@ -169,4 +206,77 @@ public class RequestUtil {
 			}
 		}
 	}
+
+	// Private utils
+
+	/**
+	 * Returns the best supported media type for the Content-Type or Accept header value, or "" if none matches. Results
+	 * are looked up first in the precomputed common values, then in the bounded cache, and only parsed by
+	 * {@link MediaTypeParser#bestMatch(Collection, String)} on a miss. Header values that fail to parse are not cached,
+	 * so the parser exception still reaches the caller. A JSON match keeps the header's layout parameter, see
+	 * {@link #getJsonLayoutMediaType(String)}.
+	 */
+	private static String getBestMatch(final String header) {
+		String match = commonMediaTypeMatches.get(header);
+		if (match == null) {
+			match = mediaTypeMatchCache.get(header);
+			if (match == null) {
+				match = MediaTypeParser.bestMatch(supportedMediaTypes, header);
+				if (match.equals("application/json") && header.indexOf("layout=") > 0) {
+					match = getJsonLayoutMediaType(header);
+				}
+				if (mediaTypeMatchCache.size() >= MEDIA_TYPE_CACHE_MAX_SIZE) {
+					// Unusual header churn, start over rather than track recency
+					mediaTypeMatchCache.clear();
+				}
+				mediaTypeMatchCache.put(header, match);
+			}
+		}
+		return match;
+	}
+
+	/**
+	 * Returns the compact JSON media type for the layout parameter, rows or columns, of the header's application/json
+	 * range with the highest quality, or application/json if it has none. Of ranges with the same quality, the first
+	 * with a layout wins, as the more specific. Ranges with a quality of 0 are not acceptable and are skipped.
+	 */
+	private static String getJsonLayoutMediaType(final String header) {
+		String bestMediaType = "application/json";
+		float bestQuality = 0;
+		boolean bestHasLayout = false;
+		for (final String range : header.split(",")) {
+			final String[] parts = range.split(";");
+			if (parts[0].trim().equalsIgnoreCase("application/json")) {
+				String mediaType = "application/json";
+				float quality = 1;
+				for (int i = 1; i < parts.length; i++) {
+					final String param = parts[i].replace(" ", "");
+					if (param.equalsIgnoreCase("layout=rows")) {
+						mediaType = "application/json; layout=rows";
+					} else if (param.equalsIgnoreCase("layout=columns")) {
+						mediaType = "application/json; layout=columns";
+					} else if (param.startsWith("q=") || param.startsWith("Q=")) {
+						quality = getQuality(param.substring(2));
+					}
+				}
+				final boolean hasLayout = mediaType.length() > "application/json".length();
+				if (quality > bestQuality || (quality == bestQuality && hasLayout && !bestHasLayout)) {
+					bestMediaType = mediaType;
+					bestQuality = quality;
+					bestHasLayout = hasLayout;
+				}
+			}
+		}
+		return bestQuality > 0 ? bestMediaType : "application/json";
+	}
+
+	/** Returns media range quality, or 1 if it is not a number from 0 to 1, as for the media type parser. */
+	private static float getQuality(final String value) {
+		try {
+			final float quality = Float.parseFloat(value);
+			return quality < 0 || quality > 1 ? 1 : quality;
+		} catch (final NumberFormatException exception) {
+			return 1;
+		}
+	}
 }
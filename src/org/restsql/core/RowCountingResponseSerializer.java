@@ -0,0 +1,29 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional extension of {@link ResponseSerializer} that counts the rows of flat select results as it converts them.
+ * When the serializer for the response media type implements this interface, the framework records the rows read for
+ * monitoring, statement statistics and the slow query log. Otherwise rows of flat reads with a media type are not
+ * counted.
+ * 
+ * @author Mark Sawers
+ * @see ResponseSerializer
+ */
+public interface RowCountingResponseSerializer extends ResponseSerializer {
+
+	/**
+	 * Converts flat select results to a string, setting the number of rows converted.
+	 * 
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param rowCount set to the number of rows
+	 * @return string
+	 */
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet,
+			final AtomicInteger rowCount) throws SQLException;
+}
@@ -27,6 +27,8 @@ public interface SqlBuilder {
 	 */
 	public static class SqlStruct {
 		private final StringBuilder clause, main, preparedClause, preparedStatement, statement;
+		private List<ColumnMetaData> generatedKeyColumns;
+		private boolean generatedKeysReturned;
 		private StringBuilder preparedMain;
 		private final List<Object> preparedValues;
 
@@ -69,6 +71,11 @@ public interface SqlBuilder {
 			return clause;
 		}
 
+		/** Returns sequence columns whose generated values an insert returns, or null if none. */
+		public List<ColumnMetaData> getGeneratedKeyColumns() {
+			return generatedKeyColumns;
+		}
+
 		public StringBuilder getMain() {
 			return main;
 		}
@@ -96,6 +103,25 @@ public interface SqlBuilder {
 		public boolean isClauseEmpty() {
 			return clause.length() == 0;
 		}
+
+		/**
+		 * Returns true if the statement itself returns the generated keys as a result set, for example with a
+		 * RETURNING clause, or false if they are retrieved with JDBC generated keys.
+		 */
+		public boolean isGeneratedKeysReturned() {
+			return generatedKeysReturned;
+		}
+
+		/**
+		 * Sets sequence columns whose generated values an insert returns.
+		 * 
+		 * @param columns sequence columns, in the order returned
+		 * @param returned true if the statement returns them as a result set, false to use JDBC generated keys
+		 */
+		public void setGeneratedKeyColumns(final List<ColumnMetaData> columns, final boolean returned) {
+			generatedKeyColumns = columns;
+			generatedKeysReturned = returned;
+		}
 	}
 
 }
\ No newline at end of file
@@ -34,9 +34,9 @@ public interface SqlResource {
 	public SqlResourceMetaData getMetaData();
 
 	/**
-	 * Returns triggers classes.
+	 * Returns triggers, the resource's own followed by those defined for all resources, in execution order.
 	 * 
-	 * @return list of trigger classes
+	 * @return immutable list of triggers
 	 */
 	public List<Trigger> getTriggers();
 
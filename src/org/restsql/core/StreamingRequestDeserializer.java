@@ -0,0 +1,24 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core;
+
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Optional extension of {@link RequestDeserializer} for large request bodies. When the deserializer for the request's
+ * media type implements this interface, bodies over the streaming threshold are parsed as they are read from the
+ * request stream. Otherwise the body is read into a string first.
+ * 
+ * @author Mark Sawers
+ * @see RequestDeserializer
+ */
+public interface StreamingRequestDeserializer extends RequestDeserializer {
+
+	/**
+	 * Executes write request, parsing the body as it is read. Rows are written in batches as they are parsed, so
+	 * memory use does not grow with the size of the body.
+	 */
+	public WriteResponse execWrite(HttpRequestAttributes httpAttributes, final Request.Type requestType,
+			final List<RequestValue> resIds, final SqlResource sqlResource, final Reader requestBody,
+			RequestLogger requestLogger) throws SqlResourceException;
+}
@@ -10,10 +10,18 @@ import java.util.Set;
  * any auto-numbered column(s) values (using the column's sequence function). The response values are ordered by column
  * number in a set. Child rows are placed in value named with the child table (or alias), in a list of set structure.
  * The object may contain multiple responses for HTTP requests that include bodies with multiple write operations.
+ * Responses to line-delimited bodies instead summarize the lines read and failed, with the errors of the first
+ * {@link #MAX_LINE_ERRORS} failures, and do not include rows.
  * 
  * @author Mark Sawers
  */
 public class WriteResponse {
+	/** Maximum number of line errors kept. */
+	public static final int MAX_LINE_ERRORS = 100;
+
+	private List<LineError> lineErrors;
+	private int linesFailed;
+	private int linesRead;
 	private List<Set<ResponseValue>> rows;
 
 	private int rowsAffected;
@@ -22,6 +30,28 @@ public class WriteResponse {
 	public WriteResponse() {
 	}
 
+	/**
+	 * Adds error for lines of a line-delimited body that were not written. For framework use.
+	 * 
+	 * @param line first line number, starting at 1
+	 * @param lineCount number of lines failed
+	 * @param message error message
+	 */
+	public void addLineError(final int line, final int lineCount, final String message) {
+		if (lineErrors == null) {
+			lineErrors = new ArrayList<LineError>();
+		}
+		if (lineErrors.size() < MAX_LINE_ERRORS) {
+			lineErrors.add(new LineError(line, message));
+		}
+		linesFailed += lineCount;
+	}
+
+	/** Adds to lines read from a line-delimited body. For framework use. */
+	public void addLinesRead(final int linesRead) {
+		this.linesRead += linesRead;
+	}
+
 	/** Adds request result. For framework use. */
 	public void addRow(final Set<ResponseValue> values) {
 		if (rows == null) {
@@ -44,6 +74,28 @@ public class WriteResponse {
 			rows.addAll(response.getRows());
 		}
 		rowsAffected += response.getRowsAffected();
+		linesRead += response.getLinesRead();
+		linesFailed += response.getLinesFailed();
+		if (response.getLineErrors() != null) {
+			for (final LineError error : response.getLineErrors()) {
+				addLineError(error.getLine(), 0, error.getMessage());
+			}
+		}
+	}
+
+	/** Returns errors of lines not written, at most {@link #MAX_LINE_ERRORS}, or null if there are none. */
+	public List<LineError> getLineErrors() {
+		return lineErrors;
+	}
+
+	/** Returns number of lines of a line-delimited body that were not written. */
+	public int getLinesFailed() {
+		return linesFailed;
+	}
+
+	/** Returns number of lines read from a line-delimited body, or 0 if the body was not line-delimited. */
+	public int getLinesRead() {
+		return linesRead;
 	}
 
 	/** Returns inserted results, otherwise empty (non-null). */
@@ -55,4 +107,24 @@ public class WriteResponse {
 	public int getRowsAffected() {
 		return rowsAffected;
 	}
+
+	/** Error for lines of a line-delimited body. */
+	public static class LineError {
+		private final int line;
+		private final String message;
+
+		public LineError(final int line, final String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		/** Returns line number, starting at 1. */
+		public int getLine() {
+			return line;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.restsql.core.BulkLoader;
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.TableMetaData;
+
+/**
+ * Streams rows to the database as UTF-8 text lines, one per row, in the dialect's load format. The load runs in its own
+ * transaction so that a failure part way through, including an error reading the rows, leaves the table unchanged.
+ *
+ * @author Mark Sawers
+ */
+public abstract class AbstractBulkLoader implements BulkLoader {
+
+	@Override
+	public int load(final Connection connection, final TableMetaData table, final List<ColumnMetaData> columns,
+			final RowSource rows) throws SQLException {
+		final String sql = buildLoadSql(table, columns);
+		final boolean autoCommit = connection.getAutoCommit();
+		connection.setAutoCommit(false);
+		try {
+			final int rowsLoaded = executeLoad(connection, sql, new RowInputStream(columns, rows));
+			connection.commit();
+			return rowsLoaded;
+		} catch (final SQLException exception) {
+			connection.rollback();
+			throw exception;
+		} finally {
+			connection.setAutoCommit(autoCommit);
+		}
+	}
+
+	// Protected methods for database-specific implementation
+
+	/** Appends value to the row's line in the load format, escaping it as needed. */
+	protected abstract void appendValue(final ColumnMetaData column, final Object value, final StringBuilder line);
+
+	/** Returns load statement reading the columns from the client's stream. */
+	protected abstract String buildLoadSql(final TableMetaData table, final List<ColumnMetaData> columns);
+
+	/** Executes load statement, streaming the input, and returns the number of rows loaded. */
+	protected abstract int executeLoad(final Connection connection, final String sql, final InputStream input)
+			throws SQLException;
+
+	/** Appends bytes as hexadecimal digits. */
+	protected void appendHex(final byte[] bytes, final StringBuilder line) {
+		for (final byte b : bytes) {
+			line.append(Character.forDigit((b >> 4) & 0xF, 16));
+			line.append(Character.forDigit(b & 0xF, 16));
+		}
+	}
+
+	/** Renders the rows as UTF-8 lines, pulling the next row when the current one has been read. */
+	private class RowInputStream extends InputStream {
+		private byte[] buffer = new byte[0];
+		private final List<ColumnMetaData> columns;
+		private final StringBuilder line = new StringBuilder(200);
+		private int position;
+		private final RowSource rows;
+
+		RowInputStream(final List<ColumnMetaData> columns, final RowSource rows) {
+			this.columns = columns;
+			this.rows = rows;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (!fill()) {
+				return -1;
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			} else if (!fill()) {
+				return -1;
+			}
+			final int count = Math.min(length, buffer.length - position);
+			System.arraycopy(buffer, position, bytes, offset, count);
+			position += count;
+			return count;
+		}
+
+		/** Renders the next row if the buffer has been read, returning false after the last row. */
+		private boolean fill() throws IOException {
+			while (position >= buffer.length) {
+				final Object[] values = rows.next();
+				if (values == null) {
+					return false;
+				}
+				line.setLength(0);
+				for (int i = 0; i < values.length; i++) {
+					if (i > 0) {
+						line.append(',');
+					}
+					appendValue(columns.get(i), values[i], line);
+				}
+				line.append('\n');
+				buffer = line.toString().getBytes("UTF-8");
+				position = 0;
+			}
+			return true;
+		}
+	}
+}
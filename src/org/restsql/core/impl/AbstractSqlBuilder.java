@@ -6,30 +6,142 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.restsql.core.BinaryObject;
+import org.restsql.core.BulkSqlBuilder;
 import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
+import org.restsql.core.ExplainSqlBuilder;
 import org.restsql.core.InvalidRequestException;
 import org.restsql.core.Request;
 import org.restsql.core.Request.Type;
 import org.restsql.core.RequestValue;
 import org.restsql.core.RequestValue.Operator;
-import org.restsql.core.SqlBuilder;
 import org.restsql.core.SqlResourceMetaData;
 import org.restsql.core.TableMetaData;
 
 /**
- * Builds SQL for an operation on a SQL Resource.
+ * Builds SQL for an operation on a SQL Resource. Inserts of many rows with the same columns are collapsed into
+ * multi-row inserts, chunked by the configured row and statement size limits and the database's prepared parameter
+ * limit. Deletes and updates of many rows by key are collapsed into one statement with an IN predicate, chunked the
+ * same way. Parameter-based deletes and updates are chunked by primary key range.
  * 
  * @author Mark Sawers
  */
 
-public abstract class AbstractSqlBuilder implements SqlBuilder {
+public abstract class AbstractSqlBuilder implements BulkSqlBuilder, ExplainSqlBuilder {
 	private static final int DEFAULT_DELETE_SIZE = 100;
 	private static final int DEFAULT_INSERT_SIZE = 300;
 	private static final int DEFAULT_SELECT_SIZE = 300;
 	private static final int DEFAULT_UPDATE_SIZE = 300;
+	private static final int bulkInsertMaxRows = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_DATABASE_BULK_INSERT_MAX_ROWS, Config.DEFAULT_DATABASE_BULK_INSERT_MAX_ROWS));
+	private static final long bulkInsertMaxStatementSize = Long.parseLong(Config.properties.getProperty(
+			Config.KEY_DATABASE_BULK_INSERT_MAX_STATEMENT_SIZE,
+			Config.DEFAULT_DATABASE_BULK_INSERT_MAX_STATEMENT_SIZE));
+	private static final int bulkKeysMaxRows = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_DATABASE_BULK_KEYS_MAX_ROWS, Config.DEFAULT_DATABASE_BULK_KEYS_MAX_ROWS));
 
 	// Public methods
 
+	/**
+	 * Creates SQL for flat writes that can be combined, one statement per table: a multi-row insert, or a delete or
+	 * update with the keys of all rows in an IN predicate. Use {@link #getBulkWriteRowCount(SqlResourceMetaData, List)}
+	 * to chunk the requests.
+	 */
+	@Override
+	public Map<String, SqlStruct> buildBulkWriteSql(final SqlResourceMetaData metaData, final List<Request> requests)
+			throws InvalidRequestException {
+		Map<String, SqlStruct> sqls = null;
+		switch (requests.get(0).getType()) {
+			case INSERT:
+				sqls = buildBulkInsertSql(metaData, requests);
+				break;
+			case UPDATE:
+				sqls = buildBulkUpdateSql(metaData, requests);
+				break;
+			case DELETE:
+				sqls = buildBulkDeleteSql(metaData, requests);
+				break;
+			default:
+				throw new InvalidRequestException(requests.get(0).getType()
+						+ " Request provided to BulkSqlBuilder.buildBulkWriteSql()");
+		}
+		return sqls;
+	}
+
+	/**
+	 * Creates query for the primary key that ends the next chunk of a flat single table delete or update: the chunk
+	 * size'th key above the lower key, in key order, of the rows the request selects. The query returns no row if fewer
+	 * rows remain, so the chunk is the last. Returns null if the database or request does not support chunking, which
+	 * requires a single column primary key.
+	 */
+	@Override
+	public SqlStruct buildChunkKeySql(final SqlResourceMetaData metaData, final Request request,
+			final Object lowerKey, final int chunkSize) throws InvalidRequestException {
+		final ColumnMetaData key = getChunkKey(metaData, request);
+		final String limit = buildSelectLimitSql(1, chunkSize - 1);
+		if (key == null || limit.length() == 0) {
+			return null;
+		}
+		final SqlStruct writeSql = buildWriteSql(metaData, request, true).get(key.getQualifiedTableName());
+		if (writeSql == null || writeSql.isClauseEmpty()) {
+			return null;
+		}
+
+		final SqlStruct sql = new SqlStruct(DEFAULT_SELECT_SIZE, writeSql.getClause().length() + 100);
+		sql.getMain().append("SELECT ");
+		sql.getMain().append(key.getColumnName());
+		sql.getMain().append(" FROM ");
+		sql.getMain().append(key.getQualifiedTableName());
+		sql.getClause().append(writeSql.getClause());
+		sql.getPreparedClause().append(writeSql.getPreparedClause());
+		// Updates have the set values before the where clause values
+		final List<Object> preparedValues = writeSql.getPreparedValues();
+		sql.getPreparedValues().addAll(
+				preparedValues.subList(getSetValueCount(metaData.getParent(), request), preparedValues.size()));
+		appendKeyRange(key, lowerKey, null, sql);
+		sql.appendToBothClauses(" ORDER BY ");
+		sql.appendToBothClauses(key.getColumnName());
+		sql.appendToBothClauses(limit);
+		sql.compileStatements();
+		return sql;
+	}
+
+	/**
+	 * Creates SQL for a chunk of a flat single table delete or update, limited to the primary keys above the lower key,
+	 * up to and including the upper key. Either key may be null, leaving the range open at that end. Returns null if
+	 * the database or request does not support chunking.
+	 */
+	@Override
+	public SqlStruct buildChunkedWriteSql(final SqlResourceMetaData metaData, final Request request,
+			final Object lowerKey, final Object upperKey) throws InvalidRequestException {
+		final ColumnMetaData key = getChunkKey(metaData, request);
+		if (key == null) {
+			return null;
+		}
+		final SqlStruct writeSql = buildWriteSql(metaData, request, true).get(key.getQualifiedTableName());
+		if (writeSql == null || writeSql.isClauseEmpty()) {
+			return null;
+		}
+
+		final SqlStruct sql = new SqlStruct(writeSql.getMain().length(), writeSql.getClause().length() + 100, true);
+		sql.getMain().append(writeSql.getMain());
+		sql.getPreparedMain().append(
+				writeSql.getPreparedMain() == null ? writeSql.getMain() : writeSql.getPreparedMain());
+		sql.getClause().append(writeSql.getClause());
+		sql.getPreparedClause().append(writeSql.getPreparedClause());
+		sql.getPreparedValues().addAll(writeSql.getPreparedValues());
+		appendKeyRange(key, lowerKey, upperKey, sql);
+		sql.compileStatements();
+		return sql;
+	}
+
+	/** Creates explain SQL. Override for databases with a different EXPLAIN syntax. */
+	@Override
+	public String buildExplainSql(final String preparedStatement) {
+		return "EXPLAIN " + preparedStatement;
+	}
+
 	/** Creates select SQL. */
 	@Override
 	public SqlStruct buildSelectSql(final SqlResourceMetaData metaData, final String mainSql,
@@ -51,13 +163,14 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 		return sql;
 	}
 
-	/** Creates update, insert or delete SQL. */
+	/** Creates update, insert, upsert or delete SQL. */
 	@Override
 	public Map<String, SqlStruct> buildWriteSql(final SqlResourceMetaData metaData, final Request request,
 			final boolean doParent) throws InvalidRequestException {
 		Map<String, SqlStruct> sqls = null;
 		switch (request.getType()) {
 			case INSERT:
+			case UPSERT:
 				sqls = buildInsertSql(metaData, request, doParent);
 				break;
 			case UPDATE:
@@ -72,16 +185,87 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 		return sqls;
 	}
 
+	/**
+	 * Returns the number of leading requests that can be written with one statement per table, or 1 if the first must
+	 * be written alone.
+	 */
+	@Override
+	public int getBulkWriteRowCount(final SqlResourceMetaData metaData, final List<Request> requests) {
+		switch (requests.get(0).getType()) {
+			case INSERT:
+				return getBulkInsertRowCount(requests);
+			case UPDATE:
+			case DELETE:
+				return getBulkKeyRowCount(metaData, requests);
+			default:
+				return 1;
+		}
+	}
+
 	/** Creates select SQL limit clause. Returns empty string if database does not support limit feature. */
 	protected abstract String buildSelectLimitSql(final int limit, final int offset);
 
+	/**
+	 * Creates insert SQL clause that returns generated sequence values from the statement, for example RETURNING.
+	 * Returns null if the database does not support it, in which case JDBC generated keys are used.
+	 */
+	protected String buildInsertReturningSql(final List<ColumnMetaData> columns) {
+		return null;
+	}
+
+	/**
+	 * Converts the insert for a table into an upsert, which updates the row instead if one with the same primary key
+	 * exists, for example by appending ON CONFLICT. Throws an exception by default since upsert syntax is database
+	 * specific.
+	 * 
+	 * @param table table
+	 * @param columns inserted columns
+	 * @param sql completed insert
+	 * @throws InvalidRequestException if the database or table does not support upsert
+	 */
+	protected void buildUpsertSql(final TableMetaData table, final List<ColumnMetaData> columns,
+			final SqlStruct sql) throws InvalidRequestException {
+		throw new InvalidRequestException(InvalidRequestException.MESSAGE_UPSERT_UNSUPPORTED,
+				table.getQualifiedTableName());
+	}
+
 	/** Enables override for databases like PostgreSQL that need special handling for enumerations. */
 	protected String buildPreparedParameterSql(final ColumnMetaData column) {
 		return "?";
 	}
 
+	/**
+	 * Returns maximum number of parameters in one prepared statement, which bounds multi-row inserts. Override for
+	 * databases with a known limit; the default is conservative.
+	 */
+	protected int getMaxPreparedParameters() {
+		return 2000;
+	}
+
 	// Private helper methods
 
+	/** Adds sequence columns missing from the insert params, whose generated values the insert will return. */
+	private void addGeneratedKeyColumns(final TableMetaData table, final Request request, final SqlStruct sql) {
+		if (table != null) {
+			List<ColumnMetaData> columns = null;
+			for (final ColumnMetaData column : table.getColumns().values()) {
+				if (column.isSequence() && !request.hasParameter(column.getColumnLabel())) {
+					if (columns == null) {
+						columns = new ArrayList<ColumnMetaData>(1);
+					}
+					columns.add(column);
+				}
+			}
+			if (columns != null) {
+				final String returningSql = buildInsertReturningSql(columns);
+				if (returningSql != null) {
+					sql.appendToBothClauses(returningSql);
+				}
+				sql.setGeneratedKeyColumns(columns, returningSql != null);
+			}
+		}
+	}
+
 	/** Adds order by statement . */
 	private void addOrderBy(final SqlResourceMetaData metaData, final SqlStruct sql) {
 		boolean firstColumn = true;
@@ -106,6 +290,90 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 		return firstColumn;
 	}
 
+	/** Appends insert value to the printable and prepared clauses, and the prepared values. */
+	private void appendInsertValue(final ColumnMetaData column, final RequestValue param, final SqlStruct sql)
+			throws InvalidRequestException {
+		// Begin quote the column value
+		if (column.isCharOrDateTimeType() && param.getValue() != null) {
+			sql.getClause().append('\'');
+		}
+
+		// Convert String to appropriate object
+		column.normalizeValue(param);
+
+		// Set the value in the printable clause, the ? in the prepared clause, and prepared clause value
+		sql.getClause().append(param.getValue());
+		sql.getPreparedClause().append(buildPreparedParameterSql(column));
+		sql.getPreparedValues().add(param.getValue());
+
+		// End quote the column value
+		if (column.isCharOrDateTimeType() && param.getValue() != null) {
+			sql.getClause().append('\'');
+		}
+	}
+
+	/**
+	 * Appends IN predicate with the rows' values for the table's key columns, or a row value IN predicate if there are
+	 * several, for example <code>(a,b) IN ((?,?),(?,?))</code>.
+	 */
+	private void appendKeysIn(final TableMetaData table, final List<ColumnMetaData> columns,
+			final List<List<RequestValue>> rowKeys, final SqlStruct sql) throws InvalidRequestException {
+		if (columns.size() > 1) {
+			sql.appendToBothClauses("(");
+		}
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				sql.appendToBothClauses(",");
+			}
+			sql.appendToBothClauses(columns.get(i).getColumnName());
+		}
+		sql.appendToBothClauses(columns.size() > 1 ? ") IN (" : " IN (");
+		for (int row = 0; row < rowKeys.size(); row++) {
+			if (row > 0) {
+				sql.appendToBothClauses(",");
+			}
+			if (columns.size() > 1) {
+				sql.appendToBothClauses("(");
+			}
+			boolean firstValue = true;
+			for (final RequestValue key : rowKeys.get(row)) {
+				final ColumnMetaData column = table.getColumns().get(key.getName());
+				if (column != null) {
+					if (!firstValue) {
+						sql.appendToBothClauses(",");
+					}
+					column.normalizeValue(key);
+					appendValue(sql.getClause(), sql.getPreparedClause(), sql.getPreparedValues(), key.getValue(),
+							column.isCharOrDateTimeType(), column);
+					firstValue = false;
+				}
+			}
+			if (columns.size() > 1) {
+				sql.appendToBothClauses(")");
+			}
+		}
+		sql.appendToBothClauses(")");
+	}
+
+	/** Appends conditions limiting the key to above the lower key and up to the upper key, unless they are null. */
+	private void appendKeyRange(final ColumnMetaData key, final Object lowerKey, final Object upperKey,
+			final SqlStruct sql) {
+		if (lowerKey != null) {
+			sql.appendToBothClauses(" AND ");
+			sql.appendToBothClauses(key.getColumnName());
+			sql.appendToBothClauses(" > ");
+			appendValue(sql.getClause(), sql.getPreparedClause(), sql.getPreparedValues(), lowerKey,
+					key.isCharOrDateTimeType(), key);
+		}
+		if (upperKey != null) {
+			sql.appendToBothClauses(" AND ");
+			sql.appendToBothClauses(key.getColumnName());
+			sql.appendToBothClauses(" <= ");
+			appendValue(sql.getClause(), sql.getPreparedClause(), sql.getPreparedValues(), upperKey,
+					key.isCharOrDateTimeType(), key);
+		}
+	}
+
 	private void appendToBoth(final SqlStruct sql, final boolean useMain, final String string) {
 		if (useMain) {
 			sql.appendToBothMains(string);
@@ -128,6 +396,144 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 		preparedValues.add(value);
 	}
 
+	/** Builds delete SQL with the params of all rows in an IN predicate, per table. */
+	private Map<String, SqlStruct> buildBulkDeleteSql(final SqlResourceMetaData metaData,
+			final List<Request> requests) throws InvalidRequestException {
+		final Map<String, SqlStruct> sqls = new HashMap<String, SqlStruct>(metaData.getNumberTables());
+		final List<List<RequestValue>> rowKeys = new ArrayList<List<RequestValue>>(requests.size());
+		for (final Request request : requests) {
+			rowKeys.add(request.getParameters());
+		}
+		for (final TableMetaData table : metaData.getWriteTables(Request.Type.DELETE, true)) {
+			final List<ColumnMetaData> columns = getColumns(table, rowKeys.get(0));
+			if (columns.size() > 0) {
+				for (final ColumnMetaData column : columns) {
+					if (column.isReadOnly()) {
+						throw new InvalidRequestException(InvalidRequestException.MESSAGE_READONLY_PARAM,
+								column.getColumnLabel());
+					}
+				}
+				final SqlStruct sql = new SqlStruct(DEFAULT_DELETE_SIZE, DEFAULT_DELETE_SIZE / 4 * requests.size());
+				sql.getMain().append("DELETE FROM ");
+				sql.getMain().append(table.getQualifiedTableName());
+				sql.appendToBothClauses(" WHERE ");
+				appendKeysIn(table, columns, rowKeys, sql);
+				sql.compileStatements();
+				sqls.put(table.getQualifiedTableName(), sql);
+			}
+		}
+		if (sqls.size() == 0) {
+			throw new InvalidRequestException(InvalidRequestException.MESSAGE_INVALID_PARAMS);
+		}
+		return sqls;
+	}
+
+	/** Creates multi-row insert SQL, one statement per table, for flat inserts with the same parameters. */
+	private Map<String, SqlStruct> buildBulkInsertSql(final SqlResourceMetaData metaData,
+			final List<Request> requests) throws InvalidRequestException {
+		final Map<String, SqlStruct> sqls = new HashMap<String, SqlStruct>(metaData.getNumberTables());
+		final Request firstRequest = requests.get(0);
+		for (final TableMetaData table : metaData.getWriteTables(Request.Type.INSERT, true)) {
+			final List<ColumnMetaData> columns = getColumns(table, firstRequest.getParameters());
+			if (columns.size() > 0) {
+				final SqlStruct sql = new SqlStruct(DEFAULT_INSERT_SIZE, DEFAULT_INSERT_SIZE / 2
+						* requests.size());
+				sql.getMain().append("INSERT INTO ");
+				sql.getMain().append(table.getQualifiedTableName());
+				sql.getMain().append(" (");
+				for (int i = 0; i < columns.size(); i++) {
+					final ColumnMetaData column = columns.get(i);
+					if (column.isReadOnly()) {
+						throw new InvalidRequestException(InvalidRequestException.MESSAGE_READONLY_PARAM,
+								column.getColumnLabel());
+					}
+					if (i > 0) {
+						sql.getMain().append(',');
+					}
+					sql.getMain().append(column.getColumnName());
+				}
+				sql.getMain().append(')');
+				sql.appendToBothClauses(" VALUES ");
+
+				// Append each row's values in param order, which is the same for all rows
+				for (int row = 0; row < requests.size(); row++) {
+					sql.appendToBothClauses(row == 0 ? "(" : ",(");
+					boolean firstValue = true;
+					for (final RequestValue param : requests.get(row).getParameters()) {
+						final ColumnMetaData column = table.getColumns().get(param.getName());
+						if (column != null) {
+							if (!firstValue) {
+								sql.appendToBothClauses(",");
+							}
+							appendInsertValue(column, param, sql);
+							firstValue = false;
+						}
+					}
+					sql.appendToBothClauses(")");
+				}
+				addGeneratedKeyColumns(table, firstRequest, sql);
+				sql.compileStatements();
+				sqls.put(table.getQualifiedTableName(), sql);
+			}
+		}
+		if (sqls.size() == 0) {
+			throw new InvalidRequestException(InvalidRequestException.MESSAGE_INVALID_PARAMS);
+		}
+		return sqls;
+	}
+
+	/**
+	 * Builds update SQL setting the params of the first row, which are the same for all rows, with the resource ids of
+	 * all rows in an IN predicate, per table.
+	 */
+	private Map<String, SqlStruct> buildBulkUpdateSql(final SqlResourceMetaData metaData,
+			final List<Request> requests) throws InvalidRequestException {
+		final Map<String, SqlStruct> sqls = new HashMap<String, SqlStruct>(metaData.getNumberTables());
+		final List<List<RequestValue>> rowKeys = new ArrayList<List<RequestValue>>(requests.size());
+		for (final Request request : requests) {
+			rowKeys.add(request.getResourceIdentifiers());
+		}
+		final Request firstRequest = requests.get(0);
+		boolean validKeyFound = false;
+		for (final TableMetaData table : metaData.getWriteTables(Request.Type.UPDATE, true)) {
+			SqlStruct sql = null;
+			for (final RequestValue param : firstRequest.getParameters()) {
+				final ColumnMetaData column = table.getColumns().get(param.getName());
+				if (column != null) {
+					if (column.isReadOnly()) {
+						throw new InvalidRequestException(InvalidRequestException.MESSAGE_READONLY_PARAM,
+								column.getColumnLabel());
+					}
+					if (!column.isNonqueriedForeignKey()) {
+						if (sql == null) {
+							sql = new SqlStruct(DEFAULT_UPDATE_SIZE, DEFAULT_UPDATE_SIZE / 4 * requests.size(), true);
+							sql.appendToBothMains("UPDATE ");
+							sql.appendToBothMains(table.getQualifiedTableName());
+							sql.appendToBothMains(" SET ");
+						} else {
+							sql.appendToBothMains(",");
+						}
+						setNameValue(Request.Type.UPDATE, metaData, column, param, false, sql, true);
+					}
+				}
+			}
+			if (sql != null) {
+				final List<ColumnMetaData> keyColumns = getColumns(table, rowKeys.get(0));
+				if (keyColumns.size() > 0) {
+					sql.appendToBothClauses(" WHERE ");
+					appendKeysIn(table, keyColumns, rowKeys, sql);
+					validKeyFound = true;
+				}
+				sql.compileStatements();
+				sqls.put(table.getQualifiedTableName(), sql);
+			}
+		}
+		if (!validKeyFound) {
+			throw new InvalidRequestException(InvalidRequestException.MESSAGE_INVALID_PARAMS);
+		}
+		return sqls;
+	}
+
 	private Map<String, SqlStruct> buildDeleteSql(final SqlResourceMetaData metaData, final Request request,
 			final boolean doParent) throws InvalidRequestException {
 		final Map<String, SqlStruct> sqls = new HashMap<String, SqlStruct>(metaData.getNumberTables());
@@ -182,7 +588,7 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 	}
 
 	/**
-	 * Builds insert SQL.
+	 * Builds insert or upsert SQL.
 	 * 
 	 * @param params insert params
 	 * @return map of sql struct, per table
@@ -219,24 +625,7 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 						sql.appendToBothClauses(",");
 					}
 					sql.getMain().append(column.getColumnName()); // since parameter may use column label
-
-					// Begin quote the column value
-					if (column.isCharOrDateTimeType() && param.getValue() != null) {
-						sql.getClause().append('\'');
-					}
-
-					// Convert String to appropriate object
-					column.normalizeValue(param);
-
-					// Set the value in the printable clause, the ? in the prepared clause, and prepared clause value
-					sql.getClause().append(param.getValue());
-					sql.getPreparedClause().append(buildPreparedParameterSql(column));
-					sql.getPreparedValues().add(param.getValue());
-
-					// End quote the column value
-					if (column.isCharOrDateTimeType() && param.getValue() != null) {
-						sql.getClause().append('\'');
-					}
+					appendInsertValue(column, param, sql);
 				}
 			}
 		}
@@ -248,6 +637,12 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 			} else {
 				sql.getMain().append(')');
 				sql.appendToBothClauses(")");
+				final TableMetaData table = metaData.getTableMap().get(tableName);
+				if (request.getType() == Request.Type.UPSERT) {
+					buildUpsertSql(table, getColumns(table, request.getParameters()), sql);
+				} else {
+					addGeneratedKeyColumns(table, request, sql);
+				}
 				sql.compileStatements();
 			}
 		}
@@ -383,6 +778,193 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
 		return contains;
 	}
 
+	/**
+	 * Returns the number of leading inserts with the same parameter names that fit in one multi-row insert. Rows are
+	 * added until the configured maximum rows, the estimated statement size or the database's prepared parameter limit
+	 * is reached.
+	 */
+	private int getBulkInsertRowCount(final List<Request> requests) {
+		final Request firstRequest = requests.get(0);
+		if (firstRequest.getParameters() == null || firstRequest.getResourceIdentifiers() != null) {
+			return 1;
+		}
+		final int maxRowsByParameters = getMaxPreparedParameters()
+				/ Math.max(1, firstRequest.getParameters().size());
+		final int maxRows = Math.min(requests.size(), Math.min(bulkInsertMaxRows, maxRowsByParameters));
+		long statementSize = DEFAULT_INSERT_SIZE;
+		int rows = 0;
+		while (rows < maxRows) {
+			final Request request = requests.get(rows);
+			if (request.getType() != firstRequest.getType() || request.getResourceIdentifiers() != null
+					|| !hasSameNames(firstRequest.getParameters(), request.getParameters())) {
+				break;
+			}
+			statementSize += getEstimatedSize(request);
+			if (rows > 0 && statementSize > bulkInsertMaxStatementSize) {
+				break;
+			}
+			rows++;
+		}
+		return Math.max(1, rows);
+	}
+
+	/**
+	 * Returns the number of leading deletes or updates that can be combined into one set-based statement. Their keys,
+	 * the params of deletes or the resource ids of updates, must have the same names and be non-null values without
+	 * wildcards, and updates must set the same values. Rows are added until the configured maximum rows or the
+	 * database's prepared parameter limit is reached.
+	 */
+	private int getBulkKeyRowCount(final SqlResourceMetaData metaData, final List<Request> requests) {
+		final Request firstRequest = requests.get(0);
+		final List<RequestValue> firstKeys = getBulkKeys(firstRequest);
+		if (!isBulkKeys(firstKeys)
+				|| (firstRequest.getType() == Type.UPDATE && (firstRequest.getParameters() == null || hasPrimaryKey(
+						metaData, firstRequest.getParameters())))) {
+			return 1;
+		}
+		final int setParameters = firstRequest.getType() == Type.UPDATE ? firstRequest.getParameters().size() : 0;
+		final int maxRowsByParameters = (getMaxPreparedParameters() - setParameters) / firstKeys.size();
+		final int maxRows = Math.min(requests.size(), Math.min(bulkKeysMaxRows, maxRowsByParameters));
+		int rows = 1;
+		while (rows < maxRows) {
+			final Request request = requests.get(rows);
+			final List<RequestValue> keys = getBulkKeys(request);
+			if (request.getType() != firstRequest.getType() || !hasSameNames(firstKeys, keys) || !isBulkKeys(keys)
+					|| (request.getType() == Type.UPDATE && !hasSameValues(firstRequest.getParameters(), request
+							.getParameters()))) {
+				break;
+			}
+			rows++;
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the values identifying the rows a delete or update writes: the params of a delete or the resource ids of
+	 * an update. Returns null for a delete with resource ids.
+	 */
+	private List<RequestValue> getBulkKeys(final Request request) {
+		if (request.getType() == Type.UPDATE) {
+			return request.getResourceIdentifiers();
+		} else {
+			return request.getResourceIdentifiers() == null ? request.getParameters() : null;
+		}
+	}
+
+	/**
+	 * Returns the primary key that chunks a delete or update, or null if the request cannot be chunked: it must be a
+	 * delete or update of a flat single table resource whose table has a single column primary key.
+	 */
+	private ColumnMetaData getChunkKey(final SqlResourceMetaData metaData, final Request request) {
+		if (metaData.isHierarchical() || metaData.getNumberTables() > 1
+				|| (request.getType() != Type.DELETE && request.getType() != Type.UPDATE)
+				|| metaData.getParent().getPrimaryKeys().size() != 1) {
+			return null;
+		}
+		return metaData.getParent().getPrimaryKeys().get(0);
+	}
+
+	/** Returns the table's columns named by the params, in param order. */
+	private List<ColumnMetaData> getColumns(final TableMetaData table, final List<RequestValue> params) {
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>(params.size());
+		for (final RequestValue param : params) {
+			final ColumnMetaData column = table.getColumns().get(param.getName());
+			if (column != null) {
+				columns.add(column);
+			}
+		}
+		return columns;
+	}
+
+	/** Returns estimated size in bytes of a row's values in an insert statement. */
+	private long getEstimatedSize(final Request request) {
+		long size = 0;
+		for (final RequestValue param : request.getParameters()) {
+			final Object value = param.getValue();
+			if (value instanceof String) {
+				size += ((String) value).length() + 3;
+			} else if (value instanceof BinaryObject) {
+				size += ((BinaryObject) value).getBytes().length + 3;
+			} else {
+				size += 20;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of prepared values in the set clause of an update of the table, which precede the where clause
+	 * values, or 0 for other requests.
+	 */
+	private int getSetValueCount(final TableMetaData table, final Request request) {
+		int count = 0;
+		if (request.getType() == Type.UPDATE) {
+			for (final RequestValue param : request.getParameters()) {
+				final ColumnMetaData column = table.getColumns().get(param.getName());
+				if (column != null && !column.isPrimaryKey() && !column.isNonqueriedForeignKey()) {
+					count += param.getOperator() == Operator.In ? param.getInValues().size() : 1;
+				}
+			}
+		}
+		return count;
+	}
+
+	/** Returns true if any param names a primary key column of a write table. */
+	private boolean hasPrimaryKey(final SqlResourceMetaData metaData, final List<RequestValue> params) {
+		for (final TableMetaData table : metaData.getWriteTables(Request.Type.UPDATE, true)) {
+			for (final RequestValue param : params) {
+				final ColumnMetaData column = table.getColumns().get(param.getName());
+				if (column != null && column.isPrimaryKey()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** Returns true if both lists are non-null and have the same names in the same order. */
+	private boolean hasSameNames(final List<RequestValue> values, final List<RequestValue> otherValues) {
+		if (values == null || otherValues == null || values.size() != otherValues.size()) {
+			return false;
+		}
+		for (int i = 0; i < values.size(); i++) {
+			if (!values.get(i).getName().equals(otherValues.get(i).getName())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Returns true if both lists have the same names, operators and values in the same order. */
+	private boolean hasSameValues(final List<RequestValue> values, final List<RequestValue> otherValues) {
+		if (!hasSameNames(values, otherValues)) {
+			return false;
+		}
+		for (int i = 0; i < values.size(); i++) {
+			final RequestValue value = values.get(i);
+			final RequestValue otherValue = otherValues.get(i);
+			if (value.getOperator() != otherValue.getOperator()
+					|| (value.getValue() == null ? otherValue.getValue() != null : !value.getValue().equals(
+							otherValue.getValue()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Returns true if the keys are all non-null equality values without wildcards, usable in an IN predicate. */
+	private boolean isBulkKeys(final List<RequestValue> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return false;
+		}
+		for (final RequestValue key : keys) {
+			if (key.getOperator() != Operator.Equals || key.getValue() == null || containsWildcard(key.getValue())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Adds the SQL selector for the parameter pair with an appropriate operator (=, >, <, >=, <=, LIKE or IN).
 	 * 
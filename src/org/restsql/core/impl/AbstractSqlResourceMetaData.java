@@ -1,6 +1,11 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -9,6 +14,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -42,6 +48,8 @@ import org.restsql.core.sqlresource.Table;
 
 /**
  * Represents meta data for sql resource. Queries database for table and column meta data and primary and foreign keys.
+ * When metadata snapshots are enabled, the metadata is instead loaded from a snapshot saved by a previous build (see
+ * {@link MetaDataSnapshotStore}).
  * 
  * @author Mark Sawers
  */
@@ -53,6 +61,7 @@ import org.restsql.core.sqlresource.Table;
 public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData {
 	private static final int DEFAULT_NUMBER_DATABASES = 5;
 	private static final int DEFAULT_NUMBER_TABLES = 10;
+	private static final int SNAPSHOT_VERSION = 1;
 
 	@XmlElementWrapper(name = "allReadColumns", required = true)
 	@XmlElement(name = "column", required = true)
@@ -236,43 +245,55 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 		return multipleDatabases;
 	}
 
-	/** Populates metadata using definition. */
+	/**
+	 * Populates metadata using definition. If metadata snapshots are enabled and one matches the definition, it is used
+	 * instead of querying the database and is revalidated in the background if due. Otherwise the metadata built from the
+	 * database is saved as the resource's snapshot.
+	 */
 	@Override
 	public void init(final String resName, final SqlResourceDefinition definition, final SqlBuilder sqlBuilder)
 			throws SqlResourceException {
 		this.resName = resName;
 		this.definition = definition;
-		Connection connection = null;
-		String sql = null;
 		SqlResourceDefinitionUtils.validate(definition);
-		try {
-			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
-			final Statement statement = connection.createStatement();
-			sql = getSqlMainQuery(definition, sqlBuilder);
-			if (Config.logger.isDebugEnabled()) {
-				Config.logger.debug("Loading meta data for " + this.resName + " - " + sql);
+		if (MetaDataSnapshotStore.isEnabled()) {
+			final String key;
+			try {
+				key = MetaDataSnapshotStore.getKey(definition, getClass());
+			} catch (final IOException exception) {
+				throw new SqlResourceException(exception);
 			}
-			final ResultSet resultSet = statement.executeQuery(sql);
-			resultSet.next();
-			buildTablesAndColumns(resultSet, connection);
-			resultSet.close();
-			statement.close();
-			buildPrimaryKeys(connection);
-			buildInvisibleForeignKeys(connection);
-			buildJoinTableMetadata(connection);
-			buildSequenceMetaData(connection);
-			documentation = definition.getDocumentation();
-		} catch (final SQLException exception) {
-			throw new SqlResourceException(exception, sql);
-		} finally {
-			if (connection != null) {
+			final byte[] snapshot = MetaDataSnapshotStore.load(resName, key);
+			if (snapshot != null) {
 				try {
-					connection.close();
-				} catch (final SQLException ignored) {
+					readSnapshot(snapshot);
+					if (Config.logger.isDebugEnabled()) {
+						Config.logger.debug("Loaded meta data for " + resName + " from snapshot");
+					}
+					MetaDataSnapshotStore.revalidate(resName, new Runnable() {
+						@Override
+						public void run() {
+							revalidateSnapshot(key, snapshot, sqlBuilder);
+						}
+					});
+					return;
+				} catch (final IOException exception) {
+					Config.logger.warn("Error reading metadata snapshot for " + resName + " -- "
+							+ exception.getMessage());
+					parentTable = childTable = joinTable = null;
+					joinList = null;
 				}
 			}
+			buildFromDatabase(sqlBuilder);
+			try {
+				MetaDataSnapshotStore.save(resName, key, writeSnapshot());
+			} catch (final IOException exception) {
+				Config.logger.warn("Error writing metadata snapshot for " + resName + " -- "
+						+ exception.getMessage());
+			}
+		} else {
+			buildFromDatabase(sqlBuilder);
 		}
-		hierarchical = getChild() != null;
 	}
 
 	@Override
@@ -381,10 +402,31 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			final ResultSetMetaData resultSetMetaData, final int colNumber) throws SQLException;
 
 	/**
-	 * Retrieves sql for querying columns. Hook method for buildInvisibleForeignKeys() and buildJoinTableMetadata()
-	 * allows database-specific overrides.
+	 * Returns a comma-separated list of parameter placeholders, for use in an IN clause.
+	 * 
+	 * @param count number of placeholders
+	 */
+	protected String getParameterList(final int count) {
+		final StringBuilder list = new StringBuilder(count * 3);
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				list.append(", ");
+			}
+			list.append('?');
+		}
+		return list.toString();
+	}
+
+	/**
+	 * Retrieves sql for querying columns of all the resource's tables at once. Hook method for buildColumns() allows
+	 * database-specific overrides. The query has a parameter for each database name followed by one for each table
+	 * name, and returns the column name, type name, the value used by setSequenceMetaData(), the database name and the
+	 * table name.
+	 * 
+	 * @param databaseCount number of database name parameters
+	 * @param tableCount number of table name parameters
 	 */
-	protected abstract String getSqlColumnsQuery();
+	protected abstract String getSqlColumnsQuery(int databaseCount, int tableCount);
 
 	/**
 	 * Retrieves sql for the main query based on the definition. Optimized to retrieve only one row using limit/offset.
@@ -402,9 +444,14 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	}
 
 	/**
-	 * Retrieves sql for querying primary keys. Hook method for buildPrimaryKeys allows database-specific overrides.
+	 * Retrieves sql for querying primary keys of all the resource's tables at once. Hook method for buildPrimaryKeys()
+	 * allows database-specific overrides. The query has a parameter for each database name followed by one for each
+	 * table name, and returns the column name, the database name and the table name.
+	 * 
+	 * @param databaseCount number of database name parameters
+	 * @param tableCount number of table name parameters
 	 */
-	protected abstract String getSqlPkQuery();
+	protected abstract String getSqlPkQuery(int databaseCount, int tableCount);
 
 	/**
 	 * Return whether a column in the given result set is read-only. The default implementation just calls isReadOnly()
@@ -453,63 +500,185 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 
 	// Private methods
 
-	private void buildInvisibleForeignKeys(final Connection connection) throws SQLException {
-		final PreparedStatement statement = connection.prepareStatement(getSqlColumnsQuery());
+	/** Adds database or table name in the form stored in db metadata, unless already present. */
+	private void addDistinctName(final List<String> names, final String name) {
+		final String dbMetaDataName = isDbMetaDataUpperCase() ? name.toUpperCase() : name;
+		if (!names.contains(dbMetaDataName)) {
+			names.add(dbMetaDataName);
+		}
+	}
+
+	/** Adds column to the special column lists for its table's role. */
+	private void addReadColumn(final ColumnMetaData column, final TableRole tableRole) {
+		allReadColumns.add(column);
+		switch (tableRole) {
+			case Parent:
+			case ParentExtension:
+				parentReadColumns.add(column);
+				break;
+			case Child:
+			case ChildExtension:
+				childReadColumns.add(column);
+				break;
+			default: // Unknown
+		}
+	}
+
+	/** Adds table to the special table references for its role. */
+	@SuppressWarnings("fallthrough")
+	private void addTableReferences(final TableMetaData table) {
+		switch (table.getTableRole()) {
+			case Parent:
+				parentTable = table;
+				// fall through
+			case ParentExtension:
+				parentPlusExtTables.add(table);
+				break;
+			case Child:
+				childTable = table;
+				// fall through
+			case ChildExtension:
+				childPlusExtTables.add(table);
+				break;
+			case Join: // unlikely to be in the select columns, but just in case
+				joinTable = table;
+				joinList = new ArrayList<TableMetaData>(1);
+				joinList.add(joinTable);
+				break;
+			default: // Unknown
+		}
+	}
+
+	/**
+	 * Builds foreign key columns not declared in the select columns, columns of a join table not in the select columns
+	 * and sequence metadata, with one columns query for all tables.
+	 * 
+	 * @param connection database connection
+	 * @param databaseNames distinct database names of all tables
+	 * @param tableNames distinct table names of all tables
+	 * @param joinTableIsBuilt true if the join table was built by buildJoinTable() and so needs its columns
+	 * @throws SQLException if a database access error occurs
+	 */
+	private void buildColumns(final Connection connection, final List<String> databaseNames,
+			final List<String> tableNames, final boolean joinTableIsBuilt) throws SQLException {
+		final Map<String, TableMetaData> tableLookup = getTableLookup();
+		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			for (final TableMetaData table : tables) {
-				if (!table.isParent()) {
-					statement.setString(1, isDbMetaDataUpperCase() ? table.getDatabaseName().toUpperCase()
-							: table.getDatabaseName());
-					statement.setString(2, isDbMetaDataUpperCase() ? table.getTableName().toUpperCase()
-							: table.getTableName());
-					resultSet = statement.executeQuery();
-					while (resultSet.next()) {
-						final String columnName = resultSet.getString(1);
-						if (!table.getColumns().containsKey(columnName)) {
-							TableMetaData mainTable;
-							switch (table.getTableRole()) {
-								case ChildExtension:
-									mainTable = childTable;
-									break;
-								default: // Child, ParentExtension, Unknown
-									mainTable = parentTable;
-							}
-							// Look for a pk on the main table with the same name
-							for (final ColumnMetaData pk : mainTable.getPrimaryKeys()) {
-								if (columnName.equals(pk.getColumnName())) {
-									final ColumnMetaData fkColumn = Factory.getColumnMetaData();
-									fkColumn.setAttributes(
-											table.getDatabaseName(),
-											table.getQualifiedTableName(),
-											table.getTableName(),
-											table.getTableRole(),
-											columnName,
-											getQualifiedColumnName(table.getTableName(),
-													table.getQualifiedTableName(), false, columnName),
-													pk.getColumnLabel(),
-													getQualifiedColumnLabel(table.getTableName(),
-															table.getQualifiedTableName(), false, pk.getColumnLabel()),
-															resultSet.getString(2));
-									((TableMetaDataImpl) table).addColumn(fkColumn);
-								}
-							}
-						}
+			statement = prepareTablesStatement(connection,
+					getSqlColumnsQuery(databaseNames.size(), tableNames.size()), databaseNames, tableNames);
+			resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				final TableMetaData table = tableLookup.get(getTableKey(resultSet.getString(4),
+						resultSet.getString(5)));
+				if (table == null) {
+					continue; // another combination of the database and table names
+				}
+				final String columnName = resultSet.getString(1);
+				if (table == joinTable && joinTableIsBuilt) {
+					final ColumnMetaData column = Factory.getColumnMetaData();
+					column.setAttributes(table.getDatabaseName(), table.getQualifiedTableName(),
+							table.getTableName(), TableRole.Join, columnName,
+							getQualifiedColumnName(table.getTableName(), table.getQualifiedTableName(), false,
+									columnName), columnName,
+							getQualifiedColumnLabel(table.getTableName(), table.getQualifiedTableName(), false,
+									columnName), resultSet.getString(2));
+					table.addColumn(column);
+				} else if (!table.isParent() && !table.getColumns().containsKey(columnName)) {
+					buildInvisibleForeignKey(table, columnName, resultSet.getString(2));
+				}
+				for (final ColumnMetaData column : table.getColumns().values()) {
+					if (column.getColumnName().equalsIgnoreCase(columnName)) { // ignore case accommodates a db like
+						// Oracle
+						setSequenceMetaData((ColumnMetaDataImpl) column, resultSet);
+						break;
 					}
 				}
 			}
+		} finally {
+			close(resultSet, statement);
+		}
+	}
+
+	/**
+	 * Builds all metadata by querying the database.
+	 * 
+	 * @throws SqlResourceException if a database access error occurs or the definition is invalid
+	 */
+	private void buildFromDatabase(final SqlBuilder sqlBuilder) throws SqlResourceException {
+		Connection connection = null;
+		String sql = null;
+		try {
+			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+			final Statement statement = connection.createStatement();
+			sql = getSqlMainQuery(definition, sqlBuilder);
+			if (Config.logger.isDebugEnabled()) {
+				Config.logger.debug("Loading meta data for " + resName + " - " + sql);
+			}
+			final ResultSet resultSet = statement.executeQuery(sql);
+			resultSet.next();
+			buildTablesAndColumns(resultSet, connection);
+			resultSet.close();
+			statement.close();
+			final boolean joinTableIsBuilt = buildJoinTable(connection);
+
+			// Introspect all tables at once, with the distinct database and table names
+			final List<String> databaseNames = new ArrayList<String>(DEFAULT_NUMBER_DATABASES);
+			final List<String> tableNames = new ArrayList<String>(tables.size());
+			for (final TableMetaData table : tables) {
+				addDistinctName(databaseNames, table.getDatabaseName());
+				addDistinctName(tableNames, table.getTableName());
+			}
+			buildPrimaryKeys(connection, databaseNames, tableNames);
+			buildColumns(connection, databaseNames, tableNames, joinTableIsBuilt);
+			documentation = definition.getDocumentation();
 		} catch (final SQLException exception) {
-			if (resultSet != null) {
-				resultSet.close();
+			throw new SqlResourceException(exception, sql);
+		} finally {
+			if (connection != null) {
+				try {
+					connection.close();
+				} catch (final SQLException ignored) {
+				}
 			}
-			if (statement != null) {
-				statement.close();
+		}
+		hierarchical = getChild() != null;
+	}
+
+	/** Adds a column of a non-parent table missing from the select columns if it matches a main table primary key. */
+	private void buildInvisibleForeignKey(final TableMetaData table, final String columnName,
+			final String columnTypeName) {
+		TableMetaData mainTable;
+		switch (table.getTableRole()) {
+			case ChildExtension:
+				mainTable = childTable;
+				break;
+			default: // Child, ParentExtension, Unknown
+				mainTable = parentTable;
+		}
+		// Look for a pk on the main table with the same name
+		for (final ColumnMetaData pk : mainTable.getPrimaryKeys()) {
+			if (columnName.equals(pk.getColumnName())) {
+				final ColumnMetaData fkColumn = Factory.getColumnMetaData();
+				fkColumn.setAttributes(table.getDatabaseName(), table.getQualifiedTableName(),
+						table.getTableName(), table.getTableRole(), columnName,
+						getQualifiedColumnName(table.getTableName(), table.getQualifiedTableName(), false,
+								columnName), pk.getColumnLabel(),
+						getQualifiedColumnLabel(table.getTableName(), table.getQualifiedTableName(), false,
+								pk.getColumnLabel()), columnTypeName);
+				table.addColumn(fkColumn);
 			}
-			throw exception;
 		}
 	}
 
-	private void buildJoinTableMetadata(final Connection connection) throws SQLException {
+	/**
+	 * Builds join table metadata if the definition has a join table that is not in the select columns. Its columns are
+	 * added by buildColumns().
+	 * 
+	 * @return true if the join table was built
+	 * @throws SQLException if a database access error occurs
+	 */
+	private boolean buildJoinTable(final Connection connection) throws SQLException {
 		// Join table could have been identified in buildTablesAndColumns(), but not always
 		final Table joinDef = SqlResourceDefinitionUtils.getTable(definition, TableRole.Join);
 		if (joinDef != null && joinTable == null) {
@@ -534,112 +703,45 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			tables.add(joinTable);
 			joinList = new ArrayList<TableMetaData>(1);
 			joinList.add(joinTable);
-
-			// Execute metadata query and populate metadata structure
-			PreparedStatement statement = null;
-			ResultSet resultSet = null;
-			try {
-				statement = connection.prepareStatement(getSqlColumnsQuery());
-				statement.setString(1, isDbMetaDataUpperCase() ? databaseName.toUpperCase() : databaseName);
-				statement.setString(2, isDbMetaDataUpperCase() ? tableName.toUpperCase() : tableName);
-				resultSet = statement.executeQuery();
-				while (resultSet.next()) {
-					final String columnName = resultSet.getString(1);
-					final ColumnMetaData column = Factory.getColumnMetaData();
-					column.setAttributes(databaseName, qualifiedTableName, tableName, TableRole.Join,
-							columnName,
-							getQualifiedColumnName(tableName, qualifiedTableName, false, columnName),
-							columnName,
-							getQualifiedColumnLabel(tableName, qualifiedTableName, false, columnName),
-							resultSet.getString(2));
-					((TableMetaDataImpl) joinTable).addColumn(column);
-				}
-			} catch (final SQLException exception) {
-				if (resultSet != null) {
-					resultSet.close();
-				}
-				if (statement != null) {
-					statement.close();
-				}
-				throw exception;
-			}
-		}
-	}
-
-	/**
-	 * Builds list of primary key column labels.
-	 * 
-	 * @param Connection connection
-	 * @throws SqlResourceException if a database access error occurs
-	 */
-	private void buildPrimaryKeys(final Connection connection) throws SQLException {
-		final PreparedStatement statement = connection.prepareStatement(getSqlPkQuery());
-		ResultSet resultSet = null;
-		try {
-			for (final TableMetaData table : tables) {
-				statement.setString(1, isDbMetaDataUpperCase() ? table.getDatabaseName().toUpperCase()
-						: table.getDatabaseName());
-				statement.setString(2,
-						isDbMetaDataUpperCase() ? table.getTableName().toUpperCase() : table.getTableName());
-				resultSet = statement.executeQuery();
-				while (resultSet.next()) {
-					final String columnName = resultSet.getString(1);
-					for (final ColumnMetaData column : table.getColumns().values()) {
-						if (columnName.equalsIgnoreCase(column.getColumnName())) { // ignore case accommodates a db like
-							// Oracle
-							((ColumnMetaDataImpl) column).setPrimaryKey(true);
-							((TableMetaDataImpl) table).addPrimaryKey(column);
-						}
-					}
-				}
-			}
-		} catch (final SQLException exception) {
-			if (resultSet != null) {
-				resultSet.close();
-			}
-			if (statement != null) {
-				statement.close();
-			}
-			throw exception;
+			return true;
 		}
+		return false;
 	}
 
 	/**
-	 * Builds sequence metadata for all columns.
+	 * Builds list of primary key column labels, with one primary key query for all tables.
 	 * 
 	 * @param connection database connection
+	 * @param databaseNames distinct database names of all tables
+	 * @param tableNames distinct table names of all tables
 	 * @throws SQLException if a database access error occurs
 	 */
-	private void buildSequenceMetaData(final Connection connection) throws SQLException {
-
-		final PreparedStatement statement = connection.prepareStatement(getSqlColumnsQuery());
+	private void buildPrimaryKeys(final Connection connection, final List<String> databaseNames,
+			final List<String> tableNames) throws SQLException {
+		final Map<String, TableMetaData> tableLookup = getTableLookup();
+		PreparedStatement statement = null;
 		ResultSet resultSet = null;
 		try {
-			for (final TableMetaData table : tables) {
-				statement.setString(1, isDbMetaDataUpperCase() ? table.getDatabaseName().toUpperCase()
-						: table.getDatabaseName());
-				statement.setString(2,
-						isDbMetaDataUpperCase() ? table.getTableName().toUpperCase() : table.getTableName());
-				resultSet = statement.executeQuery();
-				while (resultSet.next()) {
-					final String columnName = resultSet.getString(1);
-					for (final ColumnMetaData column : table.getColumns().values()) {
-						if (column.getColumnName().equalsIgnoreCase(columnName)) { // ignore case accommodates a db like
-							// Oracle
-							setSequenceMetaData((ColumnMetaDataImpl) column, resultSet);
-							break;
-						}
+			statement = prepareTablesStatement(connection,
+					getSqlPkQuery(databaseNames.size(), tableNames.size()), databaseNames, tableNames);
+			resultSet = statement.executeQuery();
+			while (resultSet.next()) {
+				final TableMetaData table = tableLookup.get(getTableKey(resultSet.getString(2),
+						resultSet.getString(3)));
+				if (table == null) {
+					continue; // another combination of the database and table names
+				}
+				final String columnName = resultSet.getString(1);
+				for (final ColumnMetaData column : table.getColumns().values()) {
+					if (columnName.equalsIgnoreCase(column.getColumnName())) { // ignore case accommodates a db like
+						// Oracle
+						((ColumnMetaDataImpl) column).setPrimaryKey(true);
+						((TableMetaDataImpl) table).addPrimaryKey(column);
 					}
 				}
 			}
-		} catch (final SQLException exception) {
-			if (resultSet != null) {
-				resultSet.close();
-			}
-			if (statement != null) {
-				statement.close();
-			}
-			throw exception;
+		} finally {
+			close(resultSet, statement);
 		}
 	}
 
@@ -651,7 +753,6 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 	 * @throws SQLException if a database access error occurs
 	 * @throws SqlResourceException if definition is invalid
 	 */
-	@SuppressWarnings("fallthrough")
 	private void buildTablesAndColumns(final ResultSet resultSet, final Connection connection)
 			throws SQLException, SqlResourceException {
 		final ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
@@ -703,27 +804,7 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 				tableMap.put(column.getQualifiedTableName(), table);
 				tables.add(table);
 				table.setAliases(tableDef.getAlias(), tableDef.getRowAlias(), tableDef.getRowSetAlias());
-
-				switch (table.getTableRole()) {
-					case Parent:
-						parentTable = table;
-						// fall through
-					case ParentExtension:
-						parentPlusExtTables.add(table);
-						break;
-					case Child:
-						childTable = table;
-						// fall through
-					case ChildExtension:
-						childPlusExtTables.add(table);
-						break;
-					case Join: // unlikely to be in the select columns, but just in case
-						joinTable = table;
-						joinList = new ArrayList<TableMetaData>(1);
-						joinList.add(joinTable);
-						break;
-					default: // Unknown
-				}
+				addTableReferences(table);
 			}
 
 			// Add column to the table
@@ -731,24 +812,29 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			column.setTableRole(table.getTableRole());
 
 			// Add column to special column lists
-			allReadColumns.add(column);
-			switch (table.getTableRole()) {
-				case Parent:
-				case ParentExtension:
-					parentReadColumns.add(column);
-					break;
-				case Child:
-				case ChildExtension:
-					childReadColumns.add(column);
-					break;
-				default: // Unknown
-			}
+			addReadColumn(column, table.getTableRole());
 		}
 
 		// Determine number of databases
 		multipleDatabases = databases.size() > 1;
 	}
 
+	/** Closes result set and statement, ignoring errors. */
+	private void close(final ResultSet resultSet, final Statement statement) {
+		if (resultSet != null) {
+			try {
+				resultSet.close();
+			} catch (final SQLException ignored) {
+			}
+		}
+		if (statement != null) {
+			try {
+				statement.close();
+			} catch (final SQLException ignored) {
+			}
+		}
+	}
+
 	private List<String> getQualifiedColumnNames(final List<ColumnMetaData> columns) {
 		if (columns != null) {
 			final List<String> names = new ArrayList<String>(columns.size());
@@ -780,4 +866,205 @@ public abstract class AbstractSqlResourceMetaData implements SqlResourceMetaData
 			return null;
 		}
 	}
+
+	/**
+	 * Returns key for table lookup. Keys ignore case, since db metadata may store names in a different case from the
+	 * definition.
+	 */
+	private String getTableKey(final String databaseName, final String tableName) {
+		return (databaseName + "." + tableName).toLowerCase();
+	}
+
+	/** Returns all tables keyed by database and table name, for matching rows of the batched metadata queries. */
+	private Map<String, TableMetaData> getTableLookup() {
+		final Map<String, TableMetaData> tableLookup = new HashMap<String, TableMetaData>(tables.size());
+		for (final TableMetaData table : tables) {
+			tableLookup.put(getTableKey(table.getDatabaseName(), table.getTableName()), table);
+		}
+		return tableLookup;
+	}
+
+	/** Prepares a batched metadata query, binding the database names and then the table names. */
+	private PreparedStatement prepareTablesStatement(final Connection connection, final String sql,
+			final List<String> databaseNames, final List<String> tableNames) throws SQLException {
+		final PreparedStatement statement = connection.prepareStatement(sql);
+		int parameter = 1;
+		for (final String databaseName : databaseNames) {
+			statement.setString(parameter++, databaseName);
+		}
+		for (final String tableName : tableNames) {
+			statement.setString(parameter++, tableName);
+		}
+		return statement;
+	}
+
+	/**
+	 * Populates tables and columns from a snapshot written by {@link #writeSnapshot()}.
+	 * 
+	 * @throws IOException if the snapshot is unreadable or has an unsupported version
+	 */
+	private void readSnapshot(final byte[] snapshot) throws IOException {
+		final DataInputStream input = new DataInputStream(new ByteArrayInputStream(snapshot));
+		if (input.readInt() != SNAPSHOT_VERSION) {
+			throw new IOException("unsupported snapshot version");
+		}
+		multipleDatabases = input.readBoolean();
+
+		final int tableCount = input.readInt();
+		tableMap = new HashMap<String, TableMetaData>(DEFAULT_NUMBER_TABLES);
+		tables = new ArrayList<TableMetaData>(tableCount);
+		childPlusExtTables = new ArrayList<TableMetaData>(DEFAULT_NUMBER_TABLES);
+		parentPlusExtTables = new ArrayList<TableMetaData>(DEFAULT_NUMBER_TABLES);
+		for (int i = 0; i < tableCount; i++) {
+			final TableMetaData table = Factory.getTableMetaData();
+			table.setAttributes(readString(input), readString(input), readString(input),
+					TableRole.valueOf(input.readUTF()));
+			table.setAliases(null, readString(input), readString(input));
+			tableMap.put(table.getQualifiedTableName(), table);
+			tables.add(table);
+			addTableReferences(table);
+		}
+
+		final int columnCount = input.readInt();
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>(columnCount);
+		allReadColumns = new ArrayList<ColumnMetaData>(columnCount);
+		parentReadColumns = new ArrayList<ColumnMetaData>(columnCount);
+		childReadColumns = new ArrayList<ColumnMetaData>(columnCount);
+		for (int i = 0; i < columnCount; i++) {
+			final TableMetaData table = tables.get(input.readInt());
+			final ColumnMetaData column = Factory.getColumnMetaData();
+			if (input.readBoolean()) { // nonqueried foreign key or join table column
+				column.setAttributes(readString(input), readString(input), readString(input),
+						table.getTableRole(), readString(input), readString(input), readString(input),
+						readString(input), readString(input));
+			} else {
+				column.setAttributes(input.readInt(), readString(input), readString(input), readString(input),
+						readString(input), readString(input), readString(input), readString(input),
+						readString(input), input.readInt(), input.readBoolean());
+				column.setTableRole(table.getTableRole());
+				addReadColumn(column, table.getTableRole());
+			}
+			column.setPrimaryKey(input.readBoolean());
+			column.setSequence(input.readBoolean());
+			column.setSequenceName(readString(input));
+			table.addColumn(column);
+			columns.add(column);
+		}
+
+		for (final TableMetaData table : tables) {
+			final int primaryKeyCount = input.readInt();
+			for (int i = 0; i < primaryKeyCount; i++) {
+				table.addPrimaryKey(columns.get(input.readInt()));
+			}
+		}
+
+		documentation = definition.getDocumentation();
+		hierarchical = getChild() != null;
+	}
+
+	private String readString(final DataInputStream input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+	/**
+	 * Builds metadata from the database with a new instance and compares it with the snapshot loaded. If they differ
+	 * the snapshot is replaced and the resource is reloaded, which swaps in the current metadata. The replaced snapshot is
+	 * new, so the reload does not revalidate it again.
+	 */
+	private void revalidateSnapshot(final String key, final byte[] snapshot, final SqlBuilder sqlBuilder) {
+		try {
+			final AbstractSqlResourceMetaData current = getClass().getDeclaredConstructor().newInstance();
+			current.resName = resName;
+			current.definition = definition;
+			current.buildFromDatabase(sqlBuilder);
+			final byte[] currentSnapshot = current.writeSnapshot();
+			if (!Arrays.equals(snapshot, currentSnapshot)) {
+				MetaDataSnapshotStore.save(resName, key, currentSnapshot);
+				Config.logger.warn("Meta data for " + resName
+						+ " has changed since its snapshot was saved; reloading the resource");
+				Factory.reloadSqlResource(resName);
+			} else {
+				MetaDataSnapshotStore.markValidated(resName);
+			}
+		} catch (final Exception exception) {
+			Config.logger.warn("Error revalidating metadata snapshot for " + resName + " -- "
+					+ exception.getMessage());
+		}
+	}
+
+	/**
+	 * Serializes tables and columns. Queried columns are written in column number order, followed by each table's
+	 * nonqueried foreign key and join table columns, then each table's primary keys as column indexes.
+	 */
+	private byte[] writeSnapshot() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		final DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(SNAPSHOT_VERSION);
+		output.writeBoolean(multipleDatabases);
+
+		output.writeInt(tables.size());
+		for (final TableMetaData table : tables) {
+			writeString(output, table.getTableName());
+			writeString(output, table.getQualifiedTableName());
+			writeString(output, table.getDatabaseName());
+			output.writeUTF(table.getTableRole().name());
+			writeString(output, table.getRowAlias());
+			writeString(output, table.getRowSetAlias());
+		}
+
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>(allReadColumns);
+		for (final TableMetaData table : tables) {
+			for (final ColumnMetaData column : table.getColumns().values()) {
+				if (column.isNonqueriedForeignKey()) {
+					columns.add(column);
+				}
+			}
+		}
+		output.writeInt(columns.size());
+		for (final ColumnMetaData column : columns) {
+			output.writeInt(tables.indexOf(tableMap.get(column.getQualifiedTableName())));
+			output.writeBoolean(column.isNonqueriedForeignKey());
+			if (column.isNonqueriedForeignKey()) {
+				writeString(output, column.getDatabaseName());
+				writeString(output, column.getQualifiedTableName());
+				writeString(output, column.getTableName());
+				writeString(output, column.getColumnName());
+				writeString(output, column.getQualifiedColumnName());
+				writeString(output, column.getColumnLabel());
+				writeString(output, column.getQualifiedColumnLabel());
+				writeString(output, column.getColumnTypeName());
+			} else {
+				output.writeInt(column.getColumnNumber());
+				writeString(output, column.getDatabaseName());
+				writeString(output, column.getQualifiedTableName());
+				writeString(output, column.getTableName());
+				writeString(output, column.getColumnName());
+				writeString(output, column.getQualifiedColumnName());
+				writeString(output, column.getColumnLabel());
+				writeString(output, column.getQualifiedColumnLabel());
+				writeString(output, column.getColumnTypeName());
+				output.writeInt(column.getColumnType());
+				output.writeBoolean(column.isReadOnly());
+			}
+			output.writeBoolean(column.isPrimaryKey());
+			output.writeBoolean(column.isSequence());
+			writeString(output, column.getSequenceName());
+		}
+
+		for (final TableMetaData table : tables) {
+			output.writeInt(table.getPrimaryKeys().size());
+			for (final ColumnMetaData primaryKey : table.getPrimaryKeys()) {
+				output.writeInt(columns.indexOf(primaryKey));
+			}
+		}
+		output.close();
+		return bytes.toByteArray();
+	}
+
+	private void writeString(final DataOutputStream output, final String value) throws IOException {
+		output.writeBoolean(value != null);
+		if (value != null) {
+			output.writeUTF(value);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.restsql.core.Config;
+
+/**
+ * Writes request log entries from a bounded ring buffer on a single background thread, so request threads only pay for
+ * an enqueue. When the buffer is full, the configured policy either drops the entry (counting it and periodically
+ * reporting the count to the internal log) or blocks the request thread until there is room. If the writer is disabled
+ * or has been shut down, entries are written on the calling thread.
+ *
+ * @author Mark Sawers
+ */
+public class AsyncRequestLogWriter {
+	static final String POLICY_BLOCK = "block";
+	static final String POLICY_DROP = "drop";
+
+	private static final int DRAIN_BATCH_SIZE = 256;
+	private static final long DROP_REPORT_INTERVAL = 60000;
+	private static volatile boolean initialized = false;
+	private static volatile AsyncRequestLogWriter instance;
+
+	private final boolean blockWhenFull;
+	private final AtomicLong droppedEntries = new AtomicLong();
+	private final BlockingQueue<Entry> queue;
+	private volatile boolean running = true;
+	private final Thread writerThread;
+
+	/** Returns the configured writer, creating and starting it on first use, or null if asynchronous logging is off. */
+	public static AsyncRequestLogWriter getInstance() {
+		if (!initialized) {
+			initialize();
+		}
+		return instance;
+	}
+
+	/**
+	 * Stops the writer, if started, after writing entries already buffered. Later entries are written on the calling
+	 * thread.
+	 */
+	public static synchronized void shutdown() {
+		initialized = true;
+		if (instance != null) {
+			instance.stop();
+			instance = null;
+		}
+	}
+
+	private static synchronized void initialize() {
+		if (!initialized
+				&& Boolean.valueOf(Config.properties.getProperty(Config.KEY_LOGGING_ASYNC,
+						Config.DEFAULT_LOGGING_ASYNC))) {
+			final int capacity = Integer.parseInt(Config.properties.getProperty(
+					Config.KEY_LOGGING_ASYNC_BUFFER_SIZE, Config.DEFAULT_LOGGING_ASYNC_BUFFER_SIZE));
+			final String policy = Config.properties.getProperty(Config.KEY_LOGGING_ASYNC_FULL_POLICY,
+					Config.DEFAULT_LOGGING_ASYNC_FULL_POLICY);
+			instance = new AsyncRequestLogWriter(capacity, !POLICY_DROP.equalsIgnoreCase(policy));
+			if (Config.logger.isInfoEnabled()) {
+				Config.logger.info("Writing request logs asynchronously with buffer size " + capacity
+						+ " and policy " + (instance.blockWhenFull ? POLICY_BLOCK : POLICY_DROP));
+			}
+		}
+		initialized = true;
+	}
+
+	private AsyncRequestLogWriter(final int capacity, final boolean blockWhenFull) {
+		this.blockWhenFull = blockWhenFull;
+		queue = new ArrayBlockingQueue<Entry>(capacity);
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drainUntilStopped();
+			}
+		}, "restsql-request-log-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/** Returns count of entries dropped because the buffer was full. */
+	public long getDroppedEntries() {
+		return droppedEntries.get();
+	}
+
+	/** Enqueues the lines for the logger, writing them on the calling thread if the writer has been stopped. */
+	public void write(final Log logger, final List<String> lines) {
+		final Entry entry = new Entry(logger, lines);
+		if (!running) {
+			entry.write();
+		} else if (blockWhenFull) {
+			try {
+				queue.put(entry);
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				entry.write();
+			}
+		} else if (!queue.offer(entry)) {
+			droppedEntries.incrementAndGet();
+		}
+	}
+
+	// Private utils
+
+	private void drainUntilStopped() {
+		final List<Entry> batch = new ArrayList<Entry>(DRAIN_BATCH_SIZE);
+		long reportedDrops = 0;
+		long nextDropReport = System.currentTimeMillis() + DROP_REPORT_INTERVAL;
+		while (running || !queue.isEmpty()) {
+			try {
+				final Entry first = queue.poll(1, TimeUnit.SECONDS);
+				if (first != null) {
+					first.write();
+					queue.drainTo(batch, DRAIN_BATCH_SIZE);
+					for (final Entry entry : batch) {
+						entry.write();
+					}
+					batch.clear();
+				}
+			} catch (final InterruptedException exception) {
+				// stop() interrupts to end the wait, the loop condition decides whether to continue
+			} catch (final RuntimeException exception) {
+				Config.logger.error("Error writing request log entry", exception);
+			}
+
+			if (System.currentTimeMillis() >= nextDropReport) {
+				final long drops = droppedEntries.get();
+				if (drops > reportedDrops) {
+					Config.logger.warn("Request log buffer full -- dropped " + (drops - reportedDrops)
+							+ " entries, " + drops + " total");
+					reportedDrops = drops;
+				}
+				nextDropReport = System.currentTimeMillis() + DROP_REPORT_INTERVAL;
+			}
+		}
+	}
+
+	private void stop() {
+		running = false;
+		writerThread.interrupt();
+		try {
+			writerThread.join(5000);
+		} catch (final InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Lines bound for one logger, written in order. */
+	private static class Entry {
+		private final List<String> lines;
+		private final Log logger;
+
+		Entry(final Log logger, final List<String> lines) {
+			this.logger = logger;
+			this.lines = lines;
+		}
+
+		void write() {
+			for (final String line : lines) {
+				logger.info(line);
+			}
+		}
+	}
+}
@@ -178,11 +178,14 @@ public final class MediaTypeParser
                     int fitness = (range.type.equals(target.type)) ? 100 : 0;
                     fitness += (range.subType.equals(target.subType)) ? 10 : 0;
                     fitness += paramMatches;
-                    if (fitness > bestFitness)
+                    // Of equally fit ranges, e.g. application/json with
+                    // different parameters, the highest quality applies
+                    float q = NumberUtils.toFloat(range.params.get("q"), 0);
+                    if (fitness > bestFitness
+                            || (fitness == bestFitness && q > bestFitQ))
                     {
                         bestFitness = fitness;
-                        bestFitQ = NumberUtils
-                                .toFloat(range.params.get("q"), 0);
+                        bestFitQ = q;
                     }
                 }
             }
@@ -0,0 +1,229 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.restsql.core.Config;
+import org.restsql.core.sqlresource.ObjectFactory;
+import org.restsql.core.sqlresource.SqlResourceDefinition;
+
+/**
+ * Persists built SQL Resource metadata to local disk so that startup can skip database introspection. Each resource has
+ * one snapshot file, <code>{metadata.snapshot.dir}/{resName}.snapshot</code>, holding a key and the serialized
+ * metadata. The key is a hash of the metadata implementation, the database url and the definition XML, so a changed
+ * definition or database never uses a stale snapshot. Snapshots loaded are optionally revalidated against the database
+ * on a background thread, which rewrites the snapshot if the database has changed. A snapshot is only revalidated if it
+ * was not written or revalidated within the configured interval, tracked by the file's modification time, so restarts
+ * and reloads do not each repeat the introspection. The store is disabled when no directory is configured.
+ *
+ * @author Mark Sawers
+ */
+public class MetaDataSnapshotStore {
+	private static final String FILE_EXTENSION = ".snapshot";
+	private static final String dir = Config.properties.getProperty(Config.KEY_METADATA_SNAPSHOT_DIR, null);
+	private static final boolean revalidate = Boolean.valueOf(Config.properties.getProperty(
+			Config.KEY_METADATA_SNAPSHOT_REVALIDATE, Config.DEFAULT_METADATA_SNAPSHOT_REVALIDATE));
+	private static final long revalidateInterval = Long.parseLong(Config.properties.getProperty(
+			Config.KEY_METADATA_SNAPSHOT_REVALIDATE_INTERVAL,
+			Config.DEFAULT_METADATA_SNAPSHOT_REVALIDATE_INTERVAL)) * 1000;
+	private static final Set<String> revalidating = new HashSet<String>();
+	private static ExecutorService revalidator;
+
+	/**
+	 * Returns snapshot key for a resource.
+	 *
+	 * @param definition resource definition
+	 * @param metaDataClass metadata implementation
+	 * @throws IOException if the definition cannot be serialized
+	 */
+	public static String getKey(final SqlResourceDefinition definition, final Class<?> metaDataClass)
+			throws IOException {
+		final StringWriter writer = new StringWriter(2000);
+		writer.append(metaDataClass.getName());
+		writer.append('\n');
+		writer.append(Config.properties.getProperty(Config.KEY_DATABASE_URL, Config.DEFAULT_DATABASE_URL));
+		writer.append('\n');
+		try {
+			final JAXBContext context = JAXBContext.newInstance(ObjectFactory.class);
+			final Marshaller marshaller = context.createMarshaller();
+			marshaller.marshal(new ObjectFactory().createSqlResource(definition), writer);
+		} catch (final JAXBException exception) {
+			throw new IOException(exception.toString());
+		}
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(writer.toString().getBytes("UTF-8"));
+			final StringBuilder key = new StringBuilder(digest.length * 2);
+			for (final byte b : digest) {
+				key.append(Character.forDigit((b >> 4) & 0xF, 16));
+				key.append(Character.forDigit(b & 0xF, 16));
+			}
+			return key.toString();
+		} catch (final NoSuchAlgorithmException exception) {
+			throw new IOException(exception.toString());
+		}
+	}
+
+	/** Returns true if a snapshot directory is configured. */
+	public static boolean isEnabled() {
+		return dir != null;
+	}
+
+	/**
+	 * Returns serialized metadata for the resource, or null if there is no snapshot or it has a different key.
+	 *
+	 * @param resName resource name
+	 * @param key snapshot key
+	 */
+	public static byte[] load(final String resName, final String key) {
+		final File file = getFile(resName);
+		if (!file.isFile()) {
+			return null;
+		}
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new FileInputStream(file));
+			if (!key.equals(input.readUTF())) {
+				return null;
+			}
+			final byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			return bytes;
+		} catch (final IOException exception) {
+			Config.logger.warn("Error reading metadata snapshot " + file + " -- " + exception.getMessage());
+			return null;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (final IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records that the resource's snapshot matches the database, deferring its next revalidation by the interval.
+	 *
+	 * @param resName resource name
+	 */
+	public static void markValidated(final String resName) {
+		final File file = getFile(resName);
+		if (file.isFile() && !file.setLastModified(System.currentTimeMillis())) {
+			Config.logger.warn("Error marking metadata snapshot " + file + " as revalidated");
+		}
+	}
+
+	/**
+	 * Runs a task that checks a loaded snapshot against the database, if revalidation is enabled and the snapshot was
+	 * not written or revalidated within the interval. Tasks run in order on a single daemon thread, and a resource
+	 * already waiting for revalidation is not queued again.
+	 *
+	 * @param resName resource name
+	 * @param task revalidation task
+	 */
+	public static synchronized void revalidate(final String resName, final Runnable task) {
+		if (revalidate && getFile(resName).lastModified() + revalidateInterval <= System.currentTimeMillis()
+				&& revalidating.add(resName)) {
+			if (revalidator == null) {
+				revalidator = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "restsql-metadata-revalidator");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			revalidator.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						synchronized (MetaDataSnapshotStore.class) {
+							revalidating.remove(resName);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Writes serialized metadata for the resource. The snapshot is written to a temporary file and renamed so that
+	 * readers never see a partial snapshot. Errors are logged, not thrown, since the snapshot is only an optimization.
+	 *
+	 * @param resName resource name
+	 * @param key snapshot key
+	 * @param bytes serialized metadata
+	 */
+	public static void save(final String resName, final String key, final byte[] bytes) {
+		final File file = getFile(resName);
+		final File tempFile = new File(file.getPath() + ".tmp");
+		DataOutputStream output = null;
+		try {
+			file.getParentFile().mkdirs();
+			output = new DataOutputStream(new FileOutputStream(tempFile));
+			output.writeUTF(key);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+			output.close();
+			output = null;
+			if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+				throw new IOException("cannot rename " + tempFile);
+			}
+			if (Config.logger.isDebugEnabled()) {
+				Config.logger.debug("Wrote metadata snapshot " + file);
+			}
+		} catch (final IOException exception) {
+			Config.logger.warn("Error writing metadata snapshot " + file + " -- " + exception.getMessage());
+			tempFile.delete();
+		} finally {
+			if (output != null) {
+				try {
+					output.close();
+				} catch (final IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/** Stops the revalidator, if started, abandoning queued revalidations. */
+	public static synchronized void shutdown() {
+		if (revalidator != null) {
+			revalidator.shutdownNow();
+			try {
+				revalidator.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+			revalidator = null;
+			revalidating.clear();
+		}
+	}
+
+	// Private utils
+
+	/** Returns snapshot file. Resource names in sub-directories use dots, which are kept in the file name. */
+	private static File getFile(final String resName) {
+		return new File(dir, resName + FILE_EXTENSION);
+	}
+}
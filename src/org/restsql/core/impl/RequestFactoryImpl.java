@@ -129,6 +129,7 @@ public class RequestFactoryImpl implements RequestFactory {
 
 		switch (type) {
 			case INSERT:
+			case UPSERT:
 				if (params == null && childrenParams == null) {
 					throw new InvalidRequestException(InvalidRequestException.MESSSAGE_INSERT_MISSING_PARAMS);
 				}
@@ -1,38 +1,75 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core.impl;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang.time.FastDateFormat;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.restsql.core.Config;
 import org.restsql.core.Factory;
 import org.restsql.core.HttpRequestAttributes;
+import org.restsql.core.PhaseTimingRequestLogger;
 import org.restsql.core.Request;
 
 /**
  * Logs request for troubleshooting applications. The implementation logs requests to access, error and trace logs.
+ * Entries are handed to the {@link AsyncRequestLogWriter} when asynchronous logging is enabled, otherwise written on
+ * the request thread. Request and response bodies in the trace log are truncated to a configured length, and trace
+ * entries for successful requests may be sampled. Access entries end with the elapsed time of each processing
+ * {@link PhaseTimingRequestLogger.Phase}.
  * 
  * @author Mark Sawers
  */
-public class RequestLoggerImpl implements org.restsql.core.RequestLogger {
+public class RequestLoggerImpl implements PhaseTimingRequestLogger {
 	private static final Log accessLogger = LogFactory.getLog(Config.NAME_LOGGER_ACCESS);
-	private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss,SSS");
+	private static final FastDateFormat DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss,SSS");
 	private static final Log errorLogger = LogFactory.getLog(Config.NAME_LOGGER_ERROR);
 	private static final Log traceLogger = LogFactory.getLog(Config.NAME_LOGGER_TRACE);
+	private static final int TRACE_MAX_BODY_LENGTH = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_LOGGING_TRACE_MAX_BODY_LENGTH, Config.DEFAULT_LOGGING_TRACE_MAX_BODY_LENGTH));
+	private static final AtomicLong traceSampleCounter = new AtomicLong();
+	private static final int TRACE_SAMPLE_RATE = Math.max(1, Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_LOGGING_TRACE_SAMPLE_RATE, Config.DEFAULT_LOGGING_TRACE_SAMPLE_RATE)));
 
 	private List<String> sqls;
-	private final GregorianCalendar startTime;
+	private int chunkCount;
+	private final long[] phaseTimes = new long[Phase.values().length];
+	private int rowCount;
+	private final long startTime;
 	private HttpRequestAttributes httpAttributes;
 
 	public RequestLoggerImpl() {
-		startTime = new GregorianCalendar();
+		startTime = System.currentTimeMillis();
 		httpAttributes = Factory.getHttpRequestAttributes("?", "?", "?", null, null, null);
 	}
 
+	/**
+	 * Adds to the number of chunks executed by chunked deletes and updates. Used by the framework.
+	 */
+	@Override
+	public void addChunkCount(final int chunkCount) {
+		this.chunkCount += chunkCount;
+	}
+
+	/**
+	 * Adds elapsed time to a processing phase. Used by the framework.
+	 */
+	@Override
+	public void addPhaseTime(final Phase phase, final long nanos) {
+		phaseTimes[phase.ordinal()] += nanos;
+	}
+
+	/**
+	 * Adds to the number of rows read or affected by the request. Used by the framework.
+	 */
+	@Override
+	public void addRowCount(final int rowCount) {
+		this.rowCount += rowCount;
+	}
+
 	/**
 	 * Adds a SQL statement generated during request processing. Used by the framework.
 	 */
@@ -44,6 +81,30 @@ public class RequestLoggerImpl implements org.restsql.core.RequestLogger {
 		sqls.add(sql);
 	}
 
+	/**
+	 * Returns number of chunks executed by chunked deletes and updates.
+	 */
+	@Override
+	public int getChunkCount() {
+		return chunkCount;
+	}
+
+	/**
+	 * Returns accumulated time in nanoseconds for each processing phase, indexed by phase ordinal.
+	 */
+	@Override
+	public long[] getPhaseTimes() {
+		return phaseTimes;
+	}
+
+	/**
+	 * Returns number of rows read or affected by the request.
+	 */
+	@Override
+	public int getRowCount() {
+		return rowCount;
+	}
+
 	/**
 	 * Returns list of SQL statements generated during request processing. Intended for Java API clients.
 	 */
@@ -94,15 +155,52 @@ public class RequestLoggerImpl implements org.restsql.core.RequestLogger {
 
 	// Private utils
 
+	/** Returns body, truncated to the configured trace length if it is longer. */
+	private static String abbreviateBody(final String body) {
+		if (TRACE_MAX_BODY_LENGTH > 0 && body.length() > TRACE_MAX_BODY_LENGTH) {
+			final StringBuilder string = new StringBuilder(TRACE_MAX_BODY_LENGTH + 40);
+			string.append(body, 0, TRACE_MAX_BODY_LENGTH);
+			string.append("... [");
+			string.append(body.length() - TRACE_MAX_BODY_LENGTH);
+			string.append(" more chars]");
+			return string.toString();
+		}
+		return body;
+	}
+
+	/** Appends nanos as milliseconds with microsecond precision, e.g. 12.345. */
+	private static void appendMillis(final StringBuilder string, final long nanos) {
+		final long micros = nanos / 1000;
+		string.append(micros / 1000);
+		string.append('.');
+		final long fraction = micros % 1000;
+		if (fraction < 100) {
+			string.append(fraction < 10 ? "00" : "0");
+		}
+		string.append(fraction);
+	}
+
+	/** Writes lines to the logger, through the async writer if enabled. */
+	private static void write(final Log logger, final List<String> lines) {
+		final AsyncRequestLogWriter writer = AsyncRequestLogWriter.getInstance();
+		if (writer != null) {
+			writer.write(logger, lines);
+		} else {
+			for (final String line : lines) {
+				logger.info(line);
+			}
+		}
+	}
+
 	private String getAccess(final int responseCode) {
-		final StringBuffer string = new StringBuffer(300);
+		final StringBuilder string = new StringBuilder(300);
 
 		// Client
 		string.append(httpAttributes.getClient());
 
 		// Timestamp
 		string.append(' ');
-		string.append(DATE_FORMAT.format(startTime.getTime()));
+		string.append(DATE_FORMAT.format(startTime));
 
 		// Method
 		string.append(' ');
@@ -114,20 +212,28 @@ public class RequestLoggerImpl implements org.restsql.core.RequestLogger {
 
 		// Response Code
 		string.append(' ');
-		string.append(String.valueOf(responseCode));
+		string.append(responseCode);
 
 		// Elapsed time
 		string.append(' ');
-		string.append(String.valueOf(System.currentTimeMillis() - startTime.getTimeInMillis()));
+		string.append(System.currentTimeMillis() - startTime);
 		string.append("ms");
 
+		// Phase times
+		for (final Phase phase : Phase.values()) {
+			string.append(' ');
+			string.append(phase.getMetricName());
+			string.append('=');
+			appendMillis(string, phaseTimes[phase.ordinal()]);
+		}
+
 		return string.toString();
 	}
 
 	private String getBriefError(final int responseCode, final Exception exception) {
-		final StringBuffer string = new StringBuffer(300);
+		final StringBuilder string = new StringBuilder(300);
 		string.append("   ");
-		string.append(String.valueOf(responseCode));
+		string.append(responseCode);
 		string.append(": ");
 		string.append(exception.getMessage());
 		return string.toString();
@@ -137,15 +243,18 @@ public class RequestLoggerImpl implements org.restsql.core.RequestLogger {
 		if (accessLogger.isInfoEnabled() || errorLogger.isInfoEnabled() || traceLogger.isInfoEnabled()) {
 			final String access = getAccess(responseCode);
 			if (accessLogger.isInfoEnabled()) {
-				accessLogger.info(access);
+				final List<String> lines = new ArrayList<String>(2);
+				lines.add(access);
 				if (responseCode != 200 && exception != null) {
-					accessLogger.info(getBriefError(responseCode, exception));
+					lines.add(getBriefError(responseCode, exception));
 				}
+				write(accessLogger, lines);
 			}
 			if (errorLogger.isInfoEnabled() && exception != null) {
 				logComplete(errorLogger, access, responseBody, exception);
 			}
-			if (traceLogger.isInfoEnabled()) {
+			if (traceLogger.isInfoEnabled()
+					&& (exception != null || traceSampleCounter.getAndIncrement() % TRACE_SAMPLE_RATE == 0)) {
 				logComplete(traceLogger, access, responseBody, exception);
 			}
 		}
@@ -153,23 +262,23 @@ public class RequestLoggerImpl implements org.restsql.core.RequestLogger {
 
 	private void logComplete(final Log logger, final String access, final String responseBody,
 			final Exception exception) {
-		logger.info(access);
+		final List<String> lines = new ArrayList<String>(8 + (sqls == null ? 0 : sqls.size()));
+		lines.add(access);
 		if (httpAttributes.getRequestBody() != null) {
-			logger.info("   request:");
-			logger.info(httpAttributes.getRequestBody());
+			lines.add("   request:");
+			lines.add(abbreviateBody(httpAttributes.getRequestBody()));
 		}
 		if (sqls != null && sqls.size() > 0) {
-			logger.info("   sql:");
-			for (final String sql : sqls) {
-				logger.info(sql);
-			}
+			lines.add("   sql:");
+			lines.addAll(sqls);
 		}
-		logger.info("   response:");
+		lines.add("   response:");
 		if (responseBody != null) {
-			logger.info(responseBody);
+			lines.add(abbreviateBody(responseBody));
 		} else if (exception != null) { // should always be null at this point
-			logger.info(exception.getMessage());
+			lines.add(exception.getMessage());
 		}
-		logger.info("---------------------");
+		lines.add("---------------------");
+		write(logger, lines);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,236 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.time.FastDateFormat;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.restsql.core.BinaryObject;
+import org.restsql.core.Config;
+import org.restsql.core.Factory;
+import org.restsql.core.SqlBuilder.SqlStruct;
+
+/**
+ * Logs statements that take longer than a threshold to the slow query log, with their bound values, row count,
+ * duration and resource. The threshold is configured globally and may be overridden per resource. Optionally the
+ * statement's plan is captured with the dialect's EXPLAIN on a separate connection and attached. Entries are rate-limited
+ * on the request thread and written, together with any EXPLAIN, on a background thread; entries beyond the rate limit or
+ * the buffer are counted and the count is reported with the next entry written.
+ *
+ * @author Mark Sawers
+ */
+public class SlowQueryLogger {
+	private static final FastDateFormat DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss,SSS");
+	private static final boolean explain = Boolean.valueOf(Config.properties.getProperty(
+			Config.KEY_LOGGING_SLOW_QUERY_EXPLAIN, Config.DEFAULT_LOGGING_SLOW_QUERY_EXPLAIN));
+	private static final Log logger = LogFactory.getLog(Config.NAME_LOGGER_SLOW_QUERY);
+	private static final int maxPerMinute = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_LOGGING_SLOW_QUERY_MAX_PER_MINUTE, Config.DEFAULT_LOGGING_SLOW_QUERY_MAX_PER_MINUTE));
+	private static final AtomicLong suppressedEntries = new AtomicLong();
+	private static final AtomicInteger windowEntries = new AtomicInteger();
+	private static final AtomicLong windowStart = new AtomicLong();
+	private static volatile ThreadPoolExecutor writer;
+
+	/**
+	 * Returns slow query threshold in nanoseconds for a resource, or -1 if slow queries are not logged for it.
+	 *
+	 * @param resName resource name
+	 */
+	public static long getThreshold(final String resName) {
+		final String threshold = Config.properties.getProperty(Config.KEY_LOGGING_SLOW_QUERY_THRESHOLD + "."
+				+ resName, Config.properties.getProperty(Config.KEY_LOGGING_SLOW_QUERY_THRESHOLD,
+				Config.DEFAULT_LOGGING_SLOW_QUERY_THRESHOLD));
+		final long millis = Long.parseLong(threshold.trim());
+		return millis < 0 || !logger.isInfoEnabled() ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	/**
+	 * Queues a slow statement for logging, unless the rate limit is exceeded.
+	 *
+	 * @param resName resource name
+	 * @param defaultDatabase resource's default database, used for the EXPLAIN connection
+	 * @param sqlStruct statement
+	 * @param explainSql EXPLAIN statement for the prepared statement, or null for none
+	 * @param nanos duration
+	 * @param rowCount rows returned or affected
+	 */
+	public static void log(final String resName, final String defaultDatabase, final SqlStruct sqlStruct,
+			final String explainSql, final long nanos, final int rowCount) {
+		if (!isWithinRateLimit()) {
+			suppressedEntries.incrementAndGet();
+			return;
+		}
+		final Entry entry = new Entry(resName, defaultDatabase, sqlStruct, explain ? explainSql : null, nanos,
+				rowCount);
+		try {
+			getWriter().execute(entry);
+		} catch (final RejectedExecutionException exception) {
+			suppressedEntries.incrementAndGet();
+		}
+	}
+
+	/** Stops the writer, if started, after writing entries already queued. */
+	public static synchronized void shutdown() {
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				writer.awaitTermination(5, TimeUnit.SECONDS);
+			} catch (final InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+			writer = null;
+		}
+	}
+
+	// Private utils
+
+	private static ThreadPoolExecutor getWriter() {
+		ThreadPoolExecutor executor = writer;
+		if (executor == null) {
+			synchronized (SlowQueryLogger.class) {
+				executor = writer;
+				if (executor == null) {
+					final int bufferSize = Integer.parseInt(Config.properties.getProperty(
+							Config.KEY_LOGGING_SLOW_QUERY_BUFFER_SIZE,
+							Config.DEFAULT_LOGGING_SLOW_QUERY_BUFFER_SIZE));
+					executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+							bufferSize), new ThreadFactory() {
+						@Override
+						public Thread newThread(final Runnable runnable) {
+							final Thread thread = new Thread(runnable, "restsql-slow-query-writer");
+							thread.setDaemon(true);
+							return thread;
+						}
+					}, new ThreadPoolExecutor.AbortPolicy());
+					writer = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/** Counts entry against the current one minute window, returning false if the window's limit is reached. */
+	private static boolean isWithinRateLimit() {
+		final long now = System.currentTimeMillis();
+		final long start = windowStart.get();
+		if (now - start >= 60000 && windowStart.compareAndSet(start, now)) {
+			windowEntries.set(0);
+		}
+		return windowEntries.incrementAndGet() <= maxPerMinute;
+	}
+
+	/** Slow statement to log, with its optional plan. */
+	private static class Entry implements Runnable {
+		private final String defaultDatabase;
+		private final String explainSql;
+		private final long nanos;
+		private final String resName;
+		private final int rowCount;
+		private final SqlStruct sqlStruct;
+		private final long timestamp = System.currentTimeMillis();
+
+		Entry(final String resName, final String defaultDatabase, final SqlStruct sqlStruct,
+				final String explainSql, final long nanos, final int rowCount) {
+			this.resName = resName;
+			this.defaultDatabase = defaultDatabase;
+			this.sqlStruct = sqlStruct;
+			this.explainSql = explainSql;
+			this.nanos = nanos;
+			this.rowCount = rowCount;
+		}
+
+		@Override
+		public void run() {
+			final List<String> lines = new ArrayList<String>(16);
+			final StringBuilder string = new StringBuilder(200);
+			string.append(DATE_FORMAT.format(timestamp));
+			string.append(" resource=");
+			string.append(resName);
+			string.append(" duration=");
+			string.append(TimeUnit.NANOSECONDS.toMillis(nanos));
+			string.append("ms rows=");
+			string.append(rowCount);
+			lines.add(string.toString());
+			lines.add("   sql:");
+			lines.add(sqlStruct.getPreparedStatement());
+			lines.add("   values:");
+			lines.add(sqlStruct.getPreparedValues().toString());
+			if (explainSql != null) {
+				lines.add("   plan:");
+				addPlan(lines);
+			}
+			final long suppressed = suppressedEntries.getAndSet(0);
+			if (suppressed > 0) {
+				lines.add("   (" + suppressed + " slow queries not logged since the last entry)");
+			}
+			lines.add("---------------------");
+			for (final String line : lines) {
+				logger.info(line);
+			}
+		}
+
+		private void addPlan(final List<String> lines) {
+			Connection connection = null;
+			try {
+				connection = Factory.getConnection(defaultDatabase);
+				final PreparedStatement statement = connection.prepareStatement(explainSql);
+				for (int i = 0; i < sqlStruct.getPreparedValues().size(); i++) {
+					final Object value = sqlStruct.getPreparedValues().get(i);
+					if (value instanceof BinaryObject) {
+						statement.setBytes(i + 1, ((BinaryObject) value).getBytes());
+					} else {
+						statement.setObject(i + 1, value);
+					}
+				}
+				final ResultSet resultSet = statement.executeQuery();
+				final ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+				final int columnCount = resultSetMetaData.getColumnCount();
+				if (columnCount > 1) {
+					final StringBuilder header = new StringBuilder(200);
+					for (int i = 1; i <= columnCount; i++) {
+						if (i > 1) {
+							header.append('\t');
+						}
+						header.append(resultSetMetaData.getColumnLabel(i));
+					}
+					lines.add(header.toString());
+				}
+				while (resultSet.next()) {
+					final StringBuilder row = new StringBuilder(200);
+					for (int i = 1; i <= columnCount; i++) {
+						if (i > 1) {
+							row.append('\t');
+						}
+						row.append(resultSet.getString(i));
+					}
+					lines.add(row.toString());
+				}
+				resultSet.close();
+				statement.close();
+			} catch (final SQLException exception) {
+				lines.add("EXPLAIN failed: " + exception.getMessage());
+			} finally {
+				if (connection != null) {
+					try {
+						connection.close();
+					} catch (final SQLException ignored) {
+					}
+				}
+			}
+		}
+	}
+}
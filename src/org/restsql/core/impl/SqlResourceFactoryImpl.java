@@ -6,10 +6,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -23,48 +23,38 @@ import org.restsql.core.Factory.SqlResourceFactoryException;
 import org.restsql.core.SqlBuilder;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
-import org.restsql.core.Trigger;
 import org.restsql.core.sqlresource.ObjectFactory;
 import org.restsql.core.sqlresource.SqlResourceDefinition;
 
 /**
  * Manages SQL Resource construction. Loads definitions from XML files in the directory <code>sqlresources.dir</code> on
- * first request. Use {@link #reloadSqlResource(String)} to refresh with the latest definition.
+ * first request. Use {@link #reloadSqlResource(String)} to refresh with the latest definition. When
+ * <code>sqlresources.watch</code> is enabled, a {@link SqlResourceWatcher} reloads changed definitions automatically.
+ * Reloads build the new SQL Resource before replacing the old one, so requests in progress complete with the version
+ * they started with.
  * 
  * @author Mark Sawers
  */
 public class SqlResourceFactoryImpl implements SqlResourceFactory {
-	private final Map<String, SqlResource> sqlResources = new HashMap<String, SqlResource>();
+	private final ConcurrentMap<String, SqlResource> sqlResources = new ConcurrentHashMap<String, SqlResource>();
 	private String sqlResourcesDir;
 
-	@SuppressWarnings("unchecked")
+	public SqlResourceFactoryImpl() {
+		if (Boolean.valueOf(Config.properties.getProperty(Config.KEY_SQLRESOURCES_WATCH,
+				Config.DEFAULT_SQLRESOURCES_WATCH))) {
+			SqlResourceWatcher.start(this);
+		}
+	}
+
 	@Override
 	public SqlResource getSqlResource(final String resName) throws SqlResourceFactoryException,
 			SqlResourceException {
 		SqlResource sqlResource = sqlResources.get(resName);
 		if (sqlResource == null) {
-			final InputStream inputStream = getInputStream(resName);
-			JAXBContext context;
-			try {
-				context = JAXBContext.newInstance(ObjectFactory.class);
-				final Unmarshaller unmarshaller = context.createUnmarshaller();
-				unmarshaller.setSchema(null);
-				final SqlResourceDefinition definition = ((JAXBElement<SqlResourceDefinition>) unmarshaller
-						.unmarshal(inputStream)).getValue();
-				final SqlBuilder sqlBuilder = Factory.getSqlBuilder();
-				sqlResource = new SqlResourceImpl(resName, definition, Factory.getSqlResourceMetaData(
-						resName, definition, sqlBuilder), sqlBuilder, new ArrayList<Trigger>());
-				sqlResources.put(resName, sqlResource);
-			} catch (final JAXBException exception) {
-				throw new SqlResourceFactoryException("Error unmarshalling SQL Resource "
-						+ getSqlResourceFileName(resName) + " -- " + exception.getMessage());
-			} finally {
-				if (inputStream != null) {
-					try {
-						inputStream.close();
-					} catch (Throwable t) {
-					}
-				}
+			sqlResource = buildSqlResource(resName);
+			final SqlResource existing = sqlResources.putIfAbsent(resName, sqlResource);
+			if (existing != null) {
+				sqlResource = existing;
 			}
 		}
 		return sqlResource;
@@ -102,18 +92,22 @@ public class SqlResourceFactoryImpl implements SqlResourceFactory {
 	}
 
 	/**
-	 * Reloads definition using the current file. Note this operation is not thread safe and should be run in
-	 * development mode only.
+	 * Reloads definition using the current file. The new SQL Resource replaces the previous one only once it is
+	 * completely built, so requests never see a partially built resource and a failed reload keeps the previous one.
 	 */
 	@Override
 	public void reloadSqlResource(final String resName) throws SqlResourceFactoryException,
 			SqlResourceException {
-		sqlResources.remove(resName);
-		getSqlResource(resName);
+		sqlResources.put(resName, buildSqlResource(resName));
 	}
 
 	// Package methods
 
+	/** Returns names of resources loaded, i.e. requested previously. */
+	List<String> getLoadedSqlResourceNames() {
+		return new ArrayList<String>(sqlResources.keySet());
+	}
+
 	/**
 	 * Returns available SQL Resource names using the provided directory. Used by testing infrastructure.
 	 * 
@@ -128,8 +122,41 @@ public class SqlResourceFactoryImpl implements SqlResourceFactory {
 		return resNames;
 	}
 
+	/** Discards a loaded resource, for example when its definition is deleted. */
+	void removeSqlResource(final String resName) {
+		sqlResources.remove(resName);
+	}
+
 	// Private utils
 
+	/** Builds SQL Resource from the current definition, including its metadata. */
+	@SuppressWarnings("unchecked")
+	private SqlResource buildSqlResource(final String resName) throws SqlResourceFactoryException,
+			SqlResourceException {
+		final InputStream inputStream = getInputStream(resName);
+		JAXBContext context;
+		try {
+			context = JAXBContext.newInstance(ObjectFactory.class);
+			final Unmarshaller unmarshaller = context.createUnmarshaller();
+			unmarshaller.setSchema(null);
+			final SqlResourceDefinition definition = ((JAXBElement<SqlResourceDefinition>) unmarshaller
+					.unmarshal(inputStream)).getValue();
+			final SqlBuilder sqlBuilder = Factory.getSqlBuilder();
+			return new SqlResourceImpl(resName, definition, Factory.getSqlResourceMetaData(resName, definition,
+					sqlBuilder), sqlBuilder, TriggerManager.getTriggers(resName));
+		} catch (final JAXBException exception) {
+			throw new SqlResourceFactoryException("Error unmarshalling SQL Resource "
+					+ getSqlResourceFileName(resName) + " -- " + exception.getMessage());
+		} finally {
+			if (inputStream != null) {
+				try {
+					inputStream.close();
+				} catch (Throwable t) {
+				}
+			}
+		}
+	}
+
 	/** Opens input stream to resource name. Callers must close stream. */
 	@SuppressWarnings("resource")
 	private InputStream getInputStream(final String resName) throws SqlResourceFactoryException {
@@ -5,25 +5,37 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.restsql.core.BatchSqlResource;
 import org.restsql.core.BinaryObject;
+import org.restsql.core.BulkLoader.RowSource;
+import org.restsql.core.BulkSqlBuilder;
 import org.restsql.core.ColumnMetaData;
 import org.restsql.core.Config;
+import org.restsql.core.ExplainSqlBuilder;
 import org.restsql.core.Factory;
 import org.restsql.core.InvalidRequestException;
+import org.restsql.core.PhaseTimingRequestLogger;
+import org.restsql.core.PhaseTimingRequestLogger.Phase;
 import org.restsql.core.Request;
 import org.restsql.core.Request.Type;
+import org.restsql.core.RequestLogger;
 import org.restsql.core.RequestValue;
+import org.restsql.core.ResponseSerializer;
 import org.restsql.core.ResponseValue;
+import org.restsql.core.RowCountingResponseSerializer;
 import org.restsql.core.SqlBuilder;
 import org.restsql.core.SqlBuilder.SqlStruct;
-import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
 import org.restsql.core.SqlResourceMetaData;
 import org.restsql.core.TableMetaData;
@@ -35,10 +47,12 @@ import org.restsql.core.sqlresource.SqlResourceDefinitionUtils;
 
 /**
  * Represents a SQL Resource, a queryable and updatable database "view". Loads metadata on creation and caches it.
+ * Times the SQL build, connection, execution, serialization and trigger phases of each request into the request's
+ * logger.
  * 
  * @author Mark Sawers
  */
-public class SqlResourceImpl implements SqlResource {
+public class SqlResourceImpl implements BatchSqlResource {
 
 	public static String removeWhitespaceFromSql(String sql) {
 		sql = sql.replaceAll("\\r", "");
@@ -50,10 +64,15 @@ public class SqlResourceImpl implements SqlResource {
 		return sql;
 	}
 
+	private static final long chunkPause = Long.parseLong(Config.properties.getProperty(
+			Config.KEY_DATABASE_CHUNKED_WRITE_PAUSE, Config.DEFAULT_DATABASE_CHUNKED_WRITE_PAUSE));
+
+	private final int chunkSize;
 	private final SqlResourceDefinition definition;
 
 	private final SqlResourceMetaData metaData;
 	private final String name;
+	private final long slowQueryThreshold;
 	private final SqlBuilder sqlBuilder;
 	private final List<Trigger> triggers;
 
@@ -66,6 +85,10 @@ public class SqlResourceImpl implements SqlResource {
 		this.metaData = metaData;
 		this.sqlBuilder = sqlBuilder;
 		this.triggers = triggers;
+		slowQueryThreshold = SlowQueryLogger.getThreshold(name);
+		chunkSize = Integer.parseInt(Config.properties.getProperty(Config.KEY_DATABASE_CHUNKED_WRITE_SIZE + "." + name,
+				Config.properties.getProperty(Config.KEY_DATABASE_CHUNKED_WRITE_SIZE,
+						Config.DEFAULT_DATABASE_CHUNKED_WRITE_SIZE)).trim());
 	}
 
 	@Override
@@ -88,6 +111,58 @@ public class SqlResourceImpl implements SqlResource {
 		return triggers;
 	}
 
+	/**
+	 * Loads rows into the parent table of a flat resource with the configured {@link org.restsql.core.BulkLoader}.
+	 * Triggers are not called.
+	 * 
+	 * @param columnLabels labels of the parent table columns of the rows' values, in order
+	 * @param rows row source
+	 * @param requestLogger request logger, may be null
+	 * @throws SqlResourceException if a label is not a writable parent table column or a database access error occurs
+	 * @return write response with the rows affected
+	 */
+	@Override
+	public WriteResponse load(final List<String> columnLabels, final RowSource rows,
+			final RequestLogger requestLogger) throws SqlResourceException {
+		if (metaData.isHierarchical()) {
+			throw new InvalidRequestException("Bulk loads are only supported for flat resources");
+		}
+		final TableMetaData table = metaData.getParent();
+		final List<ColumnMetaData> columns = new ArrayList<ColumnMetaData>(columnLabels.size());
+		for (final String columnLabel : columnLabels) {
+			final ColumnMetaData column = table.getColumns().get(columnLabel);
+			if (column == null || column.isNonqueriedForeignKey()) {
+				throw new InvalidRequestException("Column " + columnLabel + " is not a column of "
+						+ table.getQualifiedTableName());
+			} else if (column.isReadOnly()) {
+				throw new InvalidRequestException(InvalidRequestException.MESSAGE_READONLY_PARAM, columnLabel);
+			}
+			columns.add(column);
+		}
+
+		final WriteResponse response = new WriteResponse();
+		Connection connection = null;
+		try {
+			long start = System.nanoTime();
+			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+			start = addPhaseTime(requestLogger, Phase.CONNECTION, start);
+			final int rowsAffected = Factory.getBulkLoader().load(connection, table, columns, rows);
+			addPhaseTime(requestLogger, Phase.EXECUTION, start);
+			response.addRowsAffected(rowsAffected);
+			addRowCount(requestLogger, rowsAffected);
+		} catch (final SQLException exception) {
+			throw new SqlResourceException(exception);
+		} finally {
+			if (connection != null) {
+				try {
+					connection.close();
+				} catch (final SQLException ignored) {
+				}
+			}
+		}
+		return response;
+	}
+
 	/**
 	 * Executes query returning results as an object collection.
 	 * 
@@ -123,77 +198,12 @@ public class SqlResourceImpl implements SqlResource {
 	 */
 	@Override
 	public WriteResponse write(final Request request) throws SqlResourceException {
-		TriggerManager.executeTriggers(getName(), request, true);
-
-		// Init response
-		final WriteResponse response = new WriteResponse();
-		int rowsAffected = 0;
-		Set<ResponseValue> responseValues = null;
-		if (request.getType() == Type.INSERT) {
-			responseValues = new TreeSet<ResponseValue>();
-		}
-
-		boolean doParent = true;
 		Connection connection = null;
-
 		try {
+			final long start = System.nanoTime();
 			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
-			if (metaData.isHierarchical()) {
-				final Request childRequest = Factory.getChildRequest(request);
-				if (request.getChildrenParameters() != null) {
-
-					// Set up response
-					List<Set<ResponseValue>> childListResponseValues = null;
-					Set<ResponseValue> childResponseValues = null;
-					if (request.getType() == Type.INSERT) {
-						childListResponseValues = new ArrayList<Set<ResponseValue>>(request
-								.getChildrenParameters().size());
-						responseValues.add(new ResponseValue(getChildRowsName(), childListResponseValues,
-								Integer.MAX_VALUE));
-						// Add parent params, since we won't be executing the write on the parent
-						for (final TableMetaData table : metaData.getParentPlusExtTables()) {
-							addRequestParamsToResponseValues(request, responseValues, table);
-						}
-					}
-
-					// Delete, update or insert each specified child row
-					for (final List<RequestValue> childRowParams : request.getChildrenParameters()) {
-						if (request.getType() == Type.INSERT) {
-							// Set up response value set
-							childResponseValues = new TreeSet<ResponseValue>();
-							childListResponseValues.add(childResponseValues);
-
-							// Add the parent pks, since inserts ignore the resIds
-							childRowParams.addAll(request.getResourceIdentifiers());
-						} // else deletes and updates use resIds
-						childRequest.setParameters(childRowParams);
-						rowsAffected += execWrite(connection, childRequest, false, childResponseValues);
-					}
-					// Don't touch the parent(s)
-					doParent = false;
-				} else if (request.getType() == Request.Type.DELETE) {
-					// Delete all children and the parent(s)
-					if (request.getResourceIdentifiers() == null) {
-						childRequest.setParameters(request.getParameters());
-					}
-					rowsAffected += execWrite(connection, childRequest, false, responseValues);
-					// Now do the parent as well, doParent already equals true
-				}
-				// else just insert or update the parent (+ extensions)
-			} // else insert, update or delete the parent (+ extensions)
-
-			if (doParent) {
-				rowsAffected += execWrite(connection, request, true, responseValues);
-			}
-
-			TriggerManager.executeTriggers(getName(), request, false);
-
-			// Finalize response
-			if (request.getType() == Type.INSERT) {
-				response.addRow(responseValues);
-			}
-			response.addRowsAffected(rowsAffected);
-
+			addPhaseTime(request.getLogger(), Phase.CONNECTION, start);
+			return write(connection, request, true);
 		} catch (final SQLException exception) {
 			throw new SqlResourceException(exception);
 		} finally {
@@ -204,11 +214,117 @@ public class SqlResourceImpl implements SqlResource {
 				}
 			}
 		}
+	}
+
+	/**
+	 * Executes database writes for all rows of a request body. Any batch trigger is called once with all the requests,
+	 * other triggers once per request. Consecutive writes to a flat resource that the SQL builder can combine are
+	 * executed with one statement per table, in chunks: inserts with the same parameters as multi-row inserts, still
+	 * responding with a row per request, and deletes or updates by key as set-based statements with an IN predicate.
+	 * All the writes run in one transaction, which is rolled back if any of them fails, so either every request is
+	 * written or none is. Deletes and updates are not chunked, since chunks cannot be committed separately.
+	 * 
+	 * @param requests Request objects of the same type, one per row or parent row
+	 * @throws SqlResourceException if the request is invalid or a database access error or trigger exception occurs
+	 * @return write Response object, combined for all requests
+	 */
+	@Override
+	public WriteResponse write(final List<Request> requests) throws SqlResourceException {
+		final WriteResponse response = new WriteResponse();
+		if (!requests.isEmpty()) {
+			final RequestLogger requestLogger = requests.get(0).getLogger();
+			long start = System.nanoTime();
+			TriggerManager.executeBatchTriggers(triggers, requests, true);
+			start = addPhaseTime(requestLogger, Phase.TRIGGERS, start);
+			Connection connection = null;
+			try {
+				connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+				addPhaseTime(requestLogger, Phase.CONNECTION, start);
+				final boolean autoCommit = connection.getAutoCommit();
+				connection.setAutoCommit(false);
+				try {
+					int index = 0;
+					while (index < requests.size()) {
+						final int rowCount = getBulkWriteRowCount(requests, index);
+						if (rowCount > 1) {
+							response.addWriteResponse(writeBulk(connection, requests.subList(index, index
+									+ rowCount)));
+						} else {
+							response.addWriteResponse(write(connection, requests.get(index), false));
+						}
+						index += rowCount;
+					}
+					connection.commit();
+				} catch (final SQLException exception) {
+					connection.rollback();
+					throw exception;
+				} catch (final SqlResourceException exception) {
+					connection.rollback();
+					throw exception;
+				} finally {
+					connection.setAutoCommit(autoCommit);
+				}
+			} catch (final SQLException exception) {
+				throw new SqlResourceException(exception);
+			} finally {
+				if (connection != null) {
+					try {
+						connection.close();
+					} catch (final SQLException ignored) {
+					}
+				}
+			}
+			start = System.nanoTime();
+			TriggerManager.executeBatchTriggers(triggers, requests, false);
+			addPhaseTime(requestLogger, Phase.TRIGGERS, start);
+		}
 		return response;
 	}
 
 	// Private utils
 
+	/** Adds number of chunks to the logger, if it is a {@link PhaseTimingRequestLogger}. */
+	private static void addChunkCount(final RequestLogger requestLogger, final int chunkCount) {
+		if (requestLogger instanceof PhaseTimingRequestLogger) {
+			((PhaseTimingRequestLogger) requestLogger).addChunkCount(chunkCount);
+		}
+	}
+
+	/**
+	 * Adds time elapsed since start to the phase if the logger is a {@link PhaseTimingRequestLogger}, and returns the
+	 * current time.
+	 */
+	private static long addPhaseTime(final RequestLogger requestLogger, final Phase phase, final long start) {
+		final long now = System.nanoTime();
+		if (requestLogger instanceof PhaseTimingRequestLogger) {
+			((PhaseTimingRequestLogger) requestLogger).addPhaseTime(phase, now - start);
+		}
+		return now;
+	}
+
+	/** Adds number of rows read or affected to the logger, if it is a {@link PhaseTimingRequestLogger}. */
+	private static void addRowCount(final RequestLogger requestLogger, final int rowCount) {
+		if (requestLogger instanceof PhaseTimingRequestLogger) {
+			((PhaseTimingRequestLogger) requestLogger).addRowCount(rowCount);
+		}
+	}
+
+	/**
+	 * Adds generated sequence values in the current row of an insert's generated keys to the response values. Values
+	 * are read as longs so that BIGINT and BIGSERIAL keys are not truncated.
+	 */
+	private void addGeneratedKeys(final ResultSet resultSet, final List<ColumnMetaData> columns,
+			final Set<ResponseValue> responseValues) throws SQLException {
+		if (responseValues != null) {
+			final int count = Math.min(columns.size(), resultSet.getMetaData().getColumnCount());
+			for (int i = 0; i < count; i++) {
+				final ColumnMetaData column = columns.get(i);
+				responseValues.add(new ResponseValue(column.getColumnLabel(),
+						Long.valueOf(resultSet.getLong(i + 1)), column.getColumnNumber()));
+			}
+		}
+	}
+
 	/**
 	 * Converts the request params and resource IDs into response values and add to the result set.
 	 * 
@@ -324,15 +440,22 @@ public class SqlResourceImpl implements SqlResource {
 	}
 
 	private Object execRead(final Request request, final String contentType) throws SqlResourceException {
+		final RequestLogger requestLogger = request.getLogger();
 		request.extractParameters();
-		TriggerManager.executeTriggers(getName(), request, true);
+		long start = System.nanoTime();
+		TriggerManager.executeTriggers(triggers, request, true);
+		start = addPhaseTime(requestLogger, Phase.TRIGGERS, start);
 
 		final Object results;
 		Connection connection = null;
 		final SqlStruct sqlStruct = sqlBuilder.buildSelectSql(metaData, definition.getQuery().getValue(),
 				request);
+		start = addPhaseTime(requestLogger, Phase.SQL_BUILD, start);
+		long statementStart = 0;
 		try {
 			connection = Factory.getConnection(SqlResourceDefinitionUtils.getDefaultDatabase(definition));
+			start = addPhaseTime(requestLogger, Phase.CONNECTION, start);
+			statementStart = start;
 			final PreparedStatement statement = connection.prepareStatement(sqlStruct.getPreparedStatement());
 			if (Config.logger.isDebugEnabled()) {
 				Config.logger.debug("\n" + sqlStruct.getPreparedStatement() + "\n-----\n"
@@ -343,23 +466,44 @@ public class SqlResourceImpl implements SqlResource {
 				statement.setObject(i + 1, sqlStruct.getPreparedValues().get(i));
 			}
 			final ResultSet resultSet = statement.executeQuery();
+			start = addPhaseTime(requestLogger, Phase.EXECUTION, start);
+			final int rowCount;
 			if (metaData.isHierarchical()) {
+				final List<Map<String, Object>> rows = buildReadResultsHierachicalCollection(resultSet);
+				rowCount = rows.size();
 				if (contentType != null) {
-					results = Factory.getResponseSerializer(contentType).serializeReadHierarchical(this,
-							buildReadResultsHierachicalCollection(resultSet));
+					results = Factory.getResponseSerializer(contentType).serializeReadHierarchical(this, rows);
 				} else {
-					results = buildReadResultsHierachicalCollection(resultSet);
+					results = rows;
 				}
 			} else {
 				if (contentType != null) {
-					results = Factory.getResponseSerializer(contentType).serializeReadFlat(this, resultSet);
+					final ResponseSerializer serializer = Factory.getResponseSerializer(contentType);
+					if (serializer instanceof RowCountingResponseSerializer) {
+						final AtomicInteger serializedRowCount = new AtomicInteger();
+						results = ((RowCountingResponseSerializer) serializer).serializeReadFlat(this, resultSet,
+								serializedRowCount);
+						rowCount = serializedRowCount.get();
+					} else {
+						results = serializer.serializeReadFlat(this, resultSet);
+						rowCount = 0;
+					}
 				} else {
-					results = buildReadResultsFlatCollection(resultSet);
+					final List<Map<String, Object>> rows = buildReadResultsFlatCollection(resultSet);
+					rowCount = rows.size();
+					results = rows;
 				}
 			}
 			resultSet.close();
 			statement.close();
+			start = addPhaseTime(requestLogger, Phase.SERIALIZATION, start);
+			addRowCount(requestLogger, rowCount);
+			recordStatement(sqlStruct, start - statementStart, rowCount);
 		} catch (final SQLException exception) {
+			if (connection != null) {
+				StatementStatistics.record(sqlStruct.getPreparedStatement(), System.nanoTime() - statementStart,
+						0, true);
+			}
 			throw new SqlResourceException(exception, sqlStruct.getStatement());
 		} finally {
 			if (connection != null) {
@@ -370,39 +514,128 @@ public class SqlResourceImpl implements SqlResource {
 			}
 		}
 
-		TriggerManager.executeTriggers(getName(), request, false);
+		start = System.nanoTime();
+		TriggerManager.executeTriggers(triggers, request, false);
+		addPhaseTime(requestLogger, Phase.TRIGGERS, start);
 		return results;
 	}
 
+	/**
+	 * Executes a flat delete or update in chunks of at most the chunk size rows, by ranges of the primary key. Each
+	 * chunk's upper key is queried first, then the write is limited to the keys above the previous chunk's and up to
+	 * that one. Since the range always advances, chunking ends however the written values compare, and rows affected
+	 * are the same as for a single statement. Each chunk is auto-committed, which bounds lock time and undo, progress
+	 * is logged and the chunks are counted in the request logger. Executes it once if the database or request does
+	 * not support chunking.
+	 */
+	private int execChunkedWrite(final Connection connection, final Request request) throws SqlResourceException,
+			SQLException {
+		if (!(sqlBuilder instanceof BulkSqlBuilder)) {
+			return execWrite(connection, request, true, null);
+		}
+		final BulkSqlBuilder bulkSqlBuilder = (BulkSqlBuilder) sqlBuilder;
+		final long start = System.nanoTime();
+		SqlStruct keySql = bulkSqlBuilder.buildChunkKeySql(metaData, request, null, chunkSize);
+		addPhaseTime(request.getLogger(), Phase.SQL_BUILD, start);
+		if (keySql == null) {
+			return execWrite(connection, request, true, null);
+		}
+
+		final List<Set<ResponseValue>> noResponseValues = Collections.emptyList();
+		int rowsAffected = 0;
+		int chunks = 0;
+		Object lowerKey = null;
+		Object upperKey;
+		do {
+			upperKey = execChunkKeyQuery(connection, request, keySql);
+			long buildStart = System.nanoTime();
+			final SqlStruct sqlStruct = bulkSqlBuilder.buildChunkedWriteSql(metaData, request, lowerKey, upperKey);
+			addPhaseTime(request.getLogger(), Phase.SQL_BUILD, buildStart);
+			rowsAffected += execWrite(connection, request, sqlStruct, true, noResponseValues);
+			chunks++;
+			if (Config.logger.isInfoEnabled()) {
+				Config.logger.info("Chunked " + request.getType() + " on " + name + " affected " + rowsAffected
+						+ " rows in " + chunks + " chunks, "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+			}
+			if (upperKey != null) {
+				if (chunkPause > 0) {
+					try {
+						Thread.sleep(chunkPause);
+					} catch (final InterruptedException exception) {
+						Thread.currentThread().interrupt();
+						throw new SqlResourceException("Chunked " + request.getType() + " interrupted after "
+								+ rowsAffected + " rows");
+					}
+				}
+				lowerKey = upperKey;
+				buildStart = System.nanoTime();
+				keySql = bulkSqlBuilder.buildChunkKeySql(metaData, request, lowerKey, chunkSize);
+				addPhaseTime(request.getLogger(), Phase.SQL_BUILD, buildStart);
+			}
+		} while (upperKey != null);
+		addChunkCount(request.getLogger(), chunks);
+		return rowsAffected;
+	}
+
+	/** Executes a chunk key query, returning the key that ends the chunk or null if it is the last. */
+	private Object execChunkKeyQuery(final Connection connection, final Request request, final SqlStruct sqlStruct)
+			throws SqlResourceException {
+		final long start = System.nanoTime();
+		try {
+			final PreparedStatement statement = connection.prepareStatement(sqlStruct.getPreparedStatement());
+			if (Config.logger.isDebugEnabled()) {
+				Config.logger.debug("\n" + sqlStruct.getPreparedStatement() + "\n" + sqlStruct.getStatement());
+			}
+			request.getLogger().addSql(sqlStruct.getStatement());
+			for (int i = 0; i < sqlStruct.getPreparedValues().size(); i++) {
+				statement.setObject(i + 1, sqlStruct.getPreparedValues().get(i));
+			}
+			final ResultSet resultSet = statement.executeQuery();
+			final Object key = resultSet.next() ? resultSet.getObject(1) : null;
+			resultSet.close();
+			statement.close();
+			final long end = addPhaseTime(request.getLogger(), Phase.EXECUTION, start);
+			recordStatement(sqlStruct, end - start, key == null ? 0 : 1);
+			return key;
+		} catch (final SQLException exception) {
+			StatementStatistics.record(sqlStruct.getPreparedStatement(), System.nanoTime() - start, 0, true);
+			throw new SqlResourceException(exception, sqlStruct.getStatement());
+		}
+	}
+
 	private int execWrite(final Connection connection, final Request request, final boolean doParent,
 			final Set<ResponseValue> responseValues) throws SqlResourceException {
+		long start = System.nanoTime();
 		final Map<String, SqlBuilder.SqlStruct> sqls = sqlBuilder.buildWriteSql(metaData, request, doParent);
+		addPhaseTime(request.getLogger(), Phase.SQL_BUILD, start);
 
 		// Remove sql for main table
 		final String mainTableName = doParent ? metaData.getParent().getQualifiedTableName() : metaData
 				.getChild().getQualifiedTableName();
 		final SqlBuilder.SqlStruct mainTableSqlStruct = sqls.remove(mainTableName);
+		final List<Set<ResponseValue>> rowResponseValues = Collections.singletonList(responseValues);
 
 		// Do the write operation(s)
 		int rowsAffected = 0;
 
-		// Do the main table if insert
-		if (request.getType() == Type.INSERT) {
-			rowsAffected += execWrite(connection, request, mainTableSqlStruct, true);
+		// Do the main table if insert or upsert
+		if (isInsert(request)) {
+			rowsAffected += execWrite(connection, request, mainTableSqlStruct, true, rowResponseValues);
 		}
 
 		// Do extensions next
 		for (final SqlBuilder.SqlStruct sqlStruct : sqls.values()) {
-			rowsAffected += execWrite(connection, request, sqlStruct, false);
+			rowsAffected += execWrite(connection, request, sqlStruct, false, rowResponseValues);
 		}
 
 		// Do the main table if update or delete
-		if (request.getType() != Type.INSERT) {
-			rowsAffected += execWrite(connection, request, mainTableSqlStruct, true);
+		if (!isInsert(request)) {
+			rowsAffected += execWrite(connection, request, mainTableSqlStruct, true, rowResponseValues);
 		}
 
 		// Build inserted results for the write response
-		if (request.getType() == Type.INSERT) {
+		if (isInsert(request)) {
 			List<TableMetaData> tables;
 			if (doParent) {
 				tables = metaData.getParentPlusExtTables();
@@ -413,30 +646,46 @@ public class SqlResourceImpl implements SqlResource {
 			for (final TableMetaData table : tables) {
 				addRequestParamsToResponseValues(request, responseValues, table);
 
-				// Find columns missing from the request params that are sequences and request the current value
+				// Find columns missing from the request params that are sequences and were not returned by the insert,
+				// and request the current value. Upserts do not return generated values, since an update consumes none.
+				start = System.nanoTime();
 				for (final ColumnMetaData column : table.getColumns().values()) {
-					if (!request.hasParameter(column.getColumnLabel()) && column.isSequence()) {
+					if (request.getType() == Type.INSERT && !request.hasParameter(column.getColumnLabel())
+							&& column.isSequence() && !hasResponseValue(responseValues, column.getColumnLabel())) {
 						final int value = Factory.getSequenceManager().getCurrentValue(connection,
 								column.getSequenceName());
 						responseValues.add(new ResponseValue(column.getColumnLabel(), new Integer(value),
 								column.getColumnNumber()));
 					}
 				}
+				addPhaseTime(request.getLogger(), Phase.EXECUTION, start);
 			}
 		}
 		return rowsAffected;
 	}
 
+	/**
+	 * Executes one write statement. Generated sequence values returned by an insert are added to the response values,
+	 * from the statement's result set if it has a RETURNING clause or else from the JDBC generated keys. A multi-row
+	 * insert returns a row of generated values per inserted row, added to the response values in the same position.
+	 */
 	private int execWrite(final Connection connection, final Request request, final SqlStruct sqlStruct,
-			final boolean doMain) throws SqlResourceException {
+			final boolean doMain, final List<Set<ResponseValue>> rowResponseValues) throws SqlResourceException {
 		int rowsAffected = 0;
 		if (sqlStruct != null) {
 			if (!doMain && sqlStruct.isClauseEmpty()) {
 				// do not execute update on extension, which would affect all rows
 			} else {
+				final long start = System.nanoTime();
 				try {
-					final PreparedStatement statement = connection.prepareStatement(sqlStruct
-							.getPreparedStatement());
+					final List<ColumnMetaData> generatedKeyColumns = sqlStruct.getGeneratedKeyColumns();
+					final PreparedStatement statement;
+					if (generatedKeyColumns == null || sqlStruct.isGeneratedKeysReturned()) {
+						statement = connection.prepareStatement(sqlStruct.getPreparedStatement());
+					} else {
+						statement = connection.prepareStatement(sqlStruct.getPreparedStatement(),
+								Statement.RETURN_GENERATED_KEYS);
+					}
 					if (Config.logger.isDebugEnabled()) {
 						Config.logger.debug("\n" + sqlStruct.getPreparedStatement() + "\n"
 								+ sqlStruct.getStatement());
@@ -450,9 +699,31 @@ public class SqlResourceImpl implements SqlResource {
 							statement.setObject(i + 1, value);
 						}
 					}
-					rowsAffected = statement.executeUpdate();
+					if (generatedKeyColumns == null) {
+						rowsAffected = statement.executeUpdate();
+					} else if (sqlStruct.isGeneratedKeysReturned()) {
+						final ResultSet resultSet = statement.executeQuery();
+						while (resultSet.next()) {
+							if (rowsAffected < rowResponseValues.size()) {
+								addGeneratedKeys(resultSet, generatedKeyColumns, rowResponseValues.get(rowsAffected));
+							}
+							rowsAffected++;
+						}
+						resultSet.close();
+					} else {
+						rowsAffected = statement.executeUpdate();
+						final ResultSet resultSet = statement.getGeneratedKeys();
+						for (int row = 0; row < rowResponseValues.size() && resultSet.next(); row++) {
+							addGeneratedKeys(resultSet, generatedKeyColumns, rowResponseValues.get(row));
+						}
+						resultSet.close();
+					}
 					statement.close();
+					final long end = addPhaseTime(request.getLogger(), Phase.EXECUTION, start);
+					recordStatement(sqlStruct, end - start, rowsAffected);
 				} catch (final SQLException exception) {
+					StatementStatistics.record(sqlStruct.getPreparedStatement(), System.nanoTime() - start, 0,
+							true);
 					throw new SqlResourceException(exception, sqlStruct.getStatement());
 				}
 			}
@@ -460,7 +731,185 @@ public class SqlResourceImpl implements SqlResource {
 		return rowsAffected;
 	}
 
+	/**
+	 * Returns the number of requests from the index to write with one statement per table, or 1 to write the request on
+	 * its own. Only flat resources qualify, and a {@link BulkSqlBuilder} decides which consecutive requests can be
+	 * combined.
+	 */
+	private int getBulkWriteRowCount(final List<Request> requests, final int fromIndex) {
+		if (metaData.isHierarchical() || fromIndex == requests.size() - 1
+				|| !(sqlBuilder instanceof BulkSqlBuilder)) {
+			return 1;
+		}
+		return ((BulkSqlBuilder) sqlBuilder).getBulkWriteRowCount(metaData,
+				requests.subList(fromIndex, requests.size()));
+	}
+
 	private String getChildRowsName() {
 		return metaData.getChild().getRowSetAlias();
 	}
-}
\ No newline at end of file
+
+	/** Returns true if the response values contain the name. */
+	private boolean hasResponseValue(final Set<ResponseValue> responseValues, final String name) {
+		for (final ResponseValue value : responseValues) {
+			if (value.getName().equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Returns true for inserts and upserts, which write the main table first and respond with the written values. */
+	private boolean isInsert(final Request request) {
+		return request.getType() == Type.INSERT || request.getType() == Type.UPSERT;
+	}
+
+	/** Records statement statistics and logs the statement if it is slow. */
+	private void recordStatement(final SqlStruct sqlStruct, final long nanos, final int rowCount) {
+		StatementStatistics.record(sqlStruct.getPreparedStatement(), nanos, rowCount, false);
+		if (slowQueryThreshold >= 0 && nanos >= slowQueryThreshold) {
+			final String explainSql = sqlBuilder instanceof ExplainSqlBuilder ? ((ExplainSqlBuilder) sqlBuilder)
+					.buildExplainSql(sqlStruct.getPreparedStatement()) : null;
+			SlowQueryLogger.log(name, SqlResourceDefinitionUtils.getDefaultDatabase(definition), sqlStruct,
+					explainSql, nanos, rowCount);
+		}
+	}
+
+	/**
+	 * Executes database write on the connection, with or without the per-request triggers. Deletes and updates are
+	 * chunked only if the connection auto-commits.
+	 */
+	private WriteResponse write(final Connection connection, final Request request, final boolean executeTriggers)
+			throws SqlResourceException, SQLException {
+		final RequestLogger requestLogger = request.getLogger();
+		long start = System.nanoTime();
+		if (executeTriggers) {
+			TriggerManager.executeTriggers(triggers, request, true);
+			addPhaseTime(requestLogger, Phase.TRIGGERS, start);
+		}
+
+		// Init response
+		final WriteResponse response = new WriteResponse();
+		int rowsAffected = 0;
+		Set<ResponseValue> responseValues = null;
+		if (isInsert(request)) {
+			responseValues = new TreeSet<ResponseValue>();
+		}
+
+		boolean doParent = true;
+		if (metaData.isHierarchical()) {
+			final Request childRequest = Factory.getChildRequest(request);
+			if (request.getChildrenParameters() != null) {
+
+				// Set up response
+				List<Set<ResponseValue>> childListResponseValues = null;
+				Set<ResponseValue> childResponseValues = null;
+				if (isInsert(request)) {
+					childListResponseValues = new ArrayList<Set<ResponseValue>>(request
+							.getChildrenParameters().size());
+					responseValues.add(new ResponseValue(getChildRowsName(), childListResponseValues,
+							Integer.MAX_VALUE));
+					// Add parent params, since we won't be executing the write on the parent
+					for (final TableMetaData table : metaData.getParentPlusExtTables()) {
+						addRequestParamsToResponseValues(request, responseValues, table);
+					}
+				}
+
+				// Delete, update or insert each specified child row
+				for (final List<RequestValue> childRowParams : request.getChildrenParameters()) {
+					if (isInsert(request)) {
+						// Set up response value set
+						childResponseValues = new TreeSet<ResponseValue>();
+						childListResponseValues.add(childResponseValues);
+
+						// Add the parent pks, since inserts ignore the resIds
+						childRowParams.addAll(request.getResourceIdentifiers());
+					} // else deletes and updates use resIds
+					childRequest.setParameters(childRowParams);
+					rowsAffected += execWrite(connection, childRequest, false, childResponseValues);
+				}
+				// Don't touch the parent(s)
+				doParent = false;
+			} else if (request.getType() == Request.Type.DELETE) {
+				// Delete all children and the parent(s)
+				if (request.getResourceIdentifiers() == null) {
+					childRequest.setParameters(request.getParameters());
+				}
+				rowsAffected += execWrite(connection, childRequest, false, responseValues);
+				// Now do the parent as well, doParent already equals true
+			}
+			// else just insert or update the parent (+ extensions)
+		} // else insert, update or delete the parent (+ extensions)
+
+		if (doParent) {
+			if (chunkSize > 0 && !metaData.isHierarchical() && connection.getAutoCommit()
+					&& (request.getType() == Type.DELETE || request.getType() == Type.UPDATE)) {
+				rowsAffected += execChunkedWrite(connection, request);
+			} else {
+				rowsAffected += execWrite(connection, request, true, responseValues);
+			}
+		}
+
+		if (executeTriggers) {
+			start = System.nanoTime();
+			TriggerManager.executeTriggers(triggers, request, false);
+			addPhaseTime(requestLogger, Phase.TRIGGERS, start);
+		}
+
+		// Finalize response
+		if (isInsert(request)) {
+			response.addRow(responseValues);
+		}
+		response.addRowsAffected(rowsAffected);
+		addRowCount(requestLogger, rowsAffected);
+		return response;
+	}
+
+	/**
+	 * Executes flat writes combined by the SQL builder with one statement per table. Inserts write the main table first
+	 * and respond with a row per request, with its params and generated sequence values, like individual inserts.
+	 * Deletes and updates write the main table last and respond with the total rows affected.
+	 */
+	private WriteResponse writeBulk(final Connection connection, final List<Request> requests)
+			throws SqlResourceException, SQLException {
+		final Request firstRequest = requests.get(0);
+		final RequestLogger requestLogger = firstRequest.getLogger();
+		long start = System.nanoTime();
+		final Map<String, SqlStruct> sqls = ((BulkSqlBuilder) sqlBuilder).buildBulkWriteSql(metaData, requests);
+		addPhaseTime(requestLogger, Phase.SQL_BUILD, start);
+
+		final List<Set<ResponseValue>> rowResponseValues = new ArrayList<Set<ResponseValue>>(requests.size());
+		if (firstRequest.getType() == Type.INSERT) {
+			for (int i = 0; i < requests.size(); i++) {
+				rowResponseValues.add(new TreeSet<ResponseValue>());
+			}
+		}
+		final WriteResponse response = new WriteResponse();
+		int rowsAffected = 0;
+
+		// Do the main table first if insert, otherwise last
+		final SqlStruct mainTableSqlStruct = sqls.remove(metaData.getParent().getQualifiedTableName());
+		if (firstRequest.getType() == Type.INSERT) {
+			rowsAffected += execWrite(connection, firstRequest, mainTableSqlStruct, true, rowResponseValues);
+		}
+		for (final SqlStruct sqlStruct : sqls.values()) {
+			rowsAffected += execWrite(connection, firstRequest, sqlStruct, false, rowResponseValues);
+		}
+		if (firstRequest.getType() != Type.INSERT) {
+			rowsAffected += execWrite(connection, firstRequest, mainTableSqlStruct, true, rowResponseValues);
+		}
+
+		// Build inserted results for the write response
+		if (firstRequest.getType() == Type.INSERT) {
+			for (int i = 0; i < requests.size(); i++) {
+				for (final TableMetaData table : metaData.getParentPlusExtTables()) {
+					addRequestParamsToResponseValues(requests.get(i), rowResponseValues.get(i), table);
+				}
+				response.addRow(rowResponseValues.get(i));
+			}
+		}
+		response.addRowsAffected(rowsAffected);
+		addRowCount(requestLogger, rowsAffected);
+		return response;
+	}
+}
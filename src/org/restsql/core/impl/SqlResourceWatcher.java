@@ -0,0 +1,187 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.restsql.core.Config;
+import org.restsql.core.SqlResourceException;
+
+/**
+ * Watches the SQL Resources directory and its sub-directories for changed, added and deleted definitions. Changed
+ * definitions of loaded resources are rebuilt on the watcher's thread and swapped in by the factory, and deleted ones
+ * are discarded. Added definitions, like any resource not yet requested, are loaded on first request. Events are
+ * collected until none arrive for <code>sqlresources.watch.delay</code> milliseconds, so that a definition saved in
+ * several writes is rebuilt once.
+ *
+ * @author Mark Sawers
+ */
+public class SqlResourceWatcher implements Runnable {
+	private static final String FILE_EXTENSION = ".xml";
+	private static SqlResourceWatcher watcher;
+
+	private final long delay = Long.parseLong(Config.properties.getProperty(Config.KEY_SQLRESOURCES_WATCH_DELAY,
+			Config.DEFAULT_SQLRESOURCES_WATCH_DELAY));
+	private final Path dir;
+	private final SqlResourceFactoryImpl factory;
+	private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+	private final Thread thread;
+	private final WatchService watchService;
+
+	/** Starts watching the factory's resources directory, unless already started. */
+	public static synchronized void start(final SqlResourceFactoryImpl factory) {
+		if (watcher == null) {
+			final File dir = new File(factory.getSqlResourcesDir());
+			if (!dir.isDirectory()) {
+				Config.logger.warn("SQL Resources directory " + dir + " not watched since it is not a directory");
+				return;
+			}
+			try {
+				watcher = new SqlResourceWatcher(factory, dir.toPath());
+				watcher.thread.start();
+				Config.logger.info("Watching SQL Resources directory " + dir);
+			} catch (final IOException exception) {
+				Config.logger.error("Error watching SQL Resources directory " + dir, exception);
+			}
+		}
+	}
+
+	/** Stops watching, if started. */
+	public static synchronized void shutdown() {
+		if (watcher != null) {
+			try {
+				watcher.watchService.close();
+			} catch (final IOException ignored) {
+			}
+			watcher.thread.interrupt();
+			watcher = null;
+		}
+	}
+
+	private SqlResourceWatcher(final SqlResourceFactoryImpl factory, final Path dir) throws IOException {
+		this.factory = factory;
+		this.dir = dir;
+		watchService = FileSystems.getDefault().newWatchService();
+		register(dir);
+		thread = new Thread(this, "restsql-sqlresource-watcher");
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Collects changed resource names and applies them once events settle. Errors handling an event or reloading a
+	 * resource are logged and watching continues; only shutdown ends the loop.
+	 */
+	@Override
+	public void run() {
+		final Set<String> changedResNames = new LinkedHashSet<String>();
+		try {
+			while (true) {
+				final WatchKey key = changedResNames.isEmpty() ? watchService.take() : watchService.poll(delay,
+						TimeUnit.MILLISECONDS);
+				if (key == null) {
+					apply(changedResNames);
+					changedResNames.clear();
+					continue;
+				}
+				final Path keyDir = keys.get(key);
+				for (final WatchEvent<?> event : key.pollEvents()) {
+					try {
+						handleEvent(keyDir, event, changedResNames);
+					} catch (final IOException exception) {
+						Config.logger.error("Error watching new SQL Resources sub-directory " + event.context()
+								+ " in " + keyDir, exception);
+					} catch (final RuntimeException exception) {
+						Config.logger.error("Error handling SQL Resources directory event " + event.kind() + " for "
+								+ event.context() + " in " + keyDir, exception);
+					}
+				}
+				if (!key.reset()) {
+					keys.remove(key);
+				}
+			}
+		} catch (final InterruptedException exception) {
+			// shutting down
+		} catch (final ClosedWatchServiceException exception) {
+			// shutting down
+		}
+	}
+
+	// Private utils
+
+	/**
+	 * Reloads changed loaded resources and discards deleted ones. Failed reloads, including unexpected errors, are
+	 * logged and keep the previous version without affecting the other resources.
+	 */
+	private void apply(final Set<String> resNames) {
+		for (final String resName : resNames) {
+			if (factory.isSqlResourceLoaded(resName)) {
+				try {
+					if (dir.resolve(resName.replace('.', File.separatorChar) + FILE_EXTENSION).toFile().exists()) {
+						factory.reloadSqlResource(resName);
+						Config.logger.info("Reloaded SQL Resource " + resName);
+					} else {
+						factory.removeSqlResource(resName);
+						Config.logger.info("Removed SQL Resource " + resName);
+					}
+				} catch (final SqlResourceException exception) {
+					Config.logger.error("Error reloading SQL Resource " + resName
+							+ ", keeping previous version -- " + exception.getMessage());
+				} catch (final RuntimeException exception) {
+					Config.logger.error("Error reloading SQL Resource " + resName + ", keeping previous version",
+							exception);
+				}
+			}
+		}
+	}
+
+	/** Converts definition path to resource name, with sub-directories separated by dots. */
+	private String getResName(final Path path) {
+		final String relativePath = dir.relativize(path).toString();
+		return relativePath.substring(0, relativePath.length() - FILE_EXTENSION.length()).replace(
+				File.separatorChar, '.');
+	}
+
+	/** Registers a new sub-directory or adds the name of a changed definition, or all loaded ones on overflow. */
+	private void handleEvent(final Path keyDir, final WatchEvent<?> event, final Set<String> changedResNames)
+			throws IOException {
+		if (event.kind() == OVERFLOW) {
+			changedResNames.addAll(factory.getLoadedSqlResourceNames());
+		} else if (keyDir != null) {
+			final Path path = keyDir.resolve((Path) event.context());
+			if (event.kind() == ENTRY_CREATE && path.toFile().isDirectory()) {
+				register(path);
+			} else if (path.getFileName().toString().endsWith(FILE_EXTENSION)) {
+				changedResNames.add(getResName(path));
+			}
+		}
+	}
+
+	/** Registers directory and its sub-directories. */
+	private void register(final Path path) throws IOException {
+		keys.put(path.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), path);
+		final File[] files = path.toFile().listFiles();
+		if (files != null) {
+			for (final File file : files) {
+				if (file.isDirectory()) {
+					register(file.toPath());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.restsql.core.Config;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Accumulates execution statistics per prepared statement text, so the costliest statement shapes can be found.
+ * Multi-row statements are tracked by shape regardless of their row count: repeated VALUES or row value tuples and IN
+ * lists of parameters are collapsed to their first element followed by <code>, ...</code>. Each entry tracks calls,
+ * total, mean and max time, a latency histogram, rows returned or affected and errors. The number of entries is
+ * bounded; once full, statements not yet tracked are accumulated into a single overflow entry. Updates are lock-free.
+ * The latency histogram uses a small exponentially decaying sample, so its percentiles reflect about the last five
+ * minutes rather than all executions since startup or the last reset, while the other columns are totals.
+ *
+ * @author Mark Sawers
+ */
+public class StatementStatistics {
+	public static final String SORT_CALLS = "calls";
+	public static final String SORT_ERRORS = "errors";
+	public static final String SORT_MAX = "max";
+	public static final String SORT_MEAN = "mean";
+	public static final String SORT_ROWS = "rows";
+	public static final String SORT_TOTAL = "total";
+
+	static final String OVERFLOW_STATEMENT = "[other statements]";
+
+	/** Decay factor of the latency sample, weighting roughly the last five minutes. */
+	private static final double RESERVOIR_ALPHA = 0.015;
+	private static final int RESERVOIR_SIZE = 128;
+	private static final Pattern REPEATED_IN_PARAMS = Pattern.compile("( IN \\(\\?)(?:,\\?)+\\)");
+	private static final Pattern REPEATED_TUPLES = Pattern
+			.compile("(\\((?:[^()]|\\([^()]*\\))*\\))(?:\\s*,\\s*\\1)+");
+	private static final boolean enabled = Boolean.valueOf(Config.properties.getProperty(
+			Config.KEY_MONITORING_STATEMENTS, Config.DEFAULT_MONITORING_STATEMENTS));
+	private static final int maxStatements = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_MONITORING_STATEMENTS_MAX, Config.DEFAULT_MONITORING_STATEMENTS_MAX));
+	private static final ConcurrentMap<String, Entry> statements = new ConcurrentHashMap<String, Entry>();
+
+	/**
+	 * Returns statistics as a text table, one statement per row.
+	 *
+	 * @param sort column to sort by in descending order, one of the SORT_ constants, defaults to total time
+	 */
+	public static String dumpStatistics(final String sort) {
+		final List<Entry> entries = new ArrayList<Entry>(statements.values());
+		Collections.sort(entries, getComparator(sort));
+
+		final StringBuilder dump = new StringBuilder(200 + entries.size() * 200);
+		if (!enabled) {
+			dump.append("Statement statistics are disabled\n\n");
+		}
+		dump.append("Totals since startup or reset, p95 and p99 over about the last 5 minutes\n\n");
+		dump.append(String.format("%10s %12s %10s %10s %10s %10s %12s %8s  %s\n", SORT_CALLS, "total ms",
+				"mean ms", "max ms", "p95 ms", "p99 ms", SORT_ROWS, SORT_ERRORS, "statement"));
+		for (final Entry entry : entries) {
+			final long calls = entry.calls.get();
+			final Snapshot snapshot = entry.latency.getSnapshot();
+			dump.append(String.format("%10d %12.3f %10.3f %10.3f %10.3f %10.3f %12d %8d  %s\n", calls,
+					toMillis(entry.totalNanos.get()), calls > 0 ? toMillis(entry.totalNanos.get() / calls) : 0.0,
+					toMillis(entry.maxNanos.get()), snapshot.get95thPercentile() / 1000.0,
+					snapshot.get99thPercentile() / 1000.0, entry.rows.get(), entry.errors.get(), entry.statement));
+		}
+		return dump.toString();
+	}
+
+	/** Returns true if statistics are collected. */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Records an execution.
+	 *
+	 * @param statement prepared statement text
+	 * @param nanos execution time
+	 * @param rows rows returned or affected
+	 * @param error true if the execution failed
+	 */
+	public static void record(final String statement, final long nanos, final int rows, final boolean error) {
+		if (enabled) {
+			getEntry(normalize(statement)).record(nanos, rows, error);
+		}
+	}
+
+	/** Discards all statistics. */
+	public static void reset() {
+		statements.clear();
+	}
+
+	// Package level utils (for testability)
+
+	/** Returns statement with repeated tuples and IN list parameters collapsed. */
+	static String normalize(final String statement) {
+		final String normalized = REPEATED_TUPLES.matcher(statement).replaceAll("$1, ...");
+		return REPEATED_IN_PARAMS.matcher(normalized).replaceAll("$1, ...)");
+	}
+
+	// Private utils
+
+	private static Comparator<Entry> getComparator(final String sort) {
+		return new Comparator<Entry>() {
+			@Override
+			public int compare(final Entry entry1, final Entry entry2) {
+				final long value1 = getSortValue(entry1), value2 = getSortValue(entry2);
+				return value1 < value2 ? 1 : value1 == value2 ? 0 : -1;
+			}
+
+			private long getSortValue(final Entry entry) {
+				if (SORT_CALLS.equals(sort)) {
+					return entry.calls.get();
+				} else if (SORT_ERRORS.equals(sort)) {
+					return entry.errors.get();
+				} else if (SORT_MAX.equals(sort)) {
+					return entry.maxNanos.get();
+				} else if (SORT_MEAN.equals(sort)) {
+					final long calls = entry.calls.get();
+					return calls > 0 ? entry.totalNanos.get() / calls : 0;
+				} else if (SORT_ROWS.equals(sort)) {
+					return entry.rows.get();
+				} else {
+					return entry.totalNanos.get();
+				}
+			}
+		};
+	}
+
+	private static Entry getEntry(final String statement) {
+		Entry entry = statements.get(statement);
+		if (entry == null) {
+			final String key = statements.size() < maxStatements ? statement : OVERFLOW_STATEMENT;
+			entry = statements.get(key);
+			if (entry == null) {
+				entry = new Entry(key);
+				final Entry existing = statements.putIfAbsent(key, entry);
+				if (existing != null) {
+					entry = existing;
+				}
+			}
+		}
+		return entry;
+	}
+
+	private static double toMillis(final long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	/** Statistics for one statement. */
+	private static class Entry {
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong errors = new AtomicLong();
+		private final Histogram latency = new Histogram(new ExponentiallyDecayingReservoir(RESERVOIR_SIZE,
+				RESERVOIR_ALPHA));
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong rows = new AtomicLong();
+		private final String statement;
+		private final AtomicLong totalNanos = new AtomicLong();
+
+		Entry(final String statement) {
+			this.statement = statement;
+		}
+
+		void record(final long nanos, final int rowCount, final boolean error) {
+			calls.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+				max = maxNanos.get();
+			}
+			latency.update(nanos / 1000);
+			rows.addAndGet(rowCount);
+			if (error) {
+				errors.incrementAndGet();
+			}
+		}
+	}
+}
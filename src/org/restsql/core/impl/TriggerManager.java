@@ -7,12 +7,20 @@ import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.restsql.core.BatchTrigger;
 import org.restsql.core.Config;
 import org.restsql.core.Request;
 import org.restsql.core.SqlResourceException;
@@ -21,6 +29,11 @@ import org.restsql.core.Trigger;
 /**
  * Manages trigger instantiation and execution. Triggers are defined in a properties file, whose location is referenced
  * in the restSQL properties file.
+ * <p>
+ * Definitions are loaded once and compiled into an immutable trigger chain per SQL Resource, the resource's own
+ * triggers followed by the wildcard triggers. The chain is attached to the SQL Resource when it is loaded. After
+ * triggers may optionally run asynchronously on a bounded executor, see {@link Config#KEY_TRIGGERS_AFTER_ASYNC}.
+ * Upserts execute the insert trigger methods.
  * 
  * @author Mark Sawers
  */
@@ -28,9 +41,19 @@ public class TriggerManager {
 	static final String TOKEN_WILDCARD = "*";
 	private static final int DEFAULT_SUBLIST_SIZE = 5;
 
-	// Map<sqlResource, List<Trigger>> -- trigger may repeat
+	private static final boolean afterTriggersAsync = Boolean.valueOf(Config.properties.getProperty(
+			Config.KEY_TRIGGERS_AFTER_ASYNC, Config.DEFAULT_TRIGGERS_AFTER_ASYNC)).booleanValue();
+
+	// Created on first use if after triggers are asynchronous, guarded by the class lock
+	private static volatile ExecutorService afterTriggerExecutor;
+
+	// Map<sqlResource, List<Trigger>> -- trigger may repeat, guarded by the class lock
 	private static Map<String, List<Trigger>> triggers;
 
+	// Map<sqlResource, List<Trigger>> -- immutable resource plus wildcard chains, replaced wholesale on change
+	private static volatile Map<String, List<Trigger>> triggerChains;
+	private static volatile List<Trigger> wildcardTriggerChain;
+
 	/**
 	 * Executes all trigger defined for the resource.
 	 * 
@@ -41,26 +64,76 @@ public class TriggerManager {
 	 */
 	public static void executeTriggers(final String sqlResource, final Request request, final boolean before)
 			throws SqlResourceException {
+		executeTriggers(getTriggers(sqlResource), request, before);
+	}
 
-		// Load triggers if necessary
-		if (triggers == null) {
-			Properties definitions = getTriggerDefinitions();
-			loadTriggers(definitions);
-		}
+	/**
+	 * Executes a compiled trigger chain, as returned by {@link #getTriggers(String)}. After triggers are handed to the
+	 * executor if asynchronous after triggers are enabled, in which case their exceptions are logged rather than
+	 * thrown.
+	 * 
+	 * @param triggerChain triggers to execute, in order
+	 * @param request restSQL request
+	 * @param before true if before execution; false if after execution
+	 * @throws SqlResourceException if a trigger exception is thrown or database error occurs
+	 */
+	public static void executeTriggers(final List<Trigger> triggerChain, final Request request,
+			final boolean before) throws SqlResourceException {
+		executeTriggers(triggerChain, Collections.singletonList(request), before, false);
+	}
 
-		// Execute triggers scoped to this particulal SqlResource
-		if (triggers.containsKey(sqlResource)) {
-			for (final Trigger trigger : triggers.get(sqlResource)) {
-				executeTrigger(request, trigger, before);
+	/**
+	 * Executes a compiled trigger chain for all requests of a multi-row request body. {@link BatchTrigger}s are called
+	 * once with all requests, other triggers once per request. Asynchronous after triggers are handled as in
+	 * {@link #executeTriggers(List, Request, boolean)}.
+	 * 
+	 * @param triggerChain triggers to execute, in order
+	 * @param requests restSQL requests of the same type
+	 * @param before true if before execution; false if after execution
+	 * @throws SqlResourceException if a trigger exception is thrown or database error occurs
+	 */
+	public static void executeBatchTriggers(final List<Trigger> triggerChain, final List<Request> requests,
+			final boolean before) throws SqlResourceException {
+		executeTriggers(triggerChain, requests, before, true);
+	}
+
+	/**
+	 * Returns the immutable trigger chain for the resource, its own triggers followed by the wildcard triggers. Loads
+	 * the trigger definitions on first access.
+	 */
+	public static List<Trigger> getTriggers(final String sqlResource) {
+		Map<String, List<Trigger>> chains = triggerChains;
+		if (chains == null) {
+			synchronized (TriggerManager.class) {
+				if (triggerChains == null) {
+					loadTriggers(getTriggerDefinitions());
+				}
+				chains = triggerChains;
 			}
 		}
+		final List<Trigger> chain = chains.get(sqlResource);
+		return chain != null ? chain : wildcardTriggerChain;
+	}
 
-		// Execute triggers scoped to all SqlResources
-		if (triggers.containsKey(TOKEN_WILDCARD)) {
-			for (final Trigger trigger : triggers.get(TOKEN_WILDCARD)) {
-				executeTrigger(request, trigger, before);
+	/**
+	 * Returns true if any trigger in the chain implements {@link BatchTrigger}. Request deserializers use this to decide
+	 * whether to collect all rows of a body before writing them.
+	 */
+	public static boolean hasBatchTrigger(final List<Trigger> triggerChain) {
+		for (final Trigger trigger : triggerChain) {
+			if (trigger instanceof BatchTrigger) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/** Stops the asynchronous after trigger executor, if started, letting queued triggers finish. */
+	public static synchronized void shutdown() {
+		if (afterTriggerExecutor != null) {
+			afterTriggerExecutor.shutdown();
+			afterTriggerExecutor = null;
+		}
 	}
 
 	// Package-level utils, also for testing
@@ -69,7 +142,7 @@ public class TriggerManager {
 	 * Adds trigger with the specified scope to the triggers data structure. Access is package-level to allow for
 	 * testing.
 	 */
-	static void addTrigger(final Trigger trigger, final String sqlResources) {
+	static synchronized void addTrigger(final Trigger trigger, final String sqlResources) {
 		if (triggers == null) {
 			triggers = new HashMap<String, List<Trigger>>();
 		}
@@ -86,6 +159,7 @@ public class TriggerManager {
 				subList.add(trigger);
 			}
 		}
+		compileTriggerChains();
 	}
 
 	/**
@@ -93,7 +167,7 @@ public class TriggerManager {
 	 * testability.
 	 */
 	@SuppressWarnings("unchecked")
-	static void loadTriggers(final Properties definitions) {
+	static synchronized void loadTriggers(final Properties definitions) {
 		String triggersClasspath = Config.properties.getProperty(Config.KEY_TRIGGERS_CLASSPATH, null);
 		if (Config.logger.isInfoEnabled()) {
 			if (triggersClasspath != null) {
@@ -133,10 +207,105 @@ public class TriggerManager {
 		if (triggers == null) {
 			triggers = new HashMap<String, List<Trigger>>();
 		}
+		compileTriggerChains();
 	}
 
 	// Private utils
 
+	/**
+	 * Executes batch trigger method appropriate for the requests.
+	 */
+	private static void executeBatchTrigger(final List<Request> requests, final BatchTrigger trigger,
+			final boolean before) throws SqlResourceException {
+		switch (requests.get(0).getType()) {
+			case INSERT:
+			case UPSERT:
+				if (before) {
+					trigger.beforeInsertBatch(requests);
+				} else {
+					trigger.afterInsertBatch(requests);
+				}
+				break;
+			case UPDATE:
+				if (before) {
+					trigger.beforeUpdateBatch(requests);
+				} else {
+					trigger.afterUpdateBatch(requests);
+				}
+				break;
+			case DELETE:
+				if (before) {
+					trigger.beforeDeleteBatch(requests);
+				} else {
+					trigger.afterDeleteBatch(requests);
+				}
+				break;
+			default:
+				for (final Request request : requests) {
+					executeTrigger(request, trigger, before);
+				}
+		}
+	}
+
+	/** Executes one trigger for the requests, using the batch method if requested and implemented. */
+	private static void executeTrigger(final List<Request> requests, final Trigger trigger, final boolean before,
+			final boolean batch) throws SqlResourceException {
+		if (batch && trigger instanceof BatchTrigger) {
+			executeBatchTrigger(requests, (BatchTrigger) trigger, before);
+		} else {
+			for (final Request request : requests) {
+				executeTrigger(request, trigger, before);
+			}
+		}
+	}
+
+	/** Executes the chain for the requests, on the after trigger executor if enabled for after triggers. */
+	private static void executeTriggers(final List<Trigger> triggerChain, final List<Request> requests,
+			final boolean before, final boolean batch) throws SqlResourceException {
+		if (triggerChain.isEmpty() || requests.isEmpty()) {
+			return;
+		}
+		final ExecutorService executor = before ? null : getAfterTriggerExecutor();
+		if (executor == null) {
+			for (final Trigger trigger : triggerChain) {
+				executeTrigger(requests, trigger, before, batch);
+			}
+		} else {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					for (final Trigger trigger : triggerChain) {
+						try {
+							executeTrigger(requests, trigger, false, batch);
+						} catch (final Throwable throwable) {
+							Config.logger.error("Asynchronous after trigger " + trigger.getClass().getName()
+									+ " failed on " + requests.get(0).getSqlResource(), throwable);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/** Rebuilds the immutable per-resource chains from the triggers data structure and publishes them. */
+	private static void compileTriggerChains() {
+		final List<Trigger> wildcardTriggers = triggers.get(TOKEN_WILDCARD);
+		final List<Trigger> wildcardChain = wildcardTriggers == null ? Collections.<Trigger> emptyList()
+				: Collections.unmodifiableList(new ArrayList<Trigger>(wildcardTriggers));
+		final Map<String, List<Trigger>> chains = new HashMap<String, List<Trigger>>(triggers.size() * 2);
+		for (final Map.Entry<String, List<Trigger>> entry : triggers.entrySet()) {
+			if (!entry.getKey().equals(TOKEN_WILDCARD)) {
+				final List<Trigger> chain = new ArrayList<Trigger>(entry.getValue().size()
+						+ wildcardChain.size());
+				chain.addAll(entry.getValue());
+				chain.addAll(wildcardChain);
+				chains.put(entry.getKey(), Collections.unmodifiableList(chain));
+			}
+		}
+		wildcardTriggerChain = wildcardChain;
+		triggerChains = chains;
+	}
+
 	/**
 	 * Executes trigger method appropriate for the request.
 	 */
@@ -151,6 +320,7 @@ public class TriggerManager {
 				}
 				break;
 			case INSERT:
+			case UPSERT:
 				if (before) {
 					trigger.beforeInsert(request);
 				} else {
@@ -174,6 +344,26 @@ public class TriggerManager {
 		}
 	}
 
+	/**
+	 * Returns the after trigger executor if asynchronous after triggers are enabled, creating it on first use, or null
+	 * if after triggers run on the request thread. When the queue is full the request thread runs the triggers itself.
+	 */
+	private static ExecutorService getAfterTriggerExecutor() {
+		if (!afterTriggersAsync) {
+			return null;
+		}
+		ExecutorService executor = afterTriggerExecutor;
+		if (executor == null) {
+			synchronized (TriggerManager.class) {
+				if (afterTriggerExecutor == null) {
+					afterTriggerExecutor = newAfterTriggerExecutor();
+				}
+				executor = afterTriggerExecutor;
+			}
+		}
+		return executor;
+	}
+
 	/**
 	 * Loads trigger definition properties file and then .
 	 */
@@ -207,4 +397,29 @@ public class TriggerManager {
 		}
 		return definitions;
 	}
+
+	/** Returns new after trigger executor, a bounded pool that runs triggers on the caller when the queue is full. */
+	private static ExecutorService newAfterTriggerExecutor() {
+		final int threads = Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_TRIGGERS_AFTER_ASYNC_THREADS, Config.DEFAULT_TRIGGERS_AFTER_ASYNC_THREADS));
+		final int queueSize = Integer.parseInt(Config.properties.getProperty(
+				Config.KEY_TRIGGERS_AFTER_ASYNC_QUEUE_SIZE, Config.DEFAULT_TRIGGERS_AFTER_ASYNC_QUEUE_SIZE));
+		final ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+					private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+					@Override
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "restsql-after-trigger-"
+								+ threadNumber.getAndIncrement());
+						thread.setDaemon(true);
+						return thread;
+					}
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		if (Config.logger.isInfoEnabled()) {
+			Config.logger.info("Executing after triggers asynchronously with " + threads
+					+ " threads and queue size " + queueSize);
+		}
+		return executor;
+	}
 }
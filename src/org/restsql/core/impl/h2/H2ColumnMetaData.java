@@ -0,0 +1,50 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.h2;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.restsql.core.impl.ColumnMetaDataImpl;
+
+/**
+ * H2 specific implementation.
+ * 
+ * @author Mark Sawers
+ */
+public class H2ColumnMetaData extends ColumnMetaDataImpl {
+
+	/**
+	 * Treats CLOB columns, which H2 uses for TEXT and similar types, as long character columns so they are quoted and
+	 * serialized as strings.
+	 */
+	@Override
+	public int getColumnType(final int columnType, final String columnTypeName) {
+		if (columnType == Types.CLOB || columnType == Types.NCLOB) {
+			return Types.LONGVARCHAR;
+		} else {
+			return columnType;
+		}
+	}
+
+	/** Compensates for the H2 JDBC driver which returns a Clob object for CLOB types. Instead gets the value as a String. */
+	@Override
+	public Object getResultByLabel(final ResultSet resultSet) throws SQLException {
+		if (getColumnType() == Types.LONGVARCHAR) {
+			return resultSet.getString(getQualifiedColumnLabel());
+		} else {
+			return super.getResultByLabel(resultSet);
+		}
+	}
+
+	/** Compensates for the H2 JDBC driver which returns a Clob object for CLOB types. Instead gets the value as a String. */
+	@Override
+	public Object getResultByNumber(final ResultSet resultSet) throws SQLException {
+		if (getColumnType() == Types.LONGVARCHAR) {
+			return resultSet.getString(getColumnNumber());
+		} else {
+			return super.getResultByNumber(resultSet);
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.h2;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.impl.AbstractSequenceManager;
+
+/**
+ * Sequence utilities for H2 1.4.x. Identity and auto increment columns are backed by sequences, named in the column
+ * metadata in the form <code>schema.sequence</code>. Requires 1.4.198 or later, in which CURRVAL() returns the
+ * value last generated by the session.
+ * 
+ * @author Mark Sawers
+ */
+public class H2SequenceManager extends AbstractSequenceManager {
+
+	/** Returns CURRVAL() of the sequence, with the schema and sequence name as literals so that case is preserved. */
+	@Override
+	public String getCurrentValueSql(String sequenceName) {
+		final int dot = sequenceName.lastIndexOf('.');
+		if (dot < 0) {
+			return "SELECT CURRVAL('" + sequenceName + "')";
+		} else {
+			return "SELECT CURRVAL('" + sequenceName.substring(0, dot) + "', '" + sequenceName.substring(dot + 1)
+					+ "')";
+		}
+	}
+
+	@Override
+	public void setNextValue(final Connection connection, final String table, final String sequenceName,
+			final int nextval, boolean printAction) throws SqlResourceException {
+		final String sql = "ALTER SEQUENCE " + sequenceName + " RESTART WITH " + nextval;
+		Statement statement = null;
+		try {
+			statement = connection.createStatement();
+			if (printAction) {
+				System.out.println("\t[setUp] " + sql);
+			}
+			statement.executeUpdate(sql);
+		} catch (final SQLException exception) {
+			throw new SqlResourceException(exception, sql);
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+				}
+			}
+		}
+	}
+}
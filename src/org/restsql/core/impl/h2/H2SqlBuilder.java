@@ -0,0 +1,48 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.h2;
+
+import java.util.List;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.TableMetaData;
+import org.restsql.core.impl.AbstractSqlBuilder;
+
+/**
+ * Adds limit clause and converts upserts to MERGE.
+ * 
+ * @author Mark Sawers
+ */
+public class H2SqlBuilder extends AbstractSqlBuilder {
+
+	@Override
+	public String buildSelectLimitSql(final int limit, final int offset) {
+		StringBuilder string = new StringBuilder(25);
+		string.append(" LIMIT ");
+		string.append(limit);
+		string.append(" OFFSET ");
+		string.append(offset);
+		return string.toString();
+	}
+
+	/** Converts the insert to MERGE INTO ... KEY (primary keys) VALUES (...). */
+	@Override
+	protected void buildUpsertSql(final TableMetaData table, final List<ColumnMetaData> columns,
+			final SqlStruct sql) throws InvalidRequestException {
+		final List<ColumnMetaData> primaryKeys = table.getPrimaryKeys();
+		if (primaryKeys.size() == 0) {
+			throw new InvalidRequestException(InvalidRequestException.MESSAGE_UPSERT_UNSUPPORTED,
+					table.getQualifiedTableName());
+		}
+		sql.getMain().replace(0, "INSERT".length(), "MERGE");
+		sql.getMain().append(" KEY (");
+		for (int i = 0; i < primaryKeys.size(); i++) {
+			if (i > 0) {
+				sql.getMain().append(", ");
+			}
+			sql.getMain().append(primaryKeys.get(i).getColumnName());
+		}
+		sql.getMain().append(')');
+	}
+
+}
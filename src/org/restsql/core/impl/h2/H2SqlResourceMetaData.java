@@ -0,0 +1,111 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.h2;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import org.restsql.core.impl.AbstractSqlResourceMetaData;
+import org.restsql.core.impl.ColumnMetaDataImpl;
+import org.restsql.core.sqlresource.SqlResourceDefinition;
+
+/**
+ * Implements SqlResourceMetaData for H2. A restSQL database maps to an H2 schema, so tables are qualified in the form
+ * <code>schema.table</code>, for example <code>sakila.film</code>, and SQL Resources written for MySQL can be used
+ * unchanged. Identifiers must be stored in lower case, i.e. the database url must include
+ * <code>DATABASE_TO_LOWER=TRUE</code>, or else be created quoted in lower case.
+ * <p>
+ * Requires H2 1.4.x, tested with 1.4.200. The columns and primary key queries use the INFORMATION_SCHEMA of 1.4.x,
+ * which H2 2.x changed: columns no longer have type_name or sequence_name and indexes no longer have primary_key.
+ * 
+ * @author Mark Sawers
+ */
+public class H2SqlResourceMetaData extends AbstractSqlResourceMetaData {
+	private static final String SQL_COLUMNS_QUERY = "select column_name, type_name, sequence_name, table_schema, table_name from information_schema.columns"
+			+ " where table_schema in (%s) and table_name in (%s)";
+	private static final String SQL_PK_QUERY = "select column_name, table_schema, table_name from information_schema.indexes"
+			+ " where table_schema in (%s) and table_name in (%s) and primary_key = true";
+
+	/**
+	 * Retrieves database name from result set meta data. Hook method for buildTablesAndColumns() allows
+	 * database-specific overrides.
+	 */
+	@Override
+	protected String getColumnDatabaseName(final SqlResourceDefinition definition,
+			final ResultSetMetaData resultSetMetaData, final int colNumber) throws SQLException {
+		return resultSetMetaData.getSchemaName(colNumber);
+	}
+
+	/**
+	 * Retrieves sql for querying columns of all the resource's tables at once. Hook method for buildColumns() allows
+	 * database-specific overrides.
+	 */
+	@Override
+	protected String getSqlColumnsQuery(final int databaseCount, final int tableCount) {
+		return String.format(SQL_COLUMNS_QUERY, getParameterList(databaseCount), getParameterList(tableCount));
+	}
+
+	/**
+	 * Retrieves sql for querying primary keys of all the resource's tables at once. Hook method for buildPrimaryKeys()
+	 * allows database-specific overrides.
+	 */
+	@Override
+	protected String getSqlPkQuery(final int databaseCount, final int tableCount) {
+		return String.format(SQL_PK_QUERY, getParameterList(databaseCount), getParameterList(tableCount));
+	}
+
+	/**
+	 * Retrieves qualified column label for disambiguating duplicate labels in SQL statements. H2 result sets are
+	 * accessed by the plain label.
+	 */
+	@Override
+	protected String getQualifiedColumnLabel(String tableName, String qualifiedTableName, final boolean readOnly,
+			final String label) {
+		return label;
+	}
+
+	/** Retrieves database-specific table name used in SQL statements. */
+	@Override
+	protected String getQualifiedTableName(final SqlResourceDefinition definition,
+			final ResultSetMetaData resultSetMetaData, final int colNumber) throws SQLException {
+		return resultSetMetaData.getSchemaName(colNumber) + "." + resultSetMetaData.getTableName(colNumber);
+	}
+
+	/** Retrieves database-specific table name used in SQL statements. Used to build join table meta data. */
+	@Override
+	protected String getQualifiedTableName(Connection connection, String databaseName, String tableName)
+			throws SQLException {
+		return databaseName + "." + tableName;
+	}
+
+	/**
+	 * Return whether a column in the given result set is read-only. The H2 driver does not report function columns as
+	 * read-only, but it does not report a base table for them.
+	 * 
+	 * @param resultSetMetaData Result set metadata
+	 * @param colNumber Column number (1..N)
+	 * @throws SQLException if a database access error occurs
+	 */
+	@Override
+	protected boolean isColumnReadOnly(final ResultSetMetaData resultSetMetaData, final int colNumber)
+			throws SQLException {
+		final String tableName = resultSetMetaData.getTableName(colNumber);
+		return tableName == null || tableName.length() == 0 || resultSetMetaData.isReadOnly(colNumber);
+	}
+
+	/**
+	 * Sets sequence metadata for a column with the columns query result set. The sequence_name column names the
+	 * sequence backing an identity or auto increment column, and is null otherwise.
+	 * 
+	 * @throws SQLException when a database error occurs
+	 */
+	@Override
+	protected void setSequenceMetaData(ColumnMetaDataImpl column, ResultSet resultSet) throws SQLException {
+		final String sequenceName = resultSet.getString(3);
+		if (sequenceName != null) {
+			column.setSequence(true);
+			column.setSequenceName(column.getDatabaseName() + "." + sequenceName);
+		}
+	}
+}
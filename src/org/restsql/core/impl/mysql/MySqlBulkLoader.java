@@ -0,0 +1,143 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.mysql;
+
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.util.List;
+
+import org.restsql.core.BinaryObject;
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.TableMetaData;
+import org.restsql.core.impl.AbstractBulkLoader;
+
+/**
+ * Loads rows with LOAD DATA LOCAL INFILE, giving the driver the rows as the statement's local infile stream instead of
+ * a file. Nulls are <code>\N</code>, strings are quoted and backslash-escaped and binary values are sent as
+ * hexadecimal into a user variable and converted with UNHEX(). Requires the <code>allowLoadLocalInfile</code>
+ * connection property, which the driver enables by default, and <code>local_infile</code> on the server. Tables should
+ * be transactional for a failed load to leave the table unchanged.
+ * <p>
+ * With LOCAL, the server cannot stop the client's stream, so it treats rows that would fail, for example duplicate keys
+ * or values that do not convert, as with IGNORE: they are skipped or converted with a warning. The loader fails the
+ * load if the statement has any warning, so that it is rolled back as for the other databases.
+ *
+ * @author Mark Sawers
+ */
+public class MySqlBulkLoader extends AbstractBulkLoader {
+
+	@Override
+	protected void appendValue(final ColumnMetaData column, final Object value, final StringBuilder line) {
+		if (value == null) {
+			line.append("\\N");
+		} else if (value instanceof Boolean) {
+			line.append(((Boolean) value).booleanValue() ? '1' : '0');
+		} else if (value instanceof Number) {
+			line.append(value);
+		} else if (value instanceof BinaryObject) {
+			appendHex(((BinaryObject) value).getBytes(), line);
+		} else {
+			final String string = value.toString();
+			line.append('"');
+			for (int i = 0; i < string.length(); i++) {
+				final char c = string.charAt(i);
+				switch (c) {
+					case '\\':
+						line.append("\\\\");
+						break;
+					case '"':
+						line.append("\\\"");
+						break;
+					case '\n':
+						line.append("\\n");
+						break;
+					case '\r':
+						line.append("\\r");
+						break;
+					case '\0':
+						line.append("\\0");
+						break;
+					default:
+						line.append(c);
+				}
+			}
+			line.append('"');
+		}
+	}
+
+	@Override
+	protected String buildLoadSql(final TableMetaData table, final List<ColumnMetaData> columns) {
+		final StringBuilder sql = new StringBuilder(200 + columns.size() * 20);
+		sql.append("LOAD DATA LOCAL INFILE 'stream' INTO TABLE ");
+		sql.append(table.getQualifiedTableName());
+		sql.append(" CHARACTER SET utf8mb4 FIELDS TERMINATED BY ',' ENCLOSED BY '\"' ESCAPED BY '\\\\'");
+		sql.append(" LINES TERMINATED BY '\\n' (");
+		final StringBuilder set = new StringBuilder();
+		for (int i = 0; i < columns.size(); i++) {
+			final ColumnMetaData column = columns.get(i);
+			if (i > 0) {
+				sql.append(", ");
+			}
+			if (column.isBinaryType()) {
+				sql.append("@v");
+				sql.append(i);
+				set.append(set.length() == 0 ? " SET " : ", ");
+				set.append(column.getColumnName());
+				set.append(" = UNHEX(@v");
+				set.append(i);
+				set.append(')');
+			} else {
+				sql.append(column.getColumnName());
+			}
+		}
+		sql.append(')');
+		sql.append(set);
+		return sql.toString();
+	}
+
+	@Override
+	protected int executeLoad(final Connection connection, final String sql, final InputStream input)
+			throws SQLException {
+		final Statement statement = connection.createStatement();
+		try {
+			setLocalInfileInputStream(statement, input);
+			final int rowsLoaded = statement.executeUpdate(sql);
+			final SQLWarning warning = statement.getWarnings();
+			if (warning != null) {
+				throw new SQLException("Load had warnings, rows would have been skipped or converted: "
+						+ warning.getMessage(), warning.getSQLState(), warning.getErrorCode(), warning);
+			}
+			return rowsLoaded;
+		} finally {
+			statement.close();
+		}
+	}
+
+	// Private utils
+
+	/**
+	 * Gives the statement the stream to read for LOCAL INFILE. The driver's method is called by reflection, so that the
+	 * driver is not needed to compile.
+	 */
+	private void setLocalInfileInputStream(final Statement statement, final InputStream input) throws SQLException {
+		try {
+			final Class<?> mySqlStatementClass = Class.forName("com.mysql.jdbc.Statement");
+			final Object mySqlStatement = mySqlStatementClass.isInstance(statement) ? statement : statement
+					.unwrap(mySqlStatementClass);
+			mySqlStatementClass.getMethod("setLocalInfileInputStream", InputStream.class).invoke(mySqlStatement,
+					input);
+		} catch (final ClassNotFoundException exception) {
+			throw new SQLException("MySQL driver not found: " + exception.getMessage(), exception);
+		} catch (final NoSuchMethodException exception) {
+			throw new SQLException("MySQL driver does not support LOCAL INFILE streams", exception);
+		} catch (final IllegalAccessException exception) {
+			throw new SQLException("MySQL driver does not support LOCAL INFILE streams", exception);
+		} catch (final InvocationTargetException exception) {
+			throw new SQLException("Error setting LOCAL INFILE stream: " + exception.getCause(), exception
+					.getCause());
+		}
+	}
+}
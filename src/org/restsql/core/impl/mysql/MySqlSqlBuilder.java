@@ -1,10 +1,14 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core.impl.mysql;
 
+import java.util.List;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.TableMetaData;
 import org.restsql.core.impl.AbstractSqlBuilder;
 
 /**
- * Adds limit clause.
+ * Adds limit clause and ON DUPLICATE KEY UPDATE clause for upserts.
  * 
  * @author Mark Sawers
  */
@@ -20,4 +24,38 @@ public class MySqlSqlBuilder extends AbstractSqlBuilder {
 		return string.toString();
 	}
 
+	/** Updates the non-key columns on a duplicate key, or leaves the row unchanged if all columns are keys. */
+	@Override
+	protected void buildUpsertSql(final TableMetaData table, final List<ColumnMetaData> columns,
+			final SqlStruct sql) {
+		final StringBuilder string = new StringBuilder(100);
+		string.append(" ON DUPLICATE KEY UPDATE ");
+		boolean first = true;
+		for (final ColumnMetaData column : columns) {
+			if (!column.isPrimaryKey()) {
+				if (!first) {
+					string.append(", ");
+				}
+				string.append(column.getColumnName());
+				string.append(" = VALUES(");
+				string.append(column.getColumnName());
+				string.append(')');
+				first = false;
+			}
+		}
+		if (first) {
+			final String columnName = columns.get(0).getColumnName();
+			string.append(columnName);
+			string.append(" = ");
+			string.append(columnName);
+		}
+		sql.appendToBothClauses(string.toString());
+	}
+
+	/** MySQL limits prepared statements to 65535 parameters. */
+	@Override
+	protected int getMaxPreparedParameters() {
+		return 65535;
+	}
+
 }
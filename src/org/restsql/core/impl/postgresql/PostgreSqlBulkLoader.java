@@ -0,0 +1,74 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.postgresql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.postgresql.PGConnection;
+import org.restsql.core.BinaryObject;
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.TableMetaData;
+import org.restsql.core.impl.AbstractBulkLoader;
+
+/**
+ * Loads rows with COPY FROM STDIN in CSV format through the driver's CopyManager. Nulls are empty fields, strings are
+ * quoted and binary values use bytea hex format.
+ *
+ * @author Mark Sawers
+ */
+public class PostgreSqlBulkLoader extends AbstractBulkLoader {
+
+	@Override
+	protected void appendValue(final ColumnMetaData column, final Object value, final StringBuilder line) {
+		if (value == null) {
+			// empty unquoted field is null
+		} else if (value instanceof Number || value instanceof Boolean) {
+			line.append(value);
+		} else if (value instanceof BinaryObject) {
+			line.append("\\x");
+			appendHex(((BinaryObject) value).getBytes(), line);
+		} else {
+			final String string = value.toString();
+			line.append('"');
+			for (int i = 0; i < string.length(); i++) {
+				final char c = string.charAt(i);
+				if (c == '"') {
+					line.append('"');
+				}
+				line.append(c);
+			}
+			line.append('"');
+		}
+	}
+
+	@Override
+	protected String buildLoadSql(final TableMetaData table, final List<ColumnMetaData> columns) {
+		final StringBuilder sql = new StringBuilder(100 + columns.size() * 20);
+		sql.append("COPY ");
+		sql.append(table.getQualifiedTableName());
+		sql.append(" (");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns.get(i).getColumnName());
+		}
+		sql.append(") FROM STDIN WITH CSV");
+		return sql.toString();
+	}
+
+	@Override
+	protected int executeLoad(final Connection connection, final String sql, final InputStream input)
+			throws SQLException {
+		final PGConnection pgConnection = connection instanceof PGConnection ? (PGConnection) connection
+				: connection.unwrap(PGConnection.class);
+		try {
+			return (int) pgConnection.getCopyAPI().copyIn(sql, input);
+		} catch (final IOException exception) {
+			throw new SQLException("Error reading rows to load -- " + exception.getMessage(), exception);
+		}
+	}
+}
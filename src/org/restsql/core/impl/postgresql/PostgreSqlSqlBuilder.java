@@ -2,18 +2,25 @@
 package org.restsql.core.impl.postgresql;
 
 import java.sql.Types;
+import java.util.List;
 
 import org.restsql.core.ColumnMetaData;
+import org.restsql.core.TableMetaData;
 import org.restsql.core.impl.AbstractSqlBuilder;
 
 /**
- * Adds limit clause and special handling for type casting parameters in prepared statements (apparently only needed for
- * IN operator).
+ * Adds limit clause, JSON explain output, RETURNING clause for generated sequence values, ON CONFLICT clause for upserts
+ * and special handling for type casting parameters in prepared statements (apparently only needed for IN operator).
  * 
  * @author Mark Sawers
  */
 public class PostgreSqlSqlBuilder extends AbstractSqlBuilder {
 
+	@Override
+	public String buildExplainSql(final String preparedStatement) {
+		return "EXPLAIN (FORMAT JSON) " + preparedStatement;
+	}
+
 	@Override
 	public String buildSelectLimitSql(final int limit, final int offset) {
 		StringBuilder string = new StringBuilder(25);
@@ -24,6 +31,55 @@ public class PostgreSqlSqlBuilder extends AbstractSqlBuilder {
 		return string.toString();
 	}
 
+	@Override
+	protected String buildInsertReturningSql(final List<ColumnMetaData> columns) {
+		final StringBuilder string = new StringBuilder(50);
+		string.append(" RETURNING ");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				string.append(", ");
+			}
+			string.append(columns.get(i).getColumnName());
+		}
+		return string.toString();
+	}
+
+	/**
+	 * Updates the non-key columns on a primary key conflict. Does nothing on conflict if all columns are keys or the
+	 * table has no primary key.
+	 */
+	@Override
+	protected void buildUpsertSql(final TableMetaData table, final List<ColumnMetaData> columns,
+			final SqlStruct sql) {
+		final StringBuilder string = new StringBuilder(100);
+		string.append(" ON CONFLICT");
+		final List<ColumnMetaData> primaryKeys = table.getPrimaryKeys();
+		boolean first = true;
+		if (primaryKeys.size() > 0) {
+			string.append(" (");
+			for (int i = 0; i < primaryKeys.size(); i++) {
+				if (i > 0) {
+					string.append(", ");
+				}
+				string.append(primaryKeys.get(i).getColumnName());
+			}
+			string.append(')');
+			for (final ColumnMetaData column : columns) {
+				if (!column.isPrimaryKey()) {
+					string.append(first ? " DO UPDATE SET " : ", ");
+					string.append(column.getColumnName());
+					string.append(" = EXCLUDED.");
+					string.append(column.getColumnName());
+					first = false;
+				}
+			}
+		}
+		if (first) {
+			string.append(" DO NOTHING");
+		}
+		sql.appendToBothClauses(string.toString());
+	}
+
 	@Override
 	protected String buildPreparedParameterSql(final ColumnMetaData column) {
 		switch (column.getColumnType()) {
@@ -67,4 +123,10 @@ public class PostgreSqlSqlBuilder extends AbstractSqlBuilder {
 		}
 	}
 
+	/** The PostgreSQL JDBC driver limits prepared statements to 32767 parameters. */
+	@Override
+	protected int getMaxPreparedParameters() {
+		return 32767;
+	}
+
 }
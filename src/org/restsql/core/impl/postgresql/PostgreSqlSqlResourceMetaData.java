@@ -21,9 +21,10 @@ import org.restsql.core.sqlresource.SqlResourceDefinitionUtils;
  * @author Mark Sawers
  */
 public class PostgreSqlSqlResourceMetaData extends AbstractSqlResourceMetaData {
-	private static final String SQL_COLUMNS_QUERY = "select column_name, data_type, column_default from information_schema.columns where table_catalog = ? and table_name = ?";
-	private static final String SQL_PK_QUERY = "select column_name from information_schema.table_constraints tc, information_schema.key_column_usage kcu"
-			+ " where tc.constraint_catalog = ? and tc.table_name = ?"
+	private static final String SQL_COLUMNS_QUERY = "select column_name, data_type, column_default, table_catalog, table_name from information_schema.columns"
+			+ " where table_catalog in (%s) and table_name in (%s)";
+	private static final String SQL_PK_QUERY = "select kcu.column_name, tc.constraint_catalog, tc.table_name from information_schema.table_constraints tc, information_schema.key_column_usage kcu"
+			+ " where tc.constraint_catalog in (%s) and tc.table_name in (%s)"
 			+ " and tc.constraint_type = 'PRIMARY KEY'"
 			+ " and tc.constraint_schema = kcu.constraint_schema and tc.table_name = kcu.table_name"
 			+ " and tc.constraint_name = kcu.constraint_name";
@@ -60,20 +61,21 @@ public class PostgreSqlSqlResourceMetaData extends AbstractSqlResourceMetaData {
 	}
 
 	/**
-	 * Retrieves sql for querying columns. Hook method for buildInvisibleForeignKeys() and buildJoinTableMetadata()
-	 * allows database-specific overrides.
+	 * Retrieves sql for querying columns of all the resource's tables at once. Hook method for buildColumns() allows
+	 * database-specific overrides.
 	 */
 	@Override
-	protected String getSqlColumnsQuery() {
-		return SQL_COLUMNS_QUERY;
+	protected String getSqlColumnsQuery(final int databaseCount, final int tableCount) {
+		return String.format(SQL_COLUMNS_QUERY, getParameterList(databaseCount), getParameterList(tableCount));
 	}
 
 	/**
-	 * Retrieves sql for querying primary keys. Hook method for buildPrimaryKeys allows database-specific overrides.
+	 * Retrieves sql for querying primary keys of all the resource's tables at once. Hook method for buildPrimaryKeys()
+	 * allows database-specific overrides.
 	 */
 	@Override
-	protected String getSqlPkQuery() {
-		return SQL_PK_QUERY;
+	protected String getSqlPkQuery(final int databaseCount, final int tableCount) {
+		return String.format(SQL_PK_QUERY, getParameterList(databaseCount), getParameterList(tableCount));
 	}
 
 	/**
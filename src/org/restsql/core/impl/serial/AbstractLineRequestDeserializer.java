@@ -0,0 +1,352 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.serial;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.restsql.core.BatchSqlResource;
+import org.restsql.core.BulkLoader.RowSource;
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
+import org.restsql.core.Factory;
+import org.restsql.core.HttpRequestAttributes;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.Request;
+import org.restsql.core.Request.Type;
+import org.restsql.core.RequestLogger;
+import org.restsql.core.RequestValue;
+import org.restsql.core.SqlResource;
+import org.restsql.core.SqlResourceException;
+import org.restsql.core.SqlResourceMetaData;
+import org.restsql.core.StreamingRequestDeserializer;
+import org.restsql.core.TableMetaData;
+import org.restsql.core.WriteResponse;
+import org.restsql.core.impl.TriggerManager;
+
+/**
+ * Processes requests with one row per line (or record), for bulk loads into flat SQL Resources. Subclasses parse the
+ * rows.
+ * <p>
+ * Rows are read one at a time and written in batches of <code>request.streaming.batchSize</code>, so a streamed body
+ * is only read as fast as the database accepts the rows. Values are normalized to the column types as each row is read.
+ * Rows that cannot be parsed or normalized are skipped and reported, as are the rows of batches that fail to write, and
+ * the remaining rows are still written. Each batch is written in one transaction, so a batch that fails leaves none of
+ * its rows written, and the rows affected only count batches that succeeded. The response summarizes the rows
+ * affected and the lines read and failed, with the errors, instead of returning the rows. If the SQL Resource has a
+ * {@link org.restsql.core.BatchTrigger}, all rows are collected and written together once the body is read.
+ * <p>
+ * If <code>database.bulkLoad</code> is enabled, inserts into a resource with only a parent table and no triggers are
+ * instead streamed through the database's native bulk load, see {@link org.restsql.core.BulkLoader}. Every row must
+ * have the columns of the first row. The load is all or nothing, so a failure is reported for all lines loaded.
+ *
+ * @author Mark Sawers
+ */
+public abstract class AbstractLineRequestDeserializer implements StreamingRequestDeserializer {
+	private static final int batchSize = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_REQUEST_STREAMING_BATCH_SIZE, Config.DEFAULT_REQUEST_STREAMING_BATCH_SIZE));
+	private static final String bulkLoad = Config.properties.getProperty(Config.KEY_DATABASE_BULK_LOAD,
+			Config.DEFAULT_DATABASE_BULK_LOAD);
+
+	@Override
+	public WriteResponse execWrite(final HttpRequestAttributes httpAttributes, final Type requestType,
+			final List<RequestValue> resIds, final SqlResource sqlResource, final String requestBody,
+			final RequestLogger requestLogger) throws SqlResourceException {
+		return execWrite(httpAttributes, requestType, resIds, sqlResource, new StringReader(requestBody),
+				requestLogger);
+	}
+
+	@Override
+	public WriteResponse execWrite(final HttpRequestAttributes httpAttributes, final Type requestType,
+			final List<RequestValue> resIds, final SqlResource sqlResource, final Reader requestBody,
+			final RequestLogger requestLogger) throws SqlResourceException {
+		if (sqlResource.getMetaData().isHierarchical()) {
+			throw new InvalidRequestException(getFormatName() + " bodies are only supported for flat resources");
+		} else if (resIds != null) {
+			throw new InvalidRequestException(getFormatName()
+					+ " bodies cannot be combined with resource identifiers");
+		}
+
+		final RowReader rowReader = newRowReader(sqlResource, new BufferedReader(requestBody));
+		final WriteResponse response = new WriteResponse();
+		try {
+			rowReader.start();
+			if (isBulkLoaded(requestType, sqlResource)) {
+				load(sqlResource, rowReader, response, requestLogger);
+			} else {
+				write(httpAttributes, requestType, sqlResource, rowReader, response, requestLogger);
+			}
+		} catch (final IOException exception) {
+			throw new InvalidRequestException("Error reading request body at line " + rowReader.getLineNumber()
+					+ ": " + exception.toString());
+		}
+		return response;
+	}
+
+	// Protected methods for format-specific implementation
+
+	/** Returns format name for error messages. */
+	protected abstract String getFormatName();
+
+	/** Returns reader of the rows in the body written to the SQL Resource. */
+	protected abstract RowReader newRowReader(final SqlResource sqlResource, final BufferedReader reader);
+
+	/** Reads the rows of a body. */
+	protected interface RowReader {
+
+		/** Returns line number of the start of the last row read. */
+		public int getLineNumber();
+
+		/**
+		 * Returns the next row's values as strings, not yet normalized, or null after the last row. Blank lines are
+		 * skipped.
+		 *
+		 * @throws IOException if the body cannot be read
+		 * @throws InvalidRequestException if the row cannot be parsed, in which case the reader is positioned at the
+		 *             next row
+		 */
+		public List<RequestValue> next() throws IOException, InvalidRequestException;
+
+		/**
+		 * Reads what precedes the rows, if anything, e.g. a header.
+		 *
+		 * @throws IOException if the body cannot be read
+		 * @throws InvalidRequestException if the body is invalid as a whole, failing the request
+		 */
+		public void start() throws IOException, InvalidRequestException;
+	}
+
+	// Private utils
+
+	/**
+	 * Writes the batch, adding the rows affected, or a line error for the batch if it fails. Resources that cannot
+	 * write a batch with one call are written a row at a time, with a line error for each row that fails.
+	 */
+	private void executeBatch(final SqlResource sqlResource, final List<Request> batchRequests,
+			final List<Integer> batchLines, final WriteResponse response) {
+		if (batchRequests.isEmpty()) {
+			return;
+		} else if (sqlResource instanceof BatchSqlResource) {
+			try {
+				response.addRowsAffected(((BatchSqlResource) sqlResource).write(batchRequests).getRowsAffected());
+			} catch (final SqlResourceException exception) {
+				final int firstLine = batchLines.get(0).intValue();
+				final int lastLine = batchLines.get(batchLines.size() - 1).intValue();
+				response.addLineError(firstLine, batchLines.size(), "Batch of lines " + firstLine + " to "
+						+ lastLine + " failed: " + exception.getMessage());
+			}
+		} else {
+			for (int i = 0; i < batchRequests.size(); i++) {
+				try {
+					response.addRowsAffected(sqlResource.write(batchRequests.get(i)).getRowsAffected());
+				} catch (final SqlResourceException exception) {
+					response.addLineError(batchLines.get(i).intValue(), 1, exception.getMessage());
+				}
+			}
+		}
+	}
+
+	/** Returns column for the name in the parent or its extensions, or null if there is none. */
+	private ColumnMetaData getColumn(final SqlResourceMetaData metaData, final String name) {
+		for (final TableMetaData table : metaData.getParentPlusExtTables()) {
+			final ColumnMetaData column = table.getColumns().get(name);
+			if (column != null) {
+				return column;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns true if the resource can bulk load, bulk load is enabled for it and the request is an insert into the
+	 * parent alone.
+	 */
+	private boolean isBulkLoaded(final Type requestType, final SqlResource sqlResource) {
+		return requestType == Type.INSERT && sqlResource instanceof BatchSqlResource
+				&& Boolean.valueOf(Config.properties.getProperty(
+						Config.KEY_DATABASE_BULK_LOAD + "." + sqlResource.getName(), bulkLoad)).booleanValue()
+				&& sqlResource.getTriggers().isEmpty()
+				&& sqlResource.getMetaData().getWriteTables(Type.INSERT, true).size() == 1;
+	}
+
+	/** Returns true if the name is a primary key of the parent. */
+	private boolean isPrimaryKey(final SqlResourceMetaData metaData, final String name) {
+		for (final ColumnMetaData column : metaData.getParent().getPrimaryKeys()) {
+			if (column.getColumnLabel().equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Loads all rows with the resource's bulk load. The first valid row fixes the columns.
+	 *
+	 * @throws IOException if the body cannot be read before the load starts
+	 */
+	private void load(final SqlResource sqlResource, final RowReader rowReader, final WriteResponse response,
+			final RequestLogger requestLogger) throws IOException {
+		final LoadRowSource rows = new LoadRowSource(sqlResource.getMetaData(), rowReader, response);
+		final List<String> columnLabels = rows.readFirst();
+		if (columnLabels != null) {
+			try {
+				response.addRowsAffected(((BatchSqlResource) sqlResource).load(columnLabels, rows, requestLogger)
+						.getRowsAffected());
+			} catch (final SqlResourceException exception) {
+				response.addLineError(rows.firstLine, rows.linesLoaded, "Load of lines " + rows.firstLine + " to "
+						+ rows.lastLine + " failed: " + exception.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Returns the next parsed row, or null after the last row, counting each row read and reporting rows that cannot be
+	 * parsed.
+	 */
+	private List<RequestValue> nextRow(final RowReader rowReader, final WriteResponse response) throws IOException {
+		while (true) {
+			try {
+				final List<RequestValue> values = rowReader.next();
+				if (values != null) {
+					response.addLinesRead(1);
+				}
+				return values;
+			} catch (final InvalidRequestException exception) {
+				response.addLinesRead(1);
+				response.addLineError(rowReader.getLineNumber(), 1, exception.getMessage());
+			}
+		}
+	}
+
+	/** Normalizes the row's values to their column types. */
+	private void normalize(final SqlResourceMetaData metaData, final List<RequestValue> values)
+			throws InvalidRequestException {
+		for (final RequestValue value : values) {
+			final ColumnMetaData column = getColumn(metaData, value.getName());
+			if (column != null) {
+				column.normalizeValue(value);
+			}
+		}
+	}
+
+	/**
+	 * Writes the rows in batches, or all at once if the resource has a batch trigger. Updates take the
+	 * primary keys as resource identifiers and the other values as parameters, so each update row must have all primary
+	 * keys.
+	 */
+	private void write(final HttpRequestAttributes httpAttributes, final Type requestType,
+			final SqlResource sqlResource, final RowReader rowReader, final WriteResponse response,
+			final RequestLogger requestLogger) throws IOException {
+		final SqlResourceMetaData metaData = sqlResource.getMetaData();
+		final boolean batchStreamed = !TriggerManager.hasBatchTrigger(sqlResource.getTriggers());
+		List<Request> batchRequests = new ArrayList<Request>();
+		List<Integer> batchLines = new ArrayList<Integer>();
+		List<RequestValue> values;
+		while ((values = nextRow(rowReader, response)) != null) {
+			try {
+				normalize(metaData, values);
+				List<RequestValue> resIds = null;
+				List<RequestValue> params = values;
+				if (requestType == Type.UPDATE) {
+					resIds = new ArrayList<RequestValue>(metaData.getParent().getPrimaryKeys().size());
+					params = new ArrayList<RequestValue>(values.size());
+					for (final RequestValue value : values) {
+						if (isPrimaryKey(metaData, value.getName())) {
+							resIds.add(value);
+						} else {
+							params.add(value);
+						}
+					}
+					if (resIds.size() < metaData.getParent().getPrimaryKeys().size()) {
+						throw new InvalidRequestException("Line does not have all primary keys for the update");
+					}
+				}
+				batchRequests.add(Factory.getRequest(httpAttributes, requestType, sqlResource.getName(), resIds,
+						params, null, requestLogger));
+				batchLines.add(Integer.valueOf(rowReader.getLineNumber()));
+			} catch (final InvalidRequestException exception) {
+				response.addLineError(rowReader.getLineNumber(), 1, exception.getMessage());
+			}
+			if (batchStreamed && batchRequests.size() >= batchSize) {
+				executeBatch(sqlResource, batchRequests, batchLines, response);
+				batchRequests = new ArrayList<Request>();
+				batchLines = new ArrayList<Integer>();
+			}
+		}
+		executeBatch(sqlResource, batchRequests, batchLines, response);
+	}
+
+	/**
+	 * Supplies the bulk load with the normalized rows, skipping and reporting rows that are invalid or do not have the
+	 * columns of the first row.
+	 */
+	private class LoadRowSource implements RowSource {
+		private List<String> columnLabels;
+		private Object[] first;
+		private int firstLine, lastLine, linesLoaded;
+		private final SqlResourceMetaData metaData;
+		private final WriteResponse response;
+		private final RowReader rowReader;
+
+		LoadRowSource(final SqlResourceMetaData metaData, final RowReader rowReader, final WriteResponse response) {
+			this.metaData = metaData;
+			this.rowReader = rowReader;
+			this.response = response;
+		}
+
+		@Override
+		public Object[] next() throws IOException {
+			if (first != null) {
+				final Object[] row = first;
+				first = null;
+				return row;
+			}
+			return readRow();
+		}
+
+		/** Reads the first valid row, returning its column labels, or null if there are no valid rows. */
+		List<String> readFirst() throws IOException {
+			first = readRow();
+			if (first != null) {
+				firstLine = lastLine;
+			}
+			return columnLabels;
+		}
+
+		/** Returns the next valid row's values in column order, or null after the last row. */
+		private Object[] readRow() throws IOException {
+			List<RequestValue> values;
+			while ((values = nextRow(rowReader, response)) != null) {
+				try {
+					normalize(metaData, values);
+					if (columnLabels == null) {
+						columnLabels = new ArrayList<String>(values.size());
+						for (final RequestValue value : values) {
+							columnLabels.add(value.getName());
+						}
+					}
+					final Object[] row = new Object[columnLabels.size()];
+					if (values.size() != row.length) {
+						throw new InvalidRequestException("Line does not have the columns of the first line");
+					}
+					for (final RequestValue value : values) {
+						final int index = columnLabels.indexOf(value.getName());
+						if (index < 0) {
+							throw new InvalidRequestException("Line does not have the columns of the first line");
+						}
+						row[index] = value.getValue();
+					}
+					lastLine = rowReader.getLineNumber();
+					linesLoaded++;
+					return row;
+				} catch (final InvalidRequestException exception) {
+					response.addLineError(rowReader.getLineNumber(), 1, exception.getMessage());
+				}
+			}
+			return null;
+		}
+	}
+}
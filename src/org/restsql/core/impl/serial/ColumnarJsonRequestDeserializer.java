@@ -0,0 +1,148 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.serial;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.RequestValue;
+import org.restsql.core.RequestValue.Operator;
+import org.restsql.core.SqlResource;
+
+/**
+ * Processes requests represented in the compact JSON of {@link ColumnarJsonResponseSerializer}, for bulk loads into
+ * flat SQL Resources, so that read results can be written back unchanged. The body is a columns header and an array of
+ * values per row, media type <code>application/json; layout=rows</code>, or per column, media type
+ * <code>application/json; layout=columns</code>, under the resource's row set alias, e.g. <code>films</code>. The body
+ * is parsed whole, then rows are taken in order and numbered from 1 as lines. See
+ * {@link AbstractLineRequestDeserializer} for how the rows are written and errors are reported.
+ *
+ * @author Mark Sawers
+ */
+public class ColumnarJsonRequestDeserializer extends AbstractLineRequestDeserializer {
+	private final boolean byColumn;
+
+	/**
+	 * Constructs deserializer.
+	 *
+	 * @param byColumn true for an array of values per column, false for an array of values per row
+	 */
+	public ColumnarJsonRequestDeserializer(final boolean byColumn) {
+		this.byColumn = byColumn;
+	}
+
+	@Override
+	public String getSupportedMediaType() {
+		return byColumn ? "application/json; layout=columns" : "application/json; layout=rows";
+	}
+
+	@Override
+	protected String getFormatName() {
+		return "Columnar JSON";
+	}
+
+	@Override
+	protected RowReader newRowReader(final SqlResource sqlResource, final BufferedReader reader) {
+		return new ColumnarRowReader(sqlResource.getMetaData().getParent().getRowSetAlias(), reader);
+	}
+
+	/** Parses the body on start, then takes one row at a time. */
+	private class ColumnarRowReader implements RowReader {
+		private List<?> arrays;
+		private List<?> columns;
+		private int rowNumber;
+		private final BufferedReader reader;
+		private final String rowSetAlias;
+
+		ColumnarRowReader(final String rowSetAlias, final BufferedReader reader) {
+			this.rowSetAlias = rowSetAlias;
+			this.reader = reader;
+		}
+
+		@Override
+		public int getLineNumber() {
+			return rowNumber;
+		}
+
+		/**
+		 * Returns the next row.
+		 *
+		 * @throws InvalidRequestException if the row does not have a value for each column or has a nested value
+		 */
+		@Override
+		public List<RequestValue> next() throws InvalidRequestException {
+			final int rowCount = byColumn ? (arrays.isEmpty() ? 0 : ((List<?>) arrays.get(0)).size()) : arrays
+					.size();
+			if (rowNumber >= rowCount) {
+				return null;
+			}
+			rowNumber++;
+
+			final List<RequestValue> row = new ArrayList<RequestValue>(columns.size());
+			for (int i = 0; i < columns.size(); i++) {
+				final Object value;
+				if (byColumn) {
+					value = ((List<?>) arrays.get(i)).get(rowNumber - 1);
+				} else {
+					final Object array = arrays.get(rowNumber - 1);
+					if (!(array instanceof List<?>) || ((List<?>) array).size() != columns.size()) {
+						throw new InvalidRequestException("Row is not an array with a value for each column");
+					}
+					value = ((List<?>) array).get(i);
+				}
+				if (value instanceof Map<?, ?> || value instanceof List<?>) {
+					throw new InvalidRequestException("Row is not flat, " + columns.get(i) + " has a nested value");
+				}
+				row.add(new RequestValue(String.valueOf(columns.get(i)), value == null ? null : value.toString(),
+						Operator.Equals));
+			}
+			return row;
+		}
+
+		/**
+		 * Parses the body, finding the columns header and the arrays.
+		 *
+		 * @throws InvalidRequestException if the body is not a columns header and arrays of values under the row set
+		 *             alias, or, by column, the arrays do not all have a value for each row
+		 */
+		@Override
+		public void start() throws IOException, InvalidRequestException {
+			final Object object;
+			try {
+				object = new JSONParser().parse(reader);
+			} catch (final ParseException exception) {
+				throw new InvalidRequestException("Error parsing request body: " + exception.toString());
+			}
+			if (object instanceof Map<?, ?>) {
+				final Map<?, ?> map = (Map<?, ?>) object;
+				if (map.get("columns") instanceof List<?>) {
+					columns = (List<?>) map.get("columns");
+				}
+				if (map.get(rowSetAlias) instanceof List<?>) {
+					arrays = (List<?>) map.get(rowSetAlias);
+				}
+			}
+			if (columns == null || arrays == null) {
+				throw new InvalidRequestException("Request body is not an object with a columns array and an array "
+						+ rowSetAlias + " of values");
+			}
+			if (byColumn) {
+				if (arrays.size() != columns.size()) {
+					throw new InvalidRequestException("Request body does not have an array for each column");
+				}
+				for (final Object array : arrays) {
+					if (!(array instanceof List<?>)
+							|| ((List<?>) array).size() != ((List<?>) arrays.get(0)).size()) {
+						throw new InvalidRequestException(
+								"Request body column arrays do not all have a value for each row");
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.serial;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.RowCountingResponseSerializer;
+import org.restsql.core.SqlResource;
+import org.restsql.core.WriteResponse;
+
+/**
+ * Converts read results to compact JSON that names the columns once instead of in every row. The columns header is
+ * followed by the rows as positional arrays, media type <code>application/json; layout=rows</code>, as in:
+ *
+ * <pre>
+ * { "columns": ["film_id","title","release_year"],
+ * 	"films": [
+ * 		[1,"ACADEMY DINOSAUR",2006],
+ * 		[2,"ACE GOLDFINGER",2006]
+ * 	]
+ * }
+ * </pre>
+ *
+ * or by an array of values per column, media type <code>application/json; layout=columns</code>, as in:
+ *
+ * <pre>
+ * { "columns": ["film_id","title","release_year"],
+ * 	"films": [
+ * 		[1,2],
+ * 		["ACADEMY DINOSAUR","ACE GOLDFINGER"],
+ * 		[2006,2006]
+ * 	]
+ * }
+ * </pre>
+ *
+ * Nulls are included, since values are positional. Hierarchical results are flattened to one row per child row,
+ * repeating the parent's values, with a parent that has no children written once with null child values. Write
+ * responses are the same as for <code>application/json</code>.
+ *
+ * @author Mark Sawers
+ */
+public class ColumnarJsonResponseSerializer implements RowCountingResponseSerializer {
+	private final boolean byColumn;
+	private final JsonResponseSerializer jsonResponseSerializer = new JsonResponseSerializer();
+
+	/**
+	 * Constructs serializer.
+	 *
+	 * @param byColumn true for an array of values per column, false for an array of values per row
+	 */
+	public ColumnarJsonResponseSerializer(final boolean byColumn) {
+		this.byColumn = byColumn;
+	}
+
+	@Override
+	public String getSupportedMediaType() {
+		return byColumn ? "application/json; layout=columns" : "application/json; layout=rows";
+	}
+
+	/**
+	 * Converts flat select results to a columns header and arrays of values.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @return JSON string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
+			throws SQLException {
+		return serializeReadFlat(sqlResource, resultSet, new AtomicInteger());
+	}
+
+	/**
+	 * Converts flat select results to a columns header and arrays of values, setting the number of rows.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param rowCount set to the number of rows
+	 * @return JSON string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet,
+			final AtomicInteger rowCount) throws SQLException {
+		final List<ColumnMetaData> columns = getColumns(sqlResource.getMetaData().getAllReadColumns());
+		final ValueArrays arrays = new ValueArrays(columns.size());
+		final Object[] values = new Object[columns.size()];
+		while (resultSet.next()) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = columns.get(i).getResultByNumber(resultSet);
+			}
+			arrays.addRow(values);
+		}
+		rowCount.set(arrays.rowCount);
+		return completeDoc(sqlResource, columns, null, arrays);
+	}
+
+	/**
+	 * Converts hierarchical select results to a columns header and arrays of values, with a row per child row.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param results results
+	 * @return JSON string
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public String serializeReadHierarchical(final SqlResource sqlResource,
+			final List<Map<String, Object>> results) {
+		final List<ColumnMetaData> parentColumns = getColumns(sqlResource.getMetaData().getParentReadColumns());
+		final List<ColumnMetaData> childColumns = getColumns(sqlResource.getMetaData().getChildReadColumns());
+		final ValueArrays arrays = new ValueArrays(parentColumns.size() + childColumns.size());
+		final Object[] values = new Object[parentColumns.size() + childColumns.size()];
+		for (final Map<String, Object> row : results) {
+			List<Map<String, Object>> childRows = null;
+			for (int i = 0; i < parentColumns.size(); i++) {
+				values[i] = row.get(parentColumns.get(i).getColumnLabel());
+			}
+			for (final Object value : row.values()) {
+				if (value instanceof List<?>) {
+					childRows = (List<Map<String, Object>>) value;
+				}
+			}
+			if (childRows == null || childRows.isEmpty()) {
+				for (int i = parentColumns.size(); i < values.length; i++) {
+					values[i] = null;
+				}
+				arrays.addRow(values);
+			} else {
+				for (final Map<String, Object> childRow : childRows) {
+					for (int i = 0; i < childColumns.size(); i++) {
+						values[parentColumns.size() + i] = childRow.get(childColumns.get(i).getColumnLabel());
+					}
+					arrays.addRow(values);
+				}
+			}
+		}
+		return completeDoc(sqlResource, parentColumns, childColumns, arrays);
+	}
+
+	/**
+	 * Converts write results to a JSON object, as for <code>application/json</code>.
+	 *
+	 * @param response response
+	 * @return JSON string
+	 */
+	@Override
+	public String serializeWrite(final SqlResource sqlResource, final WriteResponse response) {
+		return jsonResponseSerializer.serializeWrite(sqlResource, response);
+	}
+
+	// Package level utils (for testability)
+
+	/** Appends value as a JSON literal. */
+	static void appendValue(final StringBuilder string, final Object value) {
+		if (value == null) {
+			string.append("null");
+		} else if (value instanceof Number || value instanceof Boolean) {
+			string.append(value);
+		} else {
+			string.append(JsonUtil.quote(value.toString()));
+		}
+	}
+
+	// Private utils
+
+	private String completeDoc(final SqlResource sqlResource, final List<ColumnMetaData> columns,
+			final List<ColumnMetaData> childColumns, final ValueArrays arrays) {
+		final StringBuilder doc = new StringBuilder(arrays.length() + 100 + columns.size() * 20);
+		doc.append("{ \"columns\": [");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0) {
+				doc.append(',');
+			}
+			doc.append(JsonUtil.quote(columns.get(i).getColumnLabel()));
+		}
+		if (childColumns != null) {
+			for (final ColumnMetaData column : childColumns) {
+				doc.append(',');
+				doc.append(JsonUtil.quote(column.getColumnLabel()));
+			}
+		}
+		doc.append("],\n\t\"");
+		doc.append(sqlResource.getMetaData().getParent().getRowSetAlias());
+		doc.append("\": [");
+		if (arrays.isEmpty()) {
+			doc.append("]\n}");
+		} else {
+			arrays.appendTo(doc);
+			doc.append("\n\t]\n}");
+		}
+		return doc.toString();
+	}
+
+	/** Returns the columns that are serialized, i.e. all but non-queried foreign keys. */
+	private List<ColumnMetaData> getColumns(final List<ColumnMetaData> columns) {
+		final List<ColumnMetaData> serialized = new ArrayList<ColumnMetaData>(columns.size());
+		for (final ColumnMetaData column : columns) {
+			if (!column.isNonqueriedForeignKey()) {
+				serialized.add(column);
+			}
+		}
+		return serialized;
+	}
+
+	/** Accumulates the value arrays, one per row, or one per column if serializing by column. */
+	private class ValueArrays {
+		private final StringBuilder[] columnArrays;
+		private final StringBuilder rowArrays;
+		int rowCount;
+
+		ValueArrays(final int columnCount) {
+			if (byColumn) {
+				columnArrays = new StringBuilder[columnCount];
+				for (int i = 0; i < columnCount; i++) {
+					columnArrays[i] = new StringBuilder(1000);
+				}
+				rowArrays = null;
+			} else {
+				columnArrays = null;
+				rowArrays = new StringBuilder(1000);
+			}
+		}
+
+		void addRow(final Object[] values) {
+			if (byColumn) {
+				for (int i = 0; i < values.length; i++) {
+					if (rowCount > 0) {
+						columnArrays[i].append(',');
+					}
+					appendValue(columnArrays[i], values[i]);
+				}
+			} else {
+				rowArrays.append(rowCount > 0 ? ",\n\t\t[" : "\n\t\t[");
+				for (int i = 0; i < values.length; i++) {
+					if (i > 0) {
+						rowArrays.append(',');
+					}
+					appendValue(rowArrays, values[i]);
+				}
+				rowArrays.append(']');
+			}
+			rowCount++;
+		}
+
+		void appendTo(final StringBuilder doc) {
+			if (byColumn) {
+				for (int i = 0; i < columnArrays.length; i++) {
+					doc.append(i > 0 ? ",\n\t\t[" : "\n\t\t[");
+					doc.append(columnArrays[i]);
+					doc.append(']');
+				}
+			} else {
+				doc.append(rowArrays);
+			}
+		}
+
+		boolean isEmpty() {
+			return byColumn ? columnArrays.length == 0 : rowCount == 0;
+		}
+
+		int length() {
+			if (byColumn) {
+				int length = 0;
+				for (final StringBuilder columnArray : columnArrays) {
+					length += columnArray.length() + 5;
+				}
+				return length;
+			} else {
+				return rowArrays.length();
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.serial;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.RequestValue;
+import org.restsql.core.RequestValue.Operator;
+import org.restsql.core.SqlResource;
+
+/**
+ * Processes requests represented in comma-separated values (RFC 4180), for bulk loads into flat SQL Resources. The
+ * first record is a header of column labels, and each following record holds one row, as in:
+ *
+ * <pre>
+ * id,first_name,surname
+ * 1000,_Jack,Daniels
+ * 1001,_Jack,"Smith, Jr."
+ * </pre>
+ *
+ * Fields may be quoted with double quotes, with a quote inside written as two quotes, and quoted fields may contain
+ * commas and line breaks. An empty unquoted field is null, and an empty quoted field is the empty string. See
+ * {@link AbstractLineRequestDeserializer} for how the rows are written and errors are reported.
+ *
+ * @author Mark Sawers
+ */
+public class CsvRequestDeserializer extends AbstractLineRequestDeserializer {
+
+	@Override
+	public String getSupportedMediaType() {
+		return "text/csv";
+	}
+
+	@Override
+	protected String getFormatName() {
+		return "CSV";
+	}
+
+	@Override
+	protected RowReader newRowReader(final SqlResource sqlResource, final BufferedReader reader) {
+		return new CsvRowReader(reader);
+	}
+
+	/** Reads the header and then one row per record. */
+	private static class CsvRowReader implements RowReader {
+		private List<String> header;
+		private int lineNumber, nextLineNumber;
+		private final BufferedReader reader;
+
+		CsvRowReader(final BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * Parses the next non-blank record.
+		 *
+		 * @throws InvalidRequestException if the record does not have a field for each header column
+		 */
+		@Override
+		public List<RequestValue> next() throws IOException, InvalidRequestException {
+			final List<String> fields = header == null ? null : readRecord();
+			if (fields == null) {
+				return null;
+			} else if (fields.size() != header.size()) {
+				throw new InvalidRequestException("Record has " + fields.size() + " fields but header has "
+						+ header.size());
+			}
+			final List<RequestValue> row = new ArrayList<RequestValue>(fields.size());
+			for (int i = 0; i < fields.size(); i++) {
+				row.add(new RequestValue(header.get(i), fields.get(i), Operator.Equals));
+			}
+			return row;
+		}
+
+		/**
+		 * Reads the header, if the body is not empty.
+		 *
+		 * @throws InvalidRequestException if the header is invalid
+		 */
+		@Override
+		public void start() throws IOException, InvalidRequestException {
+			final List<String> labels = readRecord();
+			if (labels != null) {
+				for (final String label : labels) {
+					if (label == null || label.length() == 0) {
+						throw new InvalidRequestException("Header has an empty column label");
+					}
+				}
+				header = labels;
+			}
+		}
+
+		/**
+		 * Returns the fields of the next non-blank record, or null at the end of the body. Empty unquoted fields are
+		 * null.
+		 *
+		 * @throws InvalidRequestException if a quoted field is not closed or is followed by other characters
+		 */
+		private List<String> readRecord() throws IOException, InvalidRequestException {
+			String line;
+			do {
+				line = reader.readLine();
+				if (line == null) {
+					return null;
+				}
+				nextLineNumber++;
+			} while (line.trim().length() == 0);
+			lineNumber = nextLineNumber;
+
+			final List<String> fields = new ArrayList<String>();
+			final StringBuilder field = new StringBuilder(64);
+			int i = 0;
+			while (true) {
+				field.setLength(0);
+				if (i < line.length() && line.charAt(i) == '"') {
+					// Quoted field, possibly continuing on following lines
+					i++;
+					while (true) {
+						if (i >= line.length()) {
+							line = reader.readLine();
+							if (line == null) {
+								throw new InvalidRequestException("Quoted field is not closed");
+							}
+							nextLineNumber++;
+							field.append('\n');
+							i = 0;
+						} else if (line.charAt(i) != '"') {
+							field.append(line.charAt(i++));
+						} else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+							field.append('"');
+							i += 2;
+						} else {
+							i++;
+							break;
+						}
+					}
+					fields.add(field.toString());
+					if (i < line.length() && line.charAt(i) != ',') {
+						throw new InvalidRequestException("Quoted field is followed by characters other than a comma");
+					}
+				} else {
+					final int end = line.indexOf(',', i);
+					final String value = end < 0 ? line.substring(i) : line.substring(i, end);
+					fields.add(value.length() == 0 ? null : value);
+					i = end < 0 ? line.length() : end;
+				}
+				if (i >= line.length()) {
+					return fields;
+				}
+				i++; // past the comma
+			}
+		}
+	}
+}
@@ -0,0 +1,290 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.serial;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restsql.core.ColumnMetaData;
+import org.restsql.core.ResponseValue;
+import org.restsql.core.RowCountingResponseSerializer;
+import org.restsql.core.SqlResource;
+import org.restsql.core.WriteResponse;
+
+/**
+ * Converts read/write results to comma-separated values (RFC 4180), with a header record of column labels followed by
+ * one record per row. Fields are quoted only when they contain a comma, quote or line break, with quotes doubled, and
+ * nulls are empty fields. Hierarchical results are flattened to one record per child row, repeating the parent's
+ * values, with a parent that has no children written once with empty child fields. Write responses are the rows
+ * written, when returned, or a record of the counts; line errors of CSV and NDJSON bodies are only reported in JSON
+ * and XML responses.
+ *
+ * @author Mark Sawers
+ */
+public class CsvResponseSerializer implements RowCountingResponseSerializer {
+	private static final String RECORD_END = "\r\n";
+
+	@Override
+	public String getSupportedMediaType() {
+		return "text/csv";
+	}
+
+	/**
+	 * Converts flat select results to a header and a record per row.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @return CSV string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
+			throws SQLException {
+		return serializeReadFlat(sqlResource, resultSet, new AtomicInteger());
+	}
+
+	/**
+	 * Converts flat select results to a header and a record per row, setting the number of rows.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param rowCount set to the number of rows
+	 * @return CSV string
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet,
+			final AtomicInteger rowCount) throws SQLException {
+		final List<ColumnMetaData> columns = getColumns(sqlResource.getMetaData().getAllReadColumns());
+		final StringBuilder body = new StringBuilder(1000);
+		appendHeader(body, columns, null);
+		int rows = 0;
+		while (resultSet.next()) {
+			for (int i = 0; i < columns.size(); i++) {
+				appendField(body, i == 0, columns.get(i).getResultByNumber(resultSet));
+			}
+			body.append(RECORD_END);
+			rows++;
+		}
+		rowCount.set(rows);
+		return body.toString();
+	}
+
+	/**
+	 * Converts hierarchical select results to a header and a record per child row.
+	 *
+	 * @param sqlResource SQL resource
+	 * @param results results
+	 * @return CSV string
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public String serializeReadHierarchical(final SqlResource sqlResource,
+			final List<Map<String, Object>> results) {
+		final List<ColumnMetaData> parentColumns = getColumns(sqlResource.getMetaData().getParentReadColumns());
+		final List<ColumnMetaData> childColumns = getColumns(sqlResource.getMetaData().getChildReadColumns());
+		final StringBuilder body = new StringBuilder(results.size() * 200 + 100);
+		appendHeader(body, parentColumns, childColumns);
+		for (final Map<String, Object> row : results) {
+			List<Map<String, Object>> childRows = null;
+			for (final Object value : row.values()) {
+				if (value instanceof List<?>) {
+					childRows = (List<Map<String, Object>>) value;
+				}
+			}
+			if (childRows == null || childRows.isEmpty()) {
+				appendRecord(body, parentColumns, row, childColumns, null);
+			} else {
+				for (final Map<String, Object> childRow : childRows) {
+					appendRecord(body, parentColumns, row, childColumns, childRow);
+				}
+			}
+		}
+		return body.toString();
+	}
+
+	/**
+	 * Converts write results to a header and a record of the counts, or of the rows if the response has them, flattened
+	 * as for reads.
+	 *
+	 * @param response response
+	 * @return CSV string
+	 */
+	@Override
+	public String serializeWrite(final SqlResource sqlResource, final WriteResponse response) {
+		final StringBuilder body;
+		if (response.getLinesRead() > 0) {
+			body = new StringBuilder(100);
+			body.append("rowsAffected,linesRead,linesFailed");
+			body.append(RECORD_END);
+			appendField(body, true, Integer.valueOf(response.getRowsAffected()));
+			appendField(body, false, Integer.valueOf(response.getLinesRead()));
+			appendField(body, false, Integer.valueOf(response.getLinesFailed()));
+			body.append(RECORD_END);
+		} else if (response.getRows() != null && !response.getRows().isEmpty()) {
+			body = new StringBuilder(response.getRows().size() * 200);
+			serializeWriteRows(response.getRows(), body);
+		} else {
+			body = new StringBuilder(50);
+			body.append("rowsAffected");
+			body.append(RECORD_END);
+			appendField(body, true, Integer.valueOf(response.getRowsAffected()));
+			body.append(RECORD_END);
+		}
+		return body.toString();
+	}
+
+	// Package level utils (for testability)
+
+	/** Appends field, preceded by a comma unless it is the first of the record. */
+	void appendField(final StringBuilder body, final boolean firstField, final Object value) {
+		if (!firstField) {
+			body.append(',');
+		}
+		if (value == null) {
+			return;
+		} else if (value instanceof Number || value instanceof Boolean) {
+			body.append(value);
+		} else {
+			final String string = value.toString();
+			boolean quoted = false;
+			for (int i = 0; i < string.length(); i++) {
+				final char c = string.charAt(i);
+				if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+					quoted = true;
+					break;
+				}
+			}
+			if (quoted) {
+				body.append('"');
+				for (int i = 0; i < string.length(); i++) {
+					final char c = string.charAt(i);
+					if (c == '"') {
+						body.append('"');
+					}
+					body.append(c);
+				}
+				body.append('"');
+			} else {
+				body.append(string);
+			}
+		}
+	}
+
+	// Private utils
+
+	/** Appends header record of the column labels, followed by the child column labels if not null. */
+	private void appendHeader(final StringBuilder body, final List<ColumnMetaData> columns,
+			final List<ColumnMetaData> childColumns) {
+		for (int i = 0; i < columns.size(); i++) {
+			appendField(body, i == 0, columns.get(i).getColumnLabel());
+		}
+		if (childColumns != null) {
+			for (final ColumnMetaData column : childColumns) {
+				appendField(body, false, column.getColumnLabel());
+			}
+		}
+		body.append(RECORD_END);
+	}
+
+	/** Appends record of the parent row's values and the child row's, or empty child fields if it is null. */
+	private void appendRecord(final StringBuilder body, final List<ColumnMetaData> parentColumns,
+			final Map<String, Object> row, final List<ColumnMetaData> childColumns,
+			final Map<String, Object> childRow) {
+		boolean firstField = true;
+		for (final ColumnMetaData column : parentColumns) {
+			appendField(body, firstField, row.get(column.getColumnLabel()));
+			firstField = false;
+		}
+		for (final ColumnMetaData column : childColumns) {
+			appendField(body, firstField, childRow == null ? null : childRow.get(column.getColumnLabel()));
+			firstField = false;
+		}
+		body.append(RECORD_END);
+	}
+
+	/** Appends record of the values. */
+	private void appendValues(final StringBuilder body, final Object[] values) {
+		for (int i = 0; i < values.length; i++) {
+			appendField(body, i == 0, values[i]);
+		}
+		body.append(RECORD_END);
+	}
+
+	/** Returns the columns that are serialized, i.e. all but non-queried foreign keys. */
+	private List<ColumnMetaData> getColumns(final List<ColumnMetaData> columns) {
+		final List<ColumnMetaData> serialized = new ArrayList<ColumnMetaData>(columns.size());
+		for (final ColumnMetaData column : columns) {
+			if (!column.isNonqueriedForeignKey()) {
+				serialized.add(column);
+			}
+		}
+		return serialized;
+	}
+
+	/**
+	 * Converts write rows to a header, taken from the first row, and a record per row or per child row. Child rows are
+	 * lists of values, as for hierarchical reads.
+	 */
+	@SuppressWarnings("unchecked")
+	private void serializeWriteRows(final List<Set<ResponseValue>> rows, final StringBuilder body) {
+		final List<String> labels = new ArrayList<String>();
+		final List<String> childLabels = new ArrayList<String>();
+		for (final Set<ResponseValue> row : rows) {
+			for (final ResponseValue value : row) {
+				if (value.getValue() instanceof List<?>) {
+					for (final Set<ResponseValue> childRow : (List<Set<ResponseValue>>) value.getValue()) {
+						for (final ResponseValue childValue : childRow) {
+							if (!childLabels.contains(childValue.getName())) {
+								childLabels.add(childValue.getName());
+							}
+						}
+					}
+				} else if (!labels.contains(value.getName())) {
+					labels.add(value.getName());
+				}
+			}
+		}
+
+		boolean firstField = true;
+		for (final String label : labels) {
+			appendField(body, firstField, label);
+			firstField = false;
+		}
+		for (final String label : childLabels) {
+			appendField(body, firstField, label);
+			firstField = false;
+		}
+		body.append(RECORD_END);
+
+		final Object[] values = new Object[labels.size() + childLabels.size()];
+		for (final Set<ResponseValue> row : rows) {
+			List<Set<ResponseValue>> childRows = null;
+			for (int i = 0; i < values.length; i++) {
+				values[i] = null;
+			}
+			for (final ResponseValue value : row) {
+				if (value.getValue() instanceof List<?>) {
+					childRows = (List<Set<ResponseValue>>) value.getValue();
+				} else {
+					values[labels.indexOf(value.getName())] = value.getValue();
+				}
+			}
+			if (childRows == null || childRows.isEmpty()) {
+				appendValues(body, values);
+			} else {
+				for (final Set<ResponseValue> childRow : childRows) {
+					for (int i = labels.size(); i < values.length; i++) {
+						values[i] = null;
+					}
+					for (final ResponseValue childValue : childRow) {
+						values[labels.size() + childLabels.indexOf(childValue.getName())] = childValue.getValue();
+					}
+					appendValues(body, values);
+				}
+			}
+		}
+	}
+}
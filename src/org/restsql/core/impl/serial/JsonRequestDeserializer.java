@@ -2,25 +2,30 @@
 package org.restsql.core.impl.serial;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.json.simple.parser.ContentHandler;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.restsql.core.BatchSqlResource;
 import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
 import org.restsql.core.Factory;
 import org.restsql.core.HttpRequestAttributes;
 import org.restsql.core.InvalidRequestException;
 import org.restsql.core.RequestValue;
 import org.restsql.core.Request;
-import org.restsql.core.RequestDeserializer;
 import org.restsql.core.RequestLogger;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
+import org.restsql.core.StreamingRequestDeserializer;
 import org.restsql.core.RequestValue.Operator;
 import org.restsql.core.Request.Type;
 import org.restsql.core.WriteResponse;
+import org.restsql.core.impl.TriggerManager;
 
 /**
  * Processes requests represented in a JSON string. It expects a top-level array of objects, as in:
@@ -68,23 +73,40 @@ import org.restsql.core.WriteResponse;
  * 
  * Each top-level object is sent off as one request to the SQL resource. If there are two-levels, then the second level
  * array is parsed in full, and then included in the request with the parent attributes. Note that the framework will
- * only operate on children if they are included, not parents and children simultaneously.
+ * only operate on children if they are included, not parents and children simultaneously. If the SQL Resource has a
+ * {@link org.restsql.core.BatchTrigger}, the requests are collected and written together once the body is parsed. If it
+ * is flat, they are written in batches of <code>request.streaming.batchSize</code> as the body is parsed. The SQL
+ * Resource writes consecutive inserts with the same columns as multi-row inserts, and deletes or updates by key as
+ * set-based statements.
  * 
  * @author Mark Sawers
  */
-public class JsonRequestDeserializer implements RequestDeserializer {
+public class JsonRequestDeserializer implements StreamingRequestDeserializer {
+	private static final int batchSize = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_REQUEST_STREAMING_BATCH_SIZE, Config.DEFAULT_REQUEST_STREAMING_BATCH_SIZE));
 
 	@Override
 	public WriteResponse execWrite(HttpRequestAttributes httpAttributes, Type requestType,
 			List<RequestValue> resIds, SqlResource sqlResource, String requestBody,
 			RequestLogger requestLogger) throws SqlResourceException {
+		return execWrite(httpAttributes, requestType, resIds, sqlResource, new StringReader(requestBody),
+				requestLogger);
+	}
+
+	@Override
+	public WriteResponse execWrite(HttpRequestAttributes httpAttributes, Type requestType,
+			List<RequestValue> resIds, SqlResource sqlResource, Reader requestBody,
+			RequestLogger requestLogger) throws SqlResourceException {
 		final Handler handler = new Handler(httpAttributes, requestType, resIds, sqlResource, requestLogger);
 		try {
 			final JSONParser parser = new JSONParser();
 			parser.parse(requestBody, handler);
 		} catch (final ParseException exception) {
 			throw new InvalidRequestException("Error parsing request body: " + exception.toString());
+		} catch (final IOException exception) {
+			throw new InvalidRequestException("Error reading request body: " + exception.toString());
 		}
+		handler.executeBatch();
 		final SqlResourceException handlerException = handler.getHandlerException();
 		if (handlerException != null) {
 			throw handlerException;
@@ -102,6 +124,8 @@ public class JsonRequestDeserializer implements RequestDeserializer {
 
 		private final int childColumnCount;
 		private String childrenKey, currentKey;
+		private List<Request> batchRequests;
+		private final boolean batchStreamed;
 		private List<List<RequestValue>> childrenParams;
 		private SqlResourceException handlerException;
 		private final HttpRequestAttributes httpAttributes;
@@ -124,6 +148,9 @@ public class JsonRequestDeserializer implements RequestDeserializer {
 			this.parentRequestResIds = parentRequestResIds;
 			this.sqlResource = sqlResource;
 			this.requestLogger = requestLogger;
+			batchRequests = TriggerManager.hasBatchTrigger(sqlResource.getTriggers())
+					|| !sqlResource.getMetaData().isHierarchical() ? new ArrayList<Request>() : null;
+			batchStreamed = batchRequests != null && !TriggerManager.hasBatchTrigger(sqlResource.getTriggers());
 
 			parentColumnCount = sqlResource.getMetaData().getParentReadColumns().size();
 			if (sqlResource.getMetaData().isHierarchical()) {
@@ -193,7 +220,7 @@ public class JsonRequestDeserializer implements RequestDeserializer {
 					// Apply operation to the parent
 					if (requestType == Type.UPDATE) {
 						extractResIdsParamsFromParentAttributes(true); // extract resIds and params
-					} else { // Type.INSERT or Type.DELETE
+					} else { // Type.INSERT, Type.UPSERT or Type.DELETE
 						resIds = null;
 						params = parentAttributes;
 					}
@@ -215,6 +242,29 @@ public class JsonRequestDeserializer implements RequestDeserializer {
 			return true;
 		}
 
+		/**
+		 * Writes the requests collected, if any. Called once the whole body has been parsed without error, and for
+		 * flat resources without batch triggers also whenever a batch is full.
+		 */
+		public void executeBatch() {
+			if (batchRequests != null && !batchRequests.isEmpty()) {
+				if (handlerException == null) {
+					try {
+						if (sqlResource instanceof BatchSqlResource) {
+							addWriteResponse(((BatchSqlResource) sqlResource).write(batchRequests));
+						} else {
+							for (final Request request : batchRequests) {
+								addWriteResponse(sqlResource.write(request));
+							}
+						}
+					} catch (final SqlResourceException exception) {
+						handlerException = exception;
+					}
+				}
+				batchRequests = new ArrayList<Request>();
+			}
+		}
+
 		public SqlResourceException getHandlerException() {
 			return handlerException;
 		}
@@ -308,15 +358,25 @@ public class JsonRequestDeserializer implements RequestDeserializer {
 
 		// Private util methods
 
+		private void addWriteResponse(final WriteResponse localResponse) {
+			if (response == null) {
+				response = localResponse;
+			} else {
+				response.addWriteResponse(localResponse);
+			}
+		}
+
 		private void executeRequest() {
 			try {
 				final Request request = Factory.getRequest(httpAttributes, requestType,
 						sqlResource.getName(), resIds, params, childrenParams, requestLogger);
-				WriteResponse localResponse = sqlResource.write(request);
-				if (response == null) {
-					response = localResponse;
+				if (batchRequests != null) {
+					batchRequests.add(request);
+					if (batchStreamed && batchRequests.size() >= batchSize) {
+						executeBatch();
+					}
 				} else {
-					response.addWriteResponse(localResponse);
+					addWriteResponse(sqlResource.write(request));
 				}
 			} catch (final SqlResourceException exception) {
 				handlerException = exception;
@@ -6,19 +6,21 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.restsql.core.ColumnMetaData;
-import org.restsql.core.ResponseSerializer;
 import org.restsql.core.ResponseValue;
+import org.restsql.core.RowCountingResponseSerializer;
 import org.restsql.core.SqlResource;
 import org.restsql.core.WriteResponse;
+import org.restsql.core.WriteResponse.LineError;
 
 /**
  * Converts read/write results to a JSON string.
  * 
  * @author Mark Sawers
  */
-public class JsonResponseSerializer implements ResponseSerializer {
+public class JsonResponseSerializer implements RowCountingResponseSerializer {
 
 	@Override
 	public String getSupportedMediaType() {
@@ -32,17 +34,31 @@ public class JsonResponseSerializer implements ResponseSerializer {
 	 * @param resultSet results
 	 * @return JSON string
 	 */
-	// TODO: move column get from metadata outside of result set while loop!!!
 	@Override
 	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
 			throws SQLException {
+		return serializeReadFlat(sqlResource, resultSet, new AtomicInteger());
+	}
+
+	/**
+	 * Converts flat select results to a JSON array, setting the number of rows.
+	 * 
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param rowCount set to the number of rows
+	 * @return JSON string
+	 */
+	// TODO: move column get from metadata outside of result set while loop!!!
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet,
+			final AtomicInteger rowCount) throws SQLException {
 		final StringBuilder body = new StringBuilder(1000);
-		int rowCount = 0;
+		int rows = 0;
 		while (resultSet.next()) {
-			if (rowCount > 0) {
+			if (rows > 0) {
 				body.append(",");
 			}
-			rowCount++;
+			rows++;
 			body.append("\n\t\t{ ");
 			final List<ColumnMetaData> columns = sqlResource.getMetaData().getAllReadColumns();
 			boolean firstPair = true;
@@ -57,6 +73,7 @@ public class JsonResponseSerializer implements ResponseSerializer {
 			}
 			body.append(" }");
 		}
+		rowCount.set(rows);
 		return completeDoc(DocType.Read, sqlResource, null, body);
 	}
 
@@ -76,13 +93,17 @@ public class JsonResponseSerializer implements ResponseSerializer {
 	}
 
 	/**
-	 * Converts write results to a JSON object.
+	 * Converts write results to a JSON object. Responses to line-delimited bodies are converted to a summary with the
+	 * line errors.
 	 * 
 	 * @param response response
 	 * @return XML doc
 	 */
 	@Override
 	public String serializeWrite(final SqlResource sqlResource, final WriteResponse response) {
+		if (response.getLinesRead() > 0) {
+			return serializeWriteSummary(response);
+		}
 		StringBuilder body = null;
 		if (response.getRows() != null) {
 			body = new StringBuilder(response.getRows().size() * 100);
@@ -257,6 +278,32 @@ public class JsonResponseSerializer implements ResponseSerializer {
 		}
 	}
 
+	/** Converts line-delimited write results to a summary with an array of line errors, if any. */
+	private String serializeWriteSummary(final WriteResponse response) {
+		final List<LineError> lineErrors = response.getLineErrors();
+		final StringBuilder doc = new StringBuilder(lineErrors == null ? 100 : lineErrors.size() * 100 + 100);
+		doc.append("{ ");
+		addAttribute(true, doc, "rowsAffected", response.getRowsAffected());
+		addAttribute(false, doc, "linesRead", response.getLinesRead());
+		addAttribute(false, doc, "linesFailed", response.getLinesFailed());
+		if (lineErrors != null) {
+			doc.append(",\n\t\"errors\": [");
+			for (int i = 0; i < lineErrors.size(); i++) {
+				if (i > 0) {
+					doc.append(",");
+				}
+				doc.append("\n\t\t{ ");
+				addAttribute(true, doc, "line", lineErrors.get(i).getLine());
+				addAttribute(false, doc, "message", lineErrors.get(i).getMessage());
+				doc.append(" }");
+			}
+			doc.append("\n\t]\n}");
+		} else {
+			doc.append(" }");
+		}
+		return doc.toString();
+	}
+
 	static enum DocType {
 		Read, Write;
 	}
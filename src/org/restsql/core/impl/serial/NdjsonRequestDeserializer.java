@@ -0,0 +1,106 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.core.impl.serial;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.RequestValue;
+import org.restsql.core.RequestValue.Operator;
+import org.restsql.core.SqlResource;
+
+/**
+ * Processes requests represented in newline-delimited JSON, for bulk loads into flat SQL Resources. Each line holds one
+ * row as a flat object, as in:
+ *
+ * <pre>
+ * { "id": "1000", "first_name": "_Jack", "surname": "Daniels" }
+ * { "id": "1001", "first_name": "_Jack", "surname": "Smith" }
+ * </pre>
+ *
+ * See {@link AbstractLineRequestDeserializer} for how the rows are written and errors are reported.
+ *
+ * @author Mark Sawers
+ */
+public class NdjsonRequestDeserializer extends AbstractLineRequestDeserializer {
+
+	@Override
+	public String getSupportedMediaType() {
+		return "application/x-ndjson";
+	}
+
+	@Override
+	protected String getFormatName() {
+		return "NDJSON";
+	}
+
+	@Override
+	protected RowReader newRowReader(final SqlResource sqlResource, final BufferedReader reader) {
+		return new NdjsonRowReader(reader);
+	}
+
+	/** Reads one flat object per line. */
+	private static class NdjsonRowReader implements RowReader {
+		private int lineNumber;
+		private final JSONParser parser = new JSONParser();
+		private final BufferedReader reader;
+
+		NdjsonRowReader(final BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public int getLineNumber() {
+			return lineNumber;
+		}
+
+		/**
+		 * Parses the next non-blank line.
+		 *
+		 * @throws InvalidRequestException if the line is not a flat object
+		 */
+		@Override
+		public List<RequestValue> next() throws IOException, InvalidRequestException {
+			String line;
+			do {
+				line = reader.readLine();
+				if (line == null) {
+					return null;
+				}
+				lineNumber++;
+			} while (line.trim().length() == 0);
+
+			final Object object;
+			try {
+				object = parser.parse(line);
+			} catch (final ParseException exception) {
+				throw new InvalidRequestException("Error parsing line: " + exception.toString());
+			}
+			if (!(object instanceof Map<?, ?>)) {
+				throw new InvalidRequestException("Line is not an object");
+			}
+
+			final Map<?, ?> values = (Map<?, ?>) object;
+			final List<RequestValue> row = new ArrayList<RequestValue>(values.size());
+			for (final Map.Entry<?, ?> entry : values.entrySet()) {
+				final String name = String.valueOf(entry.getKey());
+				final Object value = entry.getValue();
+				if (value instanceof Map<?, ?> || value instanceof List<?>) {
+					throw new InvalidRequestException("Line is not a flat object, " + name + " has a nested value");
+				}
+				row.add(new RequestValue(name, value == null ? null : value.toString(), Operator.Equals));
+			}
+			return row;
+		}
+
+		/** Does nothing, there is no header. */
+		@Override
+		public void start() {
+		}
+	}
+}
@@ -13,6 +13,12 @@ import org.restsql.core.Factory.RequestDeserializerFactory;
 public class RequestDeserializerFactoryImpl implements RequestDeserializerFactory {
 	private static XmlRequestDeserializer xmlRequestDeserializer = new XmlRequestDeserializer();
 	private static JsonRequestDeserializer jsonRequestDeserializer = new JsonRequestDeserializer();
+	private static NdjsonRequestDeserializer ndjsonRequestDeserializer = new NdjsonRequestDeserializer();
+	private static CsvRequestDeserializer csvRequestDeserializer = new CsvRequestDeserializer();
+	private static ColumnarJsonRequestDeserializer columnarRowsRequestDeserializer =
+			new ColumnarJsonRequestDeserializer(false);
+	private static ColumnarJsonRequestDeserializer columnarColumnsRequestDeserializer =
+			new ColumnarJsonRequestDeserializer(true);
 
 	/**
 	 * Returns request deserializer for media type.
@@ -25,6 +31,14 @@ public class RequestDeserializerFactoryImpl implements RequestDeserializerFactor
 			return xmlRequestDeserializer;
 		} else if (mediaType.equals("application/json")) {
 			return jsonRequestDeserializer;
+		} else if (mediaType.equals("application/x-ndjson")) {
+			return ndjsonRequestDeserializer;
+		} else if (mediaType.equals("text/csv")) {
+			return csvRequestDeserializer;
+		} else if (mediaType.equals("application/json; layout=rows")) {
+			return columnarRowsRequestDeserializer;
+		} else if (mediaType.equals("application/json; layout=columns")) {
+			return columnarColumnsRequestDeserializer;
 		} else {
 			throw new SqlResourceException("No deserializer found for media type " + mediaType);
 		}
@@ -13,6 +13,11 @@ import org.restsql.core.SqlResourceException;
 public class ResponseSerializerFactoryImpl implements ResponseSerializerFactory {
 	private static final ResponseSerializer xmlResponseSerializer = new XmlResponseSerializer();
 	private static final ResponseSerializer jsonResponseSerializer = new JsonResponseSerializer();
+	private static final ResponseSerializer csvResponseSerializer = new CsvResponseSerializer();
+	private static final ResponseSerializer columnarJsonRowsResponseSerializer = new ColumnarJsonResponseSerializer(
+			false);
+	private static final ResponseSerializer columnarJsonColumnsResponseSerializer = new ColumnarJsonResponseSerializer(
+			true);
 
 	/**
 	 * Returns response serializer for media type.
@@ -25,6 +30,12 @@ public class ResponseSerializerFactoryImpl implements ResponseSerializerFactory
 			return xmlResponseSerializer;
 		} else if (mediaType.equals("application/json")) {
 			return jsonResponseSerializer;
+		} else if (mediaType.equals("text/csv")) {
+			return csvResponseSerializer;
+		} else if (mediaType.equals("application/json; layout=rows")) {
+			return columnarJsonRowsResponseSerializer;
+		} else if (mediaType.equals("application/json; layout=columns")) {
+			return columnarJsonColumnsResponseSerializer;
 		} else {
 			throw new SqlResourceException("No serializer found for media type " + mediaType);
 		}
@@ -1,27 +1,32 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.core.impl.serial;
 
-import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
+import org.restsql.core.BatchSqlResource;
 import org.restsql.core.ColumnMetaData;
+import org.restsql.core.Config;
 import org.restsql.core.Factory;
 import org.restsql.core.HttpRequestAttributes;
 import org.restsql.core.InvalidRequestException;
 import org.restsql.core.Request;
 import org.restsql.core.Request.Type;
-import org.restsql.core.RequestDeserializer;
 import org.restsql.core.RequestLogger;
 import org.restsql.core.RequestValue;
 import org.restsql.core.RequestValue.Operator;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
+import org.restsql.core.StreamingRequestDeserializer;
 import org.restsql.core.WriteResponse;
+import org.restsql.core.impl.TriggerManager;
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -47,27 +52,41 @@ import org.xml.sax.helpers.DefaultHandler;
  * 
  * Each parent is sent off as one request to the SQL resource. If there are children, then those are parsed in full, and
  * then included in the request with the parent attributes. Note that the framework will only operate on children if
- * they are included, not parents and children simultaneously.
+ * they are included, not parents and children simultaneously. If the SQL Resource has a
+ * {@link org.restsql.core.BatchTrigger}, the requests are collected and written together once the document is parsed.
+ * If it is flat, they are written in batches of <code>request.streaming.batchSize</code> as the document is parsed. The
+ * SQL Resource writes consecutive inserts with the same columns as multi-row inserts, and deletes or updates by key as
+ * set-based statements.
  * 
  * @author Mark Sawers
  */
-public class XmlRequestDeserializer implements RequestDeserializer {
+public class XmlRequestDeserializer implements StreamingRequestDeserializer {
+	private static final int batchSize = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_REQUEST_STREAMING_BATCH_SIZE, Config.DEFAULT_REQUEST_STREAMING_BATCH_SIZE));
 
 	/** Executes write request. */
 	@Override
 	public WriteResponse execWrite(final HttpRequestAttributes httpAttributes,
 			final Type requestType, final List<RequestValue> resIds, final SqlResource sqlResource,
 			final String requestBody, final RequestLogger requestLogger) throws SqlResourceException {
+		return execWrite(httpAttributes, requestType, resIds, sqlResource, new StringReader(requestBody),
+				requestLogger);
+	}
+
+	/** Executes write request, parsing the document as it is read. */
+	@Override
+	public WriteResponse execWrite(final HttpRequestAttributes httpAttributes,
+			final Type requestType, final List<RequestValue> resIds, final SqlResource sqlResource,
+			final Reader requestBody, final RequestLogger requestLogger) throws SqlResourceException {
 		final Handler handler = new Handler(httpAttributes, requestType, resIds, sqlResource, requestLogger);
 		final SAXParser parser;
-		final ByteArrayInputStream inputStream;
 		try {
 			parser = SAXParserFactory.newInstance().newSAXParser();
-			inputStream = new ByteArrayInputStream(requestBody.getBytes());
-			parser.parse(inputStream, handler);
+			parser.parse(new InputSource(requestBody), handler);
 		} catch (final Exception exception) {
 			throw new InvalidRequestException("Error parsing request body: " + exception.toString());
 		}
+		handler.executeBatch();
 		final SqlResourceException handlerException = handler.getHandlerException();
 		if (handlerException != null) {
 			throw handlerException;
@@ -85,6 +104,8 @@ public class XmlRequestDeserializer implements RequestDeserializer {
 
 		private static final String TAG_REQUEST = "request";
 
+		private List<Request> batchRequests;
+		private final boolean batchStreamed;
 		private List<List<RequestValue>> childrenParams;
 		private SqlResourceException handlerException;
 		private final HttpRequestAttributes httpAttributes;
@@ -105,6 +126,9 @@ public class XmlRequestDeserializer implements RequestDeserializer {
 			this.parentRequestResIds = parentRequestResIds;
 			this.sqlResource = sqlResource;
 			this.requestLogger = requestLogger;
+			batchRequests = TriggerManager.hasBatchTrigger(sqlResource.getTriggers())
+					|| !sqlResource.getMetaData().isHierarchical() ? new ArrayList<Request>() : null;
+			batchStreamed = batchRequests != null && !TriggerManager.hasBatchTrigger(sqlResource.getTriggers());
 		}
 
 		@Override
@@ -119,7 +143,7 @@ public class XmlRequestDeserializer implements RequestDeserializer {
 					// Apply operation to the parent
 					if (requestType == Type.UPDATE) {
 						extractResIdsParamsFromParentAttributes(true); // extract resIds and params
-					} else { // Type.INSERT or Type.DELETE
+					} else { // Type.INSERT, Type.UPSERT or Type.DELETE
 						resIds = null;
 						params = parentAttributes;
 					}
@@ -136,6 +160,29 @@ public class XmlRequestDeserializer implements RequestDeserializer {
 			// else ignore child element
 		}
 
+		/**
+		 * Writes the requests collected, if any. Called once the whole body has been parsed without error, and for
+		 * flat resources without batch triggers also whenever a batch is full.
+		 */
+		public void executeBatch() {
+			if (batchRequests != null && !batchRequests.isEmpty()) {
+				if (handlerException == null) {
+					try {
+						if (sqlResource instanceof BatchSqlResource) {
+							addWriteResponse(((BatchSqlResource) sqlResource).write(batchRequests));
+						} else {
+							for (final Request request : batchRequests) {
+								addWriteResponse(sqlResource.write(request));
+							}
+						}
+					} catch (final SqlResourceException exception) {
+						handlerException = exception;
+					}
+				}
+				batchRequests = new ArrayList<Request>();
+			}
+		}
+
 		public SqlResourceException getHandlerException() {
 			return handlerException;
 		}
@@ -160,15 +207,25 @@ public class XmlRequestDeserializer implements RequestDeserializer {
 			}
 		}
 
+		private void addWriteResponse(final WriteResponse localResponse) {
+			if (response == null) {
+				response = localResponse;
+			} else {
+				response.addWriteResponse(localResponse);
+			}
+		}
+
 		private void executeRequest() {
 			try {
 				final Request request = Factory.getRequest(httpAttributes, requestType,
 						sqlResource.getName(), resIds, params, childrenParams, requestLogger);
-				WriteResponse localResponse = sqlResource.write(request);
-				if (response == null) {
-					response = localResponse;
+				if (batchRequests != null) {
+					batchRequests.add(request);
+					if (batchStreamed && batchRequests.size() >= batchSize) {
+						executeBatch();
+					}
 				} else {
-					response.addWriteResponse(localResponse);
+					addWriteResponse(sqlResource.write(request));
 				}
 			} catch (final SqlResourceException exception) {
 				handlerException = exception;
@@ -6,21 +6,23 @@ import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.restsql.core.ColumnMetaData;
 import org.restsql.core.Config;
-import org.restsql.core.ResponseSerializer;
 import org.restsql.core.ResponseValue;
+import org.restsql.core.RowCountingResponseSerializer;
 import org.restsql.core.SqlResource;
 import org.restsql.core.WriteResponse;
+import org.restsql.core.WriteResponse.LineError;
 
 /**
  * Converts read/write results to an XML document.
  * 
  * @author Mark Sawers
  */
-public class XmlResponseSerializer implements ResponseSerializer {
+public class XmlResponseSerializer implements RowCountingResponseSerializer {
 	private static boolean useXmlDirective = Boolean.valueOf(Config.properties.getProperty(
 			Config.KEY_RESPONSE_USE_XML_DIRECTIVE, Config.DEFAULT_RESPONSE_USE_XML_DIRECTIVE));
 	private static boolean useXmlSchema = Boolean.valueOf(Config.properties.getProperty(
@@ -51,11 +53,27 @@ public class XmlResponseSerializer implements ResponseSerializer {
 	@Override
 	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet)
 			throws SQLException {
+		return serializeReadFlat(sqlResource, resultSet, new AtomicInteger());
+	}
+
+	/**
+	 * Converts flat select results to an XML document, setting the number of rows.
+	 * 
+	 * @param sqlResource SQL resource
+	 * @param resultSet results
+	 * @param rowCount set to the number of rows
+	 * @return XML doc
+	 */
+	@Override
+	public String serializeReadFlat(final SqlResource sqlResource, final ResultSet resultSet,
+			final AtomicInteger rowCount) throws SQLException {
 		StringBuilder body = null;
+		int rows = 0;
 		while (resultSet.next()) {
 			if (body == null) {
 				body = new StringBuilder(1000);
 			}
+			rows++;
 			body.append("\n\t<");
 			body.append(sqlResource.getMetaData().getParent().getRowAlias());
 			for (final ColumnMetaData column : sqlResource.getMetaData().getAllReadColumns()) {
@@ -65,6 +83,7 @@ public class XmlResponseSerializer implements ResponseSerializer {
 			}
 			body.append(" />");
 		}
+		rowCount.set(rows);
 		return completeDoc(DocType.Read, null, body);
 	}
 
@@ -84,13 +103,17 @@ public class XmlResponseSerializer implements ResponseSerializer {
 	}
 
 	/**
-	 * Converts write results to an XML document.
+	 * Converts write results to an XML document. Responses to line-delimited bodies are converted to a summary with the
+	 * line errors as error elements.
 	 * 
 	 * @param response response
 	 * @return XML doc
 	 */
 	@Override
 	public String serializeWrite(final SqlResource sqlResource, final WriteResponse response) {
+		if (response.getLinesRead() > 0) {
+			return serializeWriteSummary(response);
+		}
 		StringBuilder body = null;
 		if (response.getRows() != null) {
 			body = new StringBuilder(response.getRows().size() * 100);
@@ -261,6 +284,23 @@ public class XmlResponseSerializer implements ResponseSerializer {
 		}
 	}
 
+	/** Converts line-delimited write results to a summary with an error element per line error, if any. */
+	private String serializeWriteSummary(final WriteResponse response) {
+		StringBuilder body = null;
+		if (response.getLineErrors() != null) {
+			body = new StringBuilder(response.getLineErrors().size() * 100);
+			for (final LineError lineError : response.getLineErrors()) {
+				body.append("\n\t<error");
+				addAttribute(body, "line", Integer.valueOf(lineError.getLine()));
+				addAttribute(body, "message", lineError.getMessage());
+				body.append(" />");
+			}
+		}
+		return completeDoc(DocType.Write, new String[] { "rowsAffected",
+				String.valueOf(response.getRowsAffected()), "linesRead", String.valueOf(response.getLinesRead()),
+				"linesFailed", String.valueOf(response.getLinesFailed()) }, body);
+	}
+
 	static enum DocType {
 		Read, Write;
 	}
@@ -37,6 +37,10 @@ public class SqlResourceRolePrivileges {
 		return sqlResource;
 	}
 
+	/**
+	 * Returns true if the role may execute the request type. Upserts are also permitted to roles with both insert and
+	 * update privileges.
+	 */
 	public boolean hasPrivilege(final Request.Type requestType) {
 		boolean authorized = false;
 		for (final Privilege privilege : privileges) {
@@ -45,6 +49,9 @@ public class SqlResourceRolePrivileges {
 				break;
 			}
 		}
+		if (!authorized && requestType == Request.Type.UPSERT) {
+			authorized = hasPrivilege(Request.Type.INSERT) && hasPrivilege(Request.Type.UPDATE);
+		}
 		return authorized;
 	}
 
@@ -65,7 +72,7 @@ public class SqlResourceRolePrivileges {
 	}
 
 	public enum Privilege {
-		DELETE, INSERT, SELECT, UPDATE, WILDCARD;
+		DELETE, INSERT, SELECT, UPDATE, UPSERT, WILDCARD;
 
 		public static Privilege fromString(final String name) {
 			if (name == null) {
@@ -78,6 +85,8 @@ public class SqlResourceRolePrivileges {
 				return INSERT;
 			} else if (name.equalsIgnoreCase(UPDATE.toString())) {
 				return UPDATE;
+			} else if (name.equalsIgnoreCase(UPSERT.toString())) {
+				return UPSERT;
 			} else if (name.equals(TOKEN_WILDCARD)) {
 				return WILDCARD;
 			} else {
@@ -5,12 +5,19 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.restsql.core.Config;
 import org.restsql.core.Request;
@@ -23,44 +30,57 @@ import org.restsql.security.SqlResourceRolePrivileges.Privilege;
  * Authorizes restSQL requests using privileges properties file, which maps roles to request types on SQL Resources. If
  * privileges properties are not defined or not able to load, authorization is disabled. In that case,
  * <code>isAuthorized()</code> always returns <code>true</code>.
- * 
+ * <p>
+ * The privileges are compiled into a decision table of allowed roles by SQL Resource and request type, with the
+ * wildcard resource's roles already merged in. Decisions for an authenticated principal are cached for the configured
+ * TTL. The privileges file is checked for modification at the configured reload interval and a changed file is
+ * published with an atomic swap of the compiled privileges, which also discards the decision cache.
+ *
  * @author Mark Sawers
  */
 public class AuthorizerImpl implements Authorizer {
-	private boolean authEnabled = false;
-	private String authStatusMessage;
-	private String configFileName;
-	// Map<sqlResource, List<SqlResourceRolePrivileges>>
-	private Map<String, List<SqlResourceRolePrivileges>> privilegeMap;
+	/** Upper bound on cached principal decisions, after which the cache is cleared. */
+	private static final int DECISION_CACHE_MAX_SIZE = 10000;
+
+	private final long cacheTtl;
+	private final String configFileName;
+	private volatile long nextReloadCheck;
+	private volatile CompiledPrivileges privileges;
+	private final long reloadInterval;
 
 	/** For use by the Factory. Uses properties file specified in standard restSQL properties. */
 	public AuthorizerImpl() {
-		configFileName = Config.properties.getProperty(Config.KEY_SECURITY_PRIVILEGES, null);
-		loadPrivileges();
+		this(Config.properties.getProperty(Config.KEY_SECURITY_PRIVILEGES, null));
 	}
 
 	/** Creates object in test environment with specified properties file. */
 	AuthorizerImpl(String configFileName) {
 		this.configFileName = configFileName;
-		loadPrivileges();
+		cacheTtl = getSecondsProperty(Config.KEY_SECURITY_PRIVILEGES_CACHE_TTL,
+				Config.DEFAULT_SECURITY_PRIVILEGES_CACHE_TTL);
+		reloadInterval = getSecondsProperty(Config.KEY_SECURITY_PRIVILEGES_RELOAD_INTERVAL,
+				Config.DEFAULT_SECURITY_PRIVILEGES_RELOAD_INTERVAL);
+		privileges = loadPrivileges();
+		nextReloadCheck = System.currentTimeMillis() + reloadInterval;
 	}
 
 	/** Returns true if authorization is enabled. */
 	public boolean isAuthorizationEnabled() {
-		return authEnabled;
+		return privileges.authEnabled;
 	}
-	
+
 	/** Returns status message and string representation of all roles and associated privileges. */
 	@Override
 	public String dumpConfig() {
+		final CompiledPrivileges privileges = this.privileges;
 		final StringBuilder string = new StringBuilder(1000);
-		string.append(authStatusMessage);
-		if (authEnabled && privilegeMap.size() > 0) {
+		string.append(privileges.authStatusMessage);
+		if (privileges.authEnabled && privileges.privilegeMap.size() > 0) {
 			string.append("\n\n[SqlResource,*].[requestType,*]=role\n");
 			string.append("---------------------------------------------------------------------------\n");
-			for (final List<SqlResourceRolePrivileges> privObjList : privilegeMap.values()) {
-				for (final SqlResourceRolePrivileges privileges : privObjList) {
-					string.append(privileges.toString());
+			for (final List<SqlResourceRolePrivileges> privObjList : privileges.privilegeMap.values()) {
+				for (final SqlResourceRolePrivileges rolePrivileges : privObjList) {
+					string.append(rolePrivileges.toString());
 					string.append("\n");
 				}
 			}
@@ -77,60 +97,85 @@ public class AuthorizerImpl implements Authorizer {
 	/** Returns true if user is authorized (or authorization is disabled), false otherwise. */
 	@Override
 	public boolean isAuthorized(SecurityContext context, Request.Type requestType, String sqlResource) {
-		boolean authorized = false;
-		if (authEnabled) {
-			authorized = isAuthorized(context, requestType, privilegeMap.get(sqlResource));
-			if (!authorized) {
-				authorized = isAuthorized(context, requestType, privilegeMap.get(SqlResourceRolePrivileges.TOKEN_WILDCARD));
-			}
-		} else {
-			authorized = true;
+		reloadPrivilegesIfModified();
+		final CompiledPrivileges privileges = this.privileges;
+		if (!privileges.authEnabled) {
+			return true;
+		}
+
+		final Set<String> roles = privileges.getRoles(sqlResource, requestType);
+		if (roles.isEmpty()) {
+			return false;
 		}
+
+		final Principal principal = cacheTtl > 0 ? context.getUserPrincipal() : null;
+		if (principal == null) {
+			return isUserInAnyRole(context, roles);
+		}
+
+		final String cacheKey = principal.getName() + '\n' + sqlResource + '\n' + requestType;
+		final long now = System.currentTimeMillis();
+		final CachedDecision cached = privileges.decisionCache.get(cacheKey);
+		if (cached != null && cached.expiration > now) {
+			return cached.authorized;
+		}
+		final boolean authorized = isUserInAnyRole(context, roles);
+		if (privileges.decisionCache.size() >= DECISION_CACHE_MAX_SIZE) {
+			privileges.decisionCache.clear();
+		}
+		privileges.decisionCache.put(cacheKey, new CachedDecision(authorized, now + cacheTtl));
 		return authorized;
 	}
 
 	// Private utils
 
-	private boolean isAuthorized(final SecurityContext context, final Request.Type requestType,
-			final List<SqlResourceRolePrivileges> privilegeList) {
-		boolean authorized = false;
-		if (privilegeList != null) {
-			for (final SqlResourceRolePrivileges privileges : privilegeList) {
-				if (context.isUserInRole(privileges.getRoleName())
-						&& privileges.hasPrivilege(requestType)) {
-					authorized = true;
-					break;
-				}
+	/** Returns configured number of seconds as milliseconds, or the default if the property is not a number. */
+	private static long getSecondsProperty(final String key, final String defaultValue) {
+		final String value = Config.properties.getProperty(key, defaultValue);
+		try {
+			return Long.parseLong(value.trim()) * 1000;
+		} catch (final NumberFormatException exception) {
+			Config.logger.warn("Property " + key + " value '" + value + "' is not a number -- using default "
+					+ defaultValue);
+			return Long.parseLong(defaultValue) * 1000;
+		}
+	}
+
+	private static boolean isUserInAnyRole(final SecurityContext context, final Set<String> roles) {
+		for (final String role : roles) {
+			if (context.isUserInRole(role)) {
+				return true;
 			}
 		}
-		return authorized;
+		return false;
 	}
 
-	/** Loads authorization config from configured properties file. */
-	private void loadPrivileges() {
+	/** Loads authorization config from configured properties file and compiles the decision table. */
+	private CompiledPrivileges loadPrivileges() {
+		final CompiledPrivileges privileges = new CompiledPrivileges();
 		if (configFileName == null) {
 			// File not configured, log warning
-			authStatusMessage = "Authorization disabled -- No privileges defined. Use "
+			privileges.authStatusMessage = "Authorization disabled -- No privileges defined. Use "
 					+ Config.KEY_SECURITY_PRIVILEGES + " in restsql properties.";
-			Config.logger.warn(authStatusMessage);
+			Config.logger.warn(privileges.authStatusMessage);
 
 		} else {
-			authEnabled = true;
-			privilegeMap = new TreeMap<String, List<SqlResourceRolePrivileges>>();
+			privileges.authEnabled = true;
 			InputStream inputStream = null;
 			try {
 				final File file = new File(configFileName);
 				if (!file.exists()) {
 					// File not found, log error
-					authStatusMessage = "Authorization enabled -- But privileges properties file "
+					privileges.authStatusMessage = "Authorization enabled -- But privileges properties file "
 							+ configFileName + " not found";
-					Config.logger.error(authStatusMessage);
+					Config.logger.error(privileges.authStatusMessage);
 				} else {
 					if (Config.logger.isDebugEnabled()) {
 						Config.logger.debug("Loading privileges from " + configFileName);
 					}
 
 					// Load file into properties object
+					privileges.lastModified = file.lastModified();
 					final Properties properties = new Properties();
 					inputStream = new FileInputStream(file);
 					properties.load(inputStream);
@@ -178,20 +223,19 @@ public class AuthorizerImpl implements Authorizer {
 										final String roleName = roleTokenizer.nextToken();
 										if (roleName != null) {
 											// Create priv object and add to object list
-											final SqlResourceRolePrivileges privileges = new SqlResourceRolePrivileges(
+											final SqlResourceRolePrivileges rolePrivileges = new SqlResourceRolePrivileges(
 													sqlResource, privilegesList, roleName);
-											privObjectsList.add(privileges);
+											privObjectsList.add(rolePrivileges);
 										}
 									}
 
 									if (privObjectsList.size() > 0) {
 										// Initialize priv map if necessary, add object list to map
-										if (privilegeMap.containsKey(sqlResource)) {
-											privilegeMap.get(sqlResource).addAll(privObjectsList);
+										if (privileges.privilegeMap.containsKey(sqlResource)) {
+											privileges.privilegeMap.get(sqlResource).addAll(privObjectsList);
 										} else {
-											privilegeMap.put(sqlResource, privObjectsList);
+											privileges.privilegeMap.put(sqlResource, privObjectsList);
 										}
-										authEnabled = true;
 									}
 								}
 
@@ -205,25 +249,26 @@ public class AuthorizerImpl implements Authorizer {
 					}
 
 					// Log results
-					if (privilegeMap.size() == 0) {
+					privileges.loaded = true;
+					if (privileges.privilegeMap.size() == 0) {
 						// No valid privs found
-						authStatusMessage = "Authorization enabled -- But no privileges valid in "
+						privileges.authStatusMessage = "Authorization enabled -- But no privileges valid in "
 								+ configFileName;
-						Config.logger.error(authStatusMessage);
+						Config.logger.error(privileges.authStatusMessage);
 					} else {
 						// We're good!
-						authStatusMessage = "Authorization enabled -- Loaded privileges from "
+						privileges.authStatusMessage = "Authorization enabled -- Loaded privileges from "
 								+ configFileName;
 						if (Config.logger.isInfoEnabled()) {
-							Config.logger.info(authStatusMessage);
+							Config.logger.info(privileges.authStatusMessage);
 						}
 					}
 				}
 			} catch (final IOException exception) {
 				// Error reading file or parsing contents, log error
-				authStatusMessage = "Authorization enabled -- Failed to load privileges properties from "
+				privileges.authStatusMessage = "Authorization enabled -- Failed to load privileges properties from "
 						+ configFileName;
-				Config.logger.error(authStatusMessage, exception);
+				Config.logger.error(privileges.authStatusMessage, exception);
 			} finally {
 				// Close stream
 				if (inputStream != null) {
@@ -235,5 +280,105 @@ public class AuthorizerImpl implements Authorizer {
 				}
 			}
 		}
+		privileges.compileDecisionTable();
+		return privileges;
+	}
+
+	/**
+	 * Reloads and swaps in the privileges if the file has been modified since it was loaded. Checks at most once per
+	 * reload interval. A file that has disappeared or cannot be read leaves the current privileges in effect.
+	 */
+	private void reloadPrivilegesIfModified() {
+		if (configFileName == null || reloadInterval <= 0) {
+			return;
+		}
+		final long now = System.currentTimeMillis();
+		if (now < nextReloadCheck) {
+			return;
+		}
+		synchronized (this) {
+			if (now < nextReloadCheck) {
+				return;
+			}
+			nextReloadCheck = now + reloadInterval;
+			final File file = new File(configFileName);
+			if (file.exists() && file.lastModified() != privileges.lastModified) {
+				final CompiledPrivileges reloaded = loadPrivileges();
+				if (reloaded.loaded) {
+					privileges = reloaded;
+				} else {
+					Config.logger.error("Privileges reload from " + configFileName
+							+ " failed -- keeping previously loaded privileges");
+				}
+			}
+		}
+	}
+
+	/** Immutable-once-published privileges and their decision table. Only the decision cache changes afterwards. */
+	private static class CompiledPrivileges {
+		boolean authEnabled = false;
+		String authStatusMessage;
+		final Map<String, CachedDecision> decisionCache = new ConcurrentHashMap<String, CachedDecision>();
+		long lastModified;
+		boolean loaded = false;
+		// Map<sqlResource, List<SqlResourceRolePrivileges>>
+		final Map<String, List<SqlResourceRolePrivileges>> privilegeMap = new TreeMap<String, List<SqlResourceRolePrivileges>>();
+		// Map<sqlResource, Map<requestType, Set<roleName>>>, with wildcard resource roles merged into each resource
+		final Map<String, Map<Request.Type, Set<String>>> decisionTable = new HashMap<String, Map<Request.Type, Set<String>>>();
+		Map<Request.Type, Set<String>> wildcardDecisions;
+
+		/** Returns roles allowed to execute the request type on the resource, never null. */
+		Set<String> getRoles(final String sqlResource, final Request.Type requestType) {
+			Map<Request.Type, Set<String>> decisions = decisionTable.get(sqlResource);
+			if (decisions == null) {
+				decisions = wildcardDecisions;
+			}
+			return decisions.get(requestType);
+		}
+
+		void compileDecisionTable() {
+			wildcardDecisions = compileDecisions(null);
+			for (final String sqlResource : privilegeMap.keySet()) {
+				if (!sqlResource.equals(SqlResourceRolePrivileges.TOKEN_WILDCARD)) {
+					decisionTable.put(sqlResource, compileDecisions(privilegeMap.get(sqlResource)));
+				}
+			}
+		}
+
+		/** Builds role sets per request type from the resource's privileges followed by the wildcard's. */
+		private Map<Request.Type, Set<String>> compileDecisions(
+				final List<SqlResourceRolePrivileges> resourcePrivileges) {
+			final Map<Request.Type, Set<String>> decisions = new EnumMap<Request.Type, Set<String>>(
+					Request.Type.class);
+			for (final Request.Type requestType : Request.Type.values()) {
+				final Set<String> roles = new LinkedHashSet<String>();
+				addRoles(roles, requestType, resourcePrivileges);
+				addRoles(roles, requestType, privilegeMap.get(SqlResourceRolePrivileges.TOKEN_WILDCARD));
+				decisions.put(requestType, Collections.unmodifiableSet(roles));
+			}
+			return decisions;
+		}
+
+		private static void addRoles(final Set<String> roles, final Request.Type requestType,
+				final List<SqlResourceRolePrivileges> privilegeList) {
+			if (privilegeList != null) {
+				for (final SqlResourceRolePrivileges rolePrivileges : privilegeList) {
+					if (rolePrivileges.hasPrivilege(requestType)) {
+						roles.add(rolePrivileges.getRoleName());
+					}
+				}
+			}
+		}
+	}
+
+	/** Cached authorization decision for a principal, resource and request type. */
+	private static class CachedDecision {
+		final boolean authorized;
+		final long expiration;
+
+		CachedDecision(final boolean authorized, final long expiration) {
+			this.authorized = authorized;
+			this.expiration = expiration;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -15,6 +16,7 @@ import org.restsql.core.Config;
 import org.restsql.core.Factory;
 import org.restsql.core.Factory.SqlResourceFactoryException;
 import org.restsql.core.SqlResourceException;
+import org.restsql.core.impl.StatementStatistics;
 import org.restsql.security.SecurityFactory;
 import org.restsql.service.monitoring.MonitoringFactory;
 
@@ -54,6 +56,14 @@ public class ConfResource {
 		return Response.ok(SecurityFactory.getAuthorizer().dumpConfig()).build();
 	}
 
+	@GET
+	@Path("statements")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response dumpStatementStatistics(@QueryParam("sort") final String sort) {
+		requestCounter.inc();
+		return Response.ok(StatementStatistics.dumpStatistics(sort)).build();
+	}
+
 	@GET
 	@Path("definition/{resName}")
 	@Produces(MediaType.APPLICATION_XML)
@@ -104,6 +114,15 @@ public class ConfResource {
 		return Response.ok(requestBody.toString()).build();
 	}
 
+	@GET
+	@Path("statements/reset")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response resetStatementStatistics() {
+		requestCounter.inc();
+		StatementStatistics.reset();
+		return Response.ok("Reset of statement statistics succeeded").build();
+	}
+
 	@GET
 	@Path("reload/{resName}")
 	@Produces(MediaType.TEXT_PLAIN)
@@ -1,6 +1,11 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
 import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
@@ -9,6 +14,7 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 
+import org.restsql.core.Config;
 import org.restsql.core.Factory;
 import org.restsql.core.Factory.SqlResourceFactoryException;
 import org.restsql.core.HttpRequestAttributes;
@@ -22,6 +28,8 @@ import org.restsql.core.SqlResourceException;
  * @author Mark Sawers
  */
 public class HttpRequestHelper {
+	private static final long streamingThreshold = Long.parseLong(Config.properties.getProperty(
+			Config.KEY_REQUEST_STREAMING_THRESHOLD, Config.DEFAULT_REQUEST_STREAMING_THRESHOLD));
 
 	/** Builds HTML page with SQL Resources and actions for each. Used for /restsql/res and /restsql/conf. */
 	public static StringBuffer buildSqlResourceListing() {
@@ -118,6 +126,27 @@ public class HttpRequestHelper {
 				responseMediaType);
 	}
 
+	/** Reads the request body into a string, using the request's character encoding or UTF-8. */
+	public static String getRequestBody(final HttpServletRequest httpRequest, final InputStream inputStream)
+			throws IOException {
+		final int contentLength = httpRequest.getContentLength();
+		final StringBuilder string = new StringBuilder(contentLength > 0 ? contentLength : 300);
+		final Reader reader = getRequestReader(httpRequest, inputStream);
+		final char[] buffer = new char[4096];
+		int length;
+		while ((length = reader.read(buffer)) != -1) {
+			string.append(buffer, 0, length);
+		}
+		return string.toString();
+	}
+
+	/** Returns a reader for the request body, using the request's character encoding or UTF-8. */
+	public static Reader getRequestReader(final HttpServletRequest httpRequest, final InputStream inputStream)
+			throws UnsupportedEncodingException {
+		final String encoding = httpRequest.getCharacterEncoding();
+		return new InputStreamReader(inputStream, encoding == null ? "UTF-8" : encoding);
+	}
+
 	/**
 	 * Converts form params into string. Jersey does not provide the string form of the request body when it generates a
 	 * form param map.
@@ -157,4 +186,19 @@ public class HttpRequestHelper {
 		requestLogger.log(status.getStatusCode(), exception);
 		return Response.status(status).entity(exception.getMessage()).type(MediaType.TEXT_PLAIN).build();
 	}
+
+	/**
+	 * Returns true if the request body should be parsed as it is read rather than buffered, i.e. it is chunked or
+	 * longer than <code>request.streaming.threshold</code> bytes. Streamed bodies are not logged.
+	 */
+	public static boolean isStreamedBody(final HttpServletRequest httpRequest) {
+		final int contentLength = httpRequest.getContentLength();
+		if (contentLength < 0) {
+			// Chunked, or too long for an int
+			return httpRequest.getHeader("Transfer-Encoding") != null
+					|| httpRequest.getHeader("Content-Length") != null;
+		} else {
+			return contentLength > streamingThreshold;
+		}
+	}
 }
\ No newline at end of file
@@ -8,6 +8,11 @@ import javax.servlet.ServletContextListener;
 
 import org.restsql.core.Config;
 import org.restsql.core.Factory;
+import org.restsql.core.impl.AsyncRequestLogWriter;
+import org.restsql.core.impl.MetaDataSnapshotStore;
+import org.restsql.core.impl.SlowQueryLogger;
+import org.restsql.core.impl.SqlResourceWatcher;
+import org.restsql.core.impl.TriggerManager;
 import org.restsql.service.monitoring.MonitoringFactory;
 import org.restsql.service.monitoring.MonitoringManager;
 
@@ -46,6 +51,11 @@ public class LifecycleListener implements ServletContextListener {
 	 * @see ServletContextListener#contextDestroyed(ServletContextEvent)
 	 */
 	public void contextDestroyed(ServletContextEvent arg0) {
+		TriggerManager.shutdown();
+		AsyncRequestLogWriter.shutdown();
+		SlowQueryLogger.shutdown();
+		MetaDataSnapshotStore.shutdown();
+		SqlResourceWatcher.shutdown();
 		try {
 			Factory.getConnectionFactory().destroy();
 		} catch (SQLException exception) {
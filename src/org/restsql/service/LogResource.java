@@ -28,6 +28,7 @@ public class LogResource {
 	private static final String LOG_NAME_ACCESS = "access.log";
 	private static final String LOG_NAME_ERROR = "error.log";
 	private static final String LOG_NAME_INTERNAL = "internal.log";
+	private static final String LOG_NAME_SLOW_QUERY = "slowquery.log";
 	private static final String LOG_NAME_TRACE = "trace.log";
 	
 	private final Counter logAccessCounter = MonitoringFactory.getMonitoringManager().newCounter(LogResource.class, "logAccess");
@@ -44,6 +45,7 @@ public class LogResource {
 		appendCurrentLogAnchor(body, "access");
 		appendCurrentLogAnchor(body, "error");
 		appendCurrentLogAnchor(body, "trace");
+		appendCurrentLogAnchor(body, "slowquery");
 		appendCurrentLogAnchor(body, "internal");
 		body.append("<p/><p/><span style=\"font-weight:bold\">Historical Logs</span><br/>");
 		final File dir = new File(getLogDir());
@@ -51,6 +53,7 @@ public class LogResource {
 			if (file.getName().contains(".log")) {
 				if (!file.getName().equals(LOG_NAME_ACCESS) && !file.getName().equals(LOG_NAME_ERROR)
 						&& !file.getName().equals(LOG_NAME_TRACE)
+						&& !file.getName().equals(LOG_NAME_SLOW_QUERY)
 						&& !file.getName().equals(LOG_NAME_INTERNAL)) {
 					body.append("<a href=\"");
 					body.append(file.getName());
@@ -88,6 +91,14 @@ public class LogResource {
 		return getFileContents(LOG_NAME_INTERNAL);
 	}
 
+	@GET
+	@Path("slowquery")
+	@Produces(MediaType.TEXT_PLAIN)
+	public Response getCurrentSlowQueryLog() {
+		logAccessCounter.inc();
+		return getFileContents(LOG_NAME_SLOW_QUERY);
+	}
+
 	@GET
 	@Path("trace")
 	@Produces(MediaType.TEXT_PLAIN)
@@ -1,6 +1,9 @@
 /* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
 package org.restsql.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +28,9 @@ import javax.ws.rs.core.UriInfo;
 import org.restsql.core.Config;
 import org.restsql.core.Factory;
 import org.restsql.core.HttpRequestAttributes;
+import org.restsql.core.InvalidRequestException;
+import org.restsql.core.PhaseTimingRequestLogger;
+import org.restsql.core.PhaseTimingRequestLogger.Phase;
 import org.restsql.core.Request;
 import org.restsql.core.Request.Type;
 import org.restsql.core.RequestLogger;
@@ -32,9 +38,11 @@ import org.restsql.core.RequestUtil;
 import org.restsql.core.RequestValue;
 import org.restsql.core.SqlResource;
 import org.restsql.core.SqlResourceException;
+import org.restsql.core.StreamingRequestDeserializer;
 import org.restsql.core.WriteResponse;
 import org.restsql.security.SecurityFactory;
 import org.restsql.service.monitoring.MonitoringFactory;
+import org.restsql.service.monitoring.ResourceMetrics;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
@@ -42,11 +50,18 @@ import com.codahale.metrics.annotation.Timed;
 
 /**
  * Contains core JAX-RS Resource of the service, processing SQL Resource CRUD requests. Also lists available resources.
+ * Records per-resource and per-request type metrics (see {@link ResourceMetrics}) and optionally returns the time of
+ * each request processing phase in a Server-Timing response header, if the request logger times phases. Large and
+ * chunked write bodies are parsed as they are read if the media type's deserializer supports it, see
+ * {@link HttpRequestHelper#isStreamedBody(HttpServletRequest)} and {@link StreamingRequestDeserializer}.
  * 
  * @author Mark Sawers
  */
 @Path("res")
 public class ResResource {
+	private static final boolean serverTimingEnabled = Boolean.valueOf(Config.properties.getProperty(
+			Config.KEY_HTTP_SERVER_TIMING, Config.DEFAULT_HTTP_SERVER_TIMING));
+
 	private final Timer allRequestTypesTimer = MonitoringFactory.getMonitoringManager().newTimer(ResResource.class, "allRequestTypes");
 	private final Counter confRequestCounter = MonitoringFactory.getMonitoringManager().newCounter(ResResource.class, "conf");
 	
@@ -54,12 +69,12 @@ public class ResResource {
 	@Path("{resName}/{resId1}")
 	@Timed
 	public Response delete(@PathParam("resName") final String resName,
-			@PathParam("resId1") final String resId1, final String requestBody,
+			@PathParam("resId1") final String resId1, final InputStream requestBody,
 			@HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.DELETE, resName, new String[] { resId1 }, null,
-				requestBody, contentMediaType, acceptMediaType, securityContext);
+				null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@DELETE
@@ -67,11 +82,11 @@ public class ResResource {
 	@Timed
 	public Response delete(@PathParam("resName") final String resName,
 			@PathParam("resId1") final String resId1, @PathParam("resId2") final String resId2,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.DELETE, resName, new String[] { resId1, resId2 },
-				null, requestBody, contentMediaType, acceptMediaType, securityContext);
+				null, null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@DELETE
@@ -79,23 +94,23 @@ public class ResResource {
 	@Timed
 	public Response delete(@PathParam("resName") final String resName,
 			@PathParam("resId1") final String resId1, @PathParam("resId2") final String resId2,
-			@PathParam("resId3") final String resId3, final String requestBody,
+			@PathParam("resId3") final String resId3, final InputStream requestBody,
 			@HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.DELETE, resName, new String[] { resId1, resId2,
-				resId3 }, null, requestBody, contentMediaType, acceptMediaType, securityContext);
+				resId3 }, null, null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@DELETE
 	@Path("{resName}")
 	@Timed
 	public Response delete(@PathParam("resName") final String resName, @Context final UriInfo uriInfo,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequest(httpRequest, Type.DELETE, resName, null, null,
-				getNameValuePairs(uriInfo.getQueryParameters()), requestBody, contentMediaType,
+				getNameValuePairs(uriInfo.getQueryParameters()), null, requestBody, contentMediaType,
 				acceptMediaType, securityContext);
 	}
 
@@ -106,7 +121,8 @@ public class ResResource {
 			@Context final UriInfo uriInfo, @HeaderParam("Accept") String acceptMediaType,
 			@Context final HttpServletRequest httpRequest, @Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.SELECT, resName, new String[] { resId1 },
-				getNameValuePairs(uriInfo.getQueryParameters()), null, null, acceptMediaType, securityContext);
+				getNameValuePairs(uriInfo.getQueryParameters()), null, null, null, acceptMediaType,
+				securityContext);
 	}
 
 	@GET
@@ -117,7 +133,8 @@ public class ResResource {
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.SELECT, resName, new String[] { resId1, resId2 },
-				getNameValuePairs(uriInfo.getQueryParameters()), null, null, acceptMediaType, securityContext);
+				getNameValuePairs(uriInfo.getQueryParameters()), null, null, null, acceptMediaType,
+				securityContext);
 	}
 
 	@GET
@@ -128,8 +145,8 @@ public class ResResource {
 			@Context final UriInfo uriInfo, @HeaderParam("Accept") String acceptMediaType,
 			@Context final HttpServletRequest httpRequest, @Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.SELECT, resName, new String[] { resId1, resId2,
-				resId3 }, getNameValuePairs(uriInfo.getQueryParameters()), null, null, acceptMediaType,
-				securityContext);
+				resId3 }, getNameValuePairs(uriInfo.getQueryParameters()), null, null, null,
+				acceptMediaType, securityContext);
 	}
 
 	@GET
@@ -139,7 +156,8 @@ public class ResResource {
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequest(httpRequest, Request.Type.SELECT, resName, null, null,
-				getNameValuePairs(uriInfo.getQueryParameters()), null, null, acceptMediaType, securityContext);
+				getNameValuePairs(uriInfo.getQueryParameters()), null, null, null, acceptMediaType,
+				securityContext);
 	}
 
 	@GET
@@ -161,19 +179,19 @@ public class ResResource {
 			@Context final SecurityContext securityContext) {
 		final String requestBody = HttpRequestHelper.getRequestBodyFromFormParams(formParams);
 		return executeRequest(httpRequest, Type.INSERT, resName, null, null, getNameValuePairs(formParams),
-				requestBody, contentMediaType, acceptMediaType, securityContext);
+				requestBody, null, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@POST
 	@Path("{resName}/{resId1}")
 	@Timed
 	public Response post(@PathParam("resName") final String resName,
-			@PathParam("resId1") final String resId1, final String requestBody,
+			@PathParam("resId1") final String resId1, final InputStream requestBody,
 			@HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.INSERT, resName, new String[] { resId1 }, null,
-				requestBody, contentMediaType, acceptMediaType, securityContext);
+				null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@POST
@@ -181,11 +199,11 @@ public class ResResource {
 	@Timed
 	public Response post(@PathParam("resName") final String resName,
 			@PathParam("resId1") final String resId1, @PathParam("resId2") final String resId2,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.INSERT, resName, new String[] { resId1, resId2 },
-				null, requestBody, contentMediaType, acceptMediaType, securityContext);
+				null, null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@POST
@@ -193,23 +211,23 @@ public class ResResource {
 	@Timed
 	public Response post(@PathParam("resName") final String resName,
 			@PathParam("resId1") final String resId1, @PathParam("resId2") final String resId2,
-			@PathParam("resId3") final String resId3, final String requestBody,
+			@PathParam("resId3") final String resId3, final InputStream requestBody,
 			@HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.INSERT, resName, new String[] { resId1, resId2,
-				resId3 }, null, requestBody, contentMediaType, acceptMediaType, securityContext);
+				resId3 }, null, null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@POST
 	@Path("{resName}")
 	@Timed
 	public Response post(@PathParam("resName") final String resName, @Context final UriInfo uriInfo,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequest(httpRequest, Type.INSERT, resName, null, null,
-				getNameValuePairs(uriInfo.getQueryParameters()), requestBody, contentMediaType,
+				getNameValuePairs(uriInfo.getQueryParameters()), null, requestBody, contentMediaType,
 				acceptMediaType, securityContext);
 	}
 
@@ -224,7 +242,7 @@ public class ResResource {
 			@Context final SecurityContext securityContext) {
 		final String requestBody = HttpRequestHelper.getRequestBodyFromFormParams(formParams);
 		return executeRequest(httpRequest, Type.UPDATE, resName, null,
-				getNameValuePairs(uriInfo.getQueryParameters()), getNameValuePairs(formParams), requestBody,
+				getNameValuePairs(uriInfo.getQueryParameters()), getNameValuePairs(formParams), requestBody, null,
 				contentMediaType, acceptMediaType, securityContext);
 	}
 
@@ -239,7 +257,7 @@ public class ResResource {
 			@Context final SecurityContext securityContext) {
 		final String requestBody = HttpRequestHelper.getRequestBodyFromFormParams(formParams);
 		return executeRequestParseResIds(httpRequest, Type.UPDATE, resName, new String[] { resId1 },
-				getNameValuePairs(formParams), requestBody, contentMediaType, acceptMediaType,
+				getNameValuePairs(formParams), requestBody, null, contentMediaType, acceptMediaType,
 				securityContext);
 	}
 
@@ -247,11 +265,11 @@ public class ResResource {
 	@Path("{resName}/{resId1}")
 	@Timed
 	public Response put(@PathParam("resName") final String resName, @PathParam("resId1") final String resId1,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.UPDATE, resName, new String[] { resId1 }, null,
-				requestBody, contentMediaType, acceptMediaType, securityContext);
+				null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@PUT
@@ -265,7 +283,7 @@ public class ResResource {
 			@Context final SecurityContext securityContext) {
 		final String requestBody = HttpRequestHelper.getRequestBodyFromFormParams(formParams);
 		return executeRequestParseResIds(httpRequest, Type.UPDATE, resName, new String[] { resId1, resId2 },
-				getNameValuePairs(formParams), requestBody, contentMediaType, acceptMediaType,
+				getNameValuePairs(formParams), requestBody, null, contentMediaType, acceptMediaType,
 				securityContext);
 	}
 
@@ -273,12 +291,12 @@ public class ResResource {
 	@Path("{resName}/{resId1}/{resId2}")
 	@Timed
 	public Response put(@PathParam("resName") final String resName, @PathParam("resId1") final String resId1,
-			@PathParam("resId2") final String resId2, final String requestBody,
+			@PathParam("resId2") final String resId2, final InputStream requestBody,
 			@HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.UPDATE, resName, new String[] { resId1, resId2 },
-				null, requestBody, contentMediaType, acceptMediaType, securityContext);
+				null, null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@PUT
@@ -286,34 +304,58 @@ public class ResResource {
 	@Timed
 	public Response put(@PathParam("resName") final String resName, @PathParam("resId1") final String resId1,
 			@PathParam("resId2") final String resId2, @PathParam("resId3") final String resId3,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequestParseResIds(httpRequest, Type.UPDATE, resName, new String[] { resId1, resId2,
-				resId3 }, null, requestBody, contentMediaType, acceptMediaType, securityContext);
+				resId3 }, null, null, requestBody, contentMediaType, acceptMediaType, securityContext);
 	}
 
 	@PUT
 	@Path("{resName}")
 	@Timed
 	public Response put(@PathParam("resName") final String resName, @Context final UriInfo uriInfo,
-			final String requestBody, @HeaderParam("Content-Type") String contentMediaType,
+			final InputStream requestBody, @HeaderParam("Content-Type") String contentMediaType,
 			@HeaderParam("Accept") String acceptMediaType, @Context final HttpServletRequest httpRequest,
 			@Context final SecurityContext securityContext) {
 		return executeRequest(httpRequest, Type.UPDATE, resName, null, null,
-				getNameValuePairs(uriInfo.getQueryParameters()), requestBody, contentMediaType,
+				getNameValuePairs(uriInfo.getQueryParameters()), null, requestBody, contentMediaType,
 				acceptMediaType, securityContext);
 	}
 
 	// Private utils
 
-	/** Processes the request. The central method of this resource class. */
-	private Response executeRequest(HttpServletRequest httpRequest, final Request.Type requestType,
+	/**
+	 * Processes the request. The central method of this resource class. The body is either a string, for form params,
+	 * or a stream, which is read into a string unless it is streamed to the deserializer.
+	 */
+	private Response executeRequest(HttpServletRequest httpRequest, Request.Type requestType,
 			final String resName, SqlResource sqlResource, final List<RequestValue> resIds,
-			final List<RequestValue> params, final String requestBody, String contentMediaType,
-			String acceptMediaType, SecurityContext securityContext) {
+			final List<RequestValue> params, String requestBody, final InputStream requestStream,
+			String contentMediaType, String acceptMediaType, SecurityContext securityContext) {
+		// Read the body unless it is streamed
+		Reader requestReader = null;
+		if (requestStream != null) {
+			try {
+				if (HttpRequestHelper.isStreamedBody(httpRequest) && isStreamingDeserializer(contentMediaType)) {
+					requestReader = HttpRequestHelper.getRequestReader(httpRequest, requestStream);
+				} else {
+					requestBody = HttpRequestHelper.getRequestBody(httpRequest, requestStream);
+				}
+			} catch (final IOException exception) {
+				return HttpRequestHelper.handleException(httpRequest, null, contentMediaType,
+						new InvalidRequestException("Error reading request body: " + exception.toString()), null);
+			}
+		}
+
 		Timer.Context requestTimerContext = allRequestTypesTimer.time();
+		final long startTime = System.nanoTime();
 		
+		// Inserts asking to merge duplicates are upserts
+		if (requestType == Request.Type.INSERT && isMergeDuplicates(httpRequest.getHeader("Prefer"))) {
+			requestType = Request.Type.UPSERT;
+		}
+
 		// Determine the media types and create http attributes structure
 		String requestMediaType = RequestUtil.getRequestMediaType(contentMediaType);
 		String responseMediaType = RequestUtil
@@ -326,15 +368,18 @@ public class ResResource {
 		requestLogger.setHttpRequestAttributes(httpAttributes);
 
 		// Authorize
-		if (!SecurityFactory.getAuthorizer().isAuthorized(new SecurityContextAdapter(securityContext),
-				requestType, resName)) {
+		final boolean authorized = SecurityFactory.getAuthorizer().isAuthorized(
+				new SecurityContextAdapter(securityContext), requestType, resName);
+		addPhaseTime(requestLogger, Phase.AUTHORIZATION, System.nanoTime() - startTime);
+		if (!authorized) {
 			Status status = Status.FORBIDDEN;
 			requestLogger.log(status.getStatusCode());
 			return Response.status(status).build();
 		}
 
+		String responseBody = null;
+		boolean error = true;
 		try {
-			String responseBody = null;
 			if (sqlResource == null) {
 				sqlResource = Factory.getSqlResource(resName);
 			}
@@ -347,6 +392,12 @@ public class ResResource {
 			} else { // INSERT, UPDATE or DELETE
 				final WriteResponse writeResponse;
 				if (requestMediaType != null
+						&& !requestMediaType.equals(MediaType.APPLICATION_FORM_URLENCODED)
+						&& requestReader != null) {
+					// requestBody is streamed, use request processor as it is read
+					writeResponse = ((StreamingRequestDeserializer) Factory.getRequestDeserializer(requestMediaType))
+							.execWrite(httpAttributes, requestType, resIds, sqlResource, requestReader, requestLogger);
+				} else if (requestMediaType != null
 						&& !requestMediaType.equals(MediaType.APPLICATION_FORM_URLENCODED)
 						&& requestBody != null && requestBody.length() > 0) {
 					// requestBody is not null, use request processor
@@ -357,7 +408,9 @@ public class ResResource {
 							params, null, requestLogger);
 					writeResponse = sqlResource.write(request);
 				}
+				final long serializationStartTime = System.nanoTime();
 				responseBody = Factory.getResponseSerializer(responseMediaType).serializeWrite(sqlResource, writeResponse);
+				addPhaseTime(requestLogger, Phase.SERIALIZATION, System.nanoTime() - serializationStartTime);
 			}
 
 			// Log response and send it
@@ -373,14 +426,24 @@ public class ResResource {
 			}
 
 			// Send the response
-			return Response.ok(responseBody).type(responseMediaType).header("Cache-Control", cacheControl)
-					.build();
+			final Response.ResponseBuilder responseBuilder = Response.ok(responseBody).type(responseMediaType)
+					.header("Cache-Control", cacheControl);
+			if (serverTimingEnabled && requestLogger instanceof PhaseTimingRequestLogger) {
+				responseBuilder.header("Server-Timing",
+						getServerTiming((PhaseTimingRequestLogger) requestLogger, startTime));
+			}
+			error = false;
+			return responseBuilder.build();
 
 		} catch (final SqlResourceException exception) {
 			return HttpRequestHelper.handleException(httpRequest, requestBody, requestMediaType, exception,
 					requestLogger);
 		} finally {
 			requestTimerContext.stop();
+			if (sqlResource != null) {
+				ResourceMetrics.getInstance(sqlResource.getName()).update(requestType, requestLogger,
+						System.nanoTime() - startTime, responseBody == null ? 0 : getUtf8Length(responseBody), error);
+			}
 		}
 	}
 
@@ -390,8 +453,8 @@ public class ResResource {
 	 */
 	private Response executeRequestParseResIds(HttpServletRequest httpRequest,
 			final Request.Type requestType, final String resName, final String[] resIdValues,
-			final List<RequestValue> params, final String requestBody, String contentMediaType,
-			String acceptMediaType, SecurityContext securityContext) {
+			final List<RequestValue> params, final String requestBody, final InputStream requestStream,
+			String contentMediaType, String acceptMediaType, SecurityContext securityContext) {
 		final SqlResource sqlResource;
 		final List<RequestValue> resIds;
 		try {
@@ -402,7 +465,49 @@ public class ResResource {
 					null);
 		}
 		return executeRequest(httpRequest, requestType, resName, sqlResource, resIds, params, requestBody,
-				contentMediaType, acceptMediaType, securityContext);
+				requestStream, contentMediaType, acceptMediaType, securityContext);
+	}
+
+	/** Returns Server-Timing header value with the phase times and total in milliseconds. */
+	private String getServerTiming(final PhaseTimingRequestLogger requestLogger, final long startTime) {
+		final long[] phaseTimes = requestLogger.getPhaseTimes();
+		final StringBuilder serverTiming = new StringBuilder(160);
+		for (final Phase phase : Phase.values()) {
+			serverTiming.append(phase.getMetricName());
+			serverTiming.append(";dur=");
+			serverTiming.append(phaseTimes[phase.ordinal()] / 1000 / 1000.0);
+			serverTiming.append(", ");
+		}
+		serverTiming.append("total;dur=");
+		serverTiming.append((System.nanoTime() - startTime) / 1000 / 1000.0);
+		return serverTiming.toString();
+	}
+
+	/** Adds phase time to the request logger, if it times phases. */
+	private static void addPhaseTime(final RequestLogger requestLogger, final Phase phase, final long nanos) {
+		if (requestLogger instanceof PhaseTimingRequestLogger) {
+			((PhaseTimingRequestLogger) requestLogger).addPhaseTime(phase, nanos);
+		}
+	}
+
+	/** Returns length of the string in UTF-8 bytes, without encoding it. */
+	private static int getUtf8Length(final String string) {
+		int length = 0;
+		for (int i = 0; i < string.length(); i++) {
+			final char c = string.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+					&& Character.isLowSurrogate(string.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
 	}
 
 	/** Converts form or query params into a list of NameValuePairs. */
@@ -416,4 +521,29 @@ public class ResResource {
 		}
 		return params;
 	}
+
+	/** Returns true if the content media type's deserializer can parse the body as it is read. */
+	private boolean isStreamingDeserializer(final String contentMediaType) {
+		final String requestMediaType = RequestUtil.getRequestMediaType(contentMediaType);
+		if (requestMediaType == null || requestMediaType.equals(MediaType.APPLICATION_FORM_URLENCODED)) {
+			return false;
+		}
+		try {
+			return Factory.getRequestDeserializer(requestMediaType) instanceof StreamingRequestDeserializer;
+		} catch (final SqlResourceException exception) {
+			return false;
+		}
+	}
+
+	/** Returns true if the Prefer header contains <code>resolution=merge-duplicates</code>. */
+	private boolean isMergeDuplicates(final String prefer) {
+		if (prefer != null) {
+			for (final String preference : prefer.split(",")) {
+				if (preference.trim().equalsIgnoreCase("resolution=merge-duplicates")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
 }
@@ -4,6 +4,8 @@ package org.restsql.service.monitoring;
 import java.util.Set;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheckRegistry;
@@ -28,6 +30,12 @@ public interface MonitoringManager {
 	/** Creates new counter. */
 	public abstract Counter newCounter(@SuppressWarnings("rawtypes") Class clazz, String name);
 
+	/** Creates new histogram. */
+	public abstract Histogram newHistogram(@SuppressWarnings("rawtypes") Class clazz, String name);
+
+	/** Creates new meter. */
+	public abstract Meter newMeter(@SuppressWarnings("rawtypes") Class clazz, String name);
+
 	/** Creates new timer. */
 	public abstract Timer newTimer(@SuppressWarnings("rawtypes") Class clazz, String name);
 
@@ -12,6 +12,8 @@ import java.util.concurrent.TimeUnit;
 import org.restsql.core.Config;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricFilter;
 import com.codahale.metrics.MetricRegistry;
@@ -63,6 +65,16 @@ public class MonitoringManagerImpl implements MonitoringManager {
 		return metricRegistry.counter(MetricRegistry.name(clazz, name));
 	}
 
+	@Override
+	public Histogram newHistogram(@SuppressWarnings("rawtypes") final Class clazz, final String name) {
+		return metricRegistry.histogram(MetricRegistry.name(clazz, name));
+	}
+
+	@Override
+	public Meter newMeter(@SuppressWarnings("rawtypes") final Class clazz, final String name) {
+		return metricRegistry.meter(MetricRegistry.name(clazz, name));
+	}
+
 	@Override
 	public Timer newTimer(@SuppressWarnings("rawtypes") final Class clazz, final String name) {
 		return metricRegistry.timer(MetricRegistry.name(clazz, name));
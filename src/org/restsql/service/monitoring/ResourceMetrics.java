@@ -0,0 +1,143 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.service.monitoring;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.restsql.core.Config;
+import org.restsql.core.PhaseTimingRequestLogger;
+import org.restsql.core.PhaseTimingRequestLogger.Phase;
+import org.restsql.core.Request;
+import org.restsql.core.RequestLogger;
+import org.restsql.service.ResResource;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+/**
+ * Holds the metrics of a SQL Resource, registered on its first request. Each resource has a histogram per processing
+ * phase, named <code>org.restsql.service.ResResource.{resName}.phase.{phase}</code>, and for each request type that it
+ * receives the following, named <code>org.restsql.service.ResResource.{resName}.{type}.{metric}</code>:
+ * <ul>
+ * <li>latency - timer of the complete request</li>
+ * <li>dbTime - histogram of database execution time, in microseconds</li>
+ * <li>rows - histogram of rows read or affected</li>
+ * <li>responseSize - histogram of response body length, in UTF-8 bytes</li>
+ * <li>errors - meter of requests with an error response</li>
+ * <li>chunks - histogram of chunks executed by chunked deletes and updates, only updated by chunked requests</li>
+ * <li>chunkedRows - histogram of rows affected by chunked deletes and updates</li>
+ * </ul>
+ * To bound the number of metrics, once the configured maximum number of resources is tracked, any others share the
+ * metrics of the resource name <code>_other</code>. Phase times, dbTime, rows and the chunk metrics are only updated
+ * when the request logger is a {@link PhaseTimingRequestLogger}.
+ *
+ * @author Mark Sawers
+ */
+public class ResourceMetrics {
+	static final String OTHER_RESOURCES = "_other";
+
+	private static final int maxResources = Integer.parseInt(Config.properties.getProperty(
+			Config.KEY_MONITORING_RESOURCES_MAX, Config.DEFAULT_MONITORING_RESOURCES_MAX));
+	private static final ConcurrentMap<String, ResourceMetrics> resources = new ConcurrentHashMap<String, ResourceMetrics>();
+
+	private final AtomicReferenceArray<MethodMetrics> methods = new AtomicReferenceArray<MethodMetrics>(
+			Request.Type.values().length);
+	private final Histogram[] phaseTimes;
+	private final String resName;
+
+	/** Returns metrics for the resource, registering them on first use. */
+	public static ResourceMetrics getInstance(final String resName) {
+		ResourceMetrics metrics = resources.get(resName);
+		if (metrics == null) {
+			final String trackedName = resources.size() < maxResources ? resName : OTHER_RESOURCES;
+			metrics = resources.get(trackedName);
+			if (metrics == null) {
+				metrics = new ResourceMetrics(trackedName);
+				final ResourceMetrics existing = resources.putIfAbsent(trackedName, metrics);
+				if (existing != null) {
+					metrics = existing;
+				}
+			}
+		}
+		return metrics;
+	}
+
+	private ResourceMetrics(final String resName) {
+		this.resName = resName;
+		final Phase[] phases = Phase.values();
+		phaseTimes = new Histogram[phases.length];
+		for (final Phase phase : phases) {
+			phaseTimes[phase.ordinal()] = MonitoringFactory.getMonitoringManager().newHistogram(
+					ResResource.class, resName + ".phase." + phase.getMetricName());
+		}
+	}
+
+	/**
+	 * Updates metrics with a completed request.
+	 *
+	 * @param type request type
+	 * @param requestLogger request's logger, containing phase times and row count if it times phases
+	 * @param elapsedNanos complete request time
+	 * @param responseSize response body length in bytes, or 0 if none
+	 * @param error true if the response is an error
+	 */
+	public void update(final Request.Type type, final RequestLogger requestLogger, final long elapsedNanos,
+			final int responseSize, final boolean error) {
+		final MethodMetrics method = getMethodMetrics(type);
+		method.latency.update(elapsedNanos, TimeUnit.NANOSECONDS);
+		method.responseSize.update(responseSize);
+		if (error) {
+			method.errors.mark();
+		}
+
+		if (requestLogger instanceof PhaseTimingRequestLogger) {
+			final PhaseTimingRequestLogger timingLogger = (PhaseTimingRequestLogger) requestLogger;
+			final long[] phaseNanos = timingLogger.getPhaseTimes();
+			for (int i = 0; i < phaseTimes.length; i++) {
+				phaseTimes[i].update(phaseNanos[i] / 1000);
+			}
+			method.dbTime.update(phaseNanos[Phase.EXECUTION.ordinal()] / 1000);
+			method.rows.update(timingLogger.getRowCount());
+			if (timingLogger.getChunkCount() > 0) {
+				method.chunks.update(timingLogger.getChunkCount());
+				method.chunkedRows.update(timingLogger.getRowCount());
+			}
+		}
+	}
+
+	// Private utils
+
+	private MethodMetrics getMethodMetrics(final Request.Type type) {
+		MethodMetrics method = methods.get(type.ordinal());
+		if (method == null) {
+			methods.compareAndSet(type.ordinal(), null, new MethodMetrics(resName + "." + type.toString()));
+			method = methods.get(type.ordinal());
+		}
+		return method;
+	}
+
+	/** Metrics for one request type. Registry returns existing metrics for names already registered. */
+	private static class MethodMetrics {
+		private final Histogram chunkedRows;
+		private final Histogram chunks;
+		private final Histogram dbTime;
+		private final Meter errors;
+		private final Timer latency;
+		private final Histogram responseSize;
+		private final Histogram rows;
+
+		MethodMetrics(final String prefix) {
+			final MonitoringManager manager = MonitoringFactory.getMonitoringManager();
+			chunkedRows = manager.newHistogram(ResResource.class, prefix + ".chunkedRows");
+			chunks = manager.newHistogram(ResResource.class, prefix + ".chunks");
+			dbTime = manager.newHistogram(ResResource.class, prefix + ".dbTime");
+			errors = manager.newMeter(ResResource.class, prefix + ".errors");
+			latency = manager.newTimer(ResResource.class, prefix + ".latency");
+			responseSize = manager.newHistogram(ResResource.class, prefix + ".responseSize");
+			rows = manager.newHistogram(ResResource.class, prefix + ".rows");
+		}
+	}
+}
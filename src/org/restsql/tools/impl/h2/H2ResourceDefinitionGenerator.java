@@ -0,0 +1,19 @@
+/* Copyright (c) restSQL Project Contributors. Licensed under MIT. */
+package org.restsql.tools.impl.h2;
+
+import org.restsql.tools.impl.AbstractResourceDefinitionGenerator;
+
+/**
+ * Provides H2 specific columns query.
+ * 
+ * @author Mark Sawers
+ */
+public class H2ResourceDefinitionGenerator extends AbstractResourceDefinitionGenerator {
+	private static final String SQL_COLUMNS_QUERY = "select column_name, table_name from information_schema.columns where table_schema = ? and table_name not in (select table_name from information_schema.views)";
+
+	@Override
+	public String getColumnsQuery() {
+		return SQL_COLUMNS_QUERY;
+	}
+
+}